@@ -0,0 +1,125 @@
+package com.dashk.availability.benchmarks;
+
+import com.dashk.availability.AvailabilityConstants;
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.models.TimeRange;
+import com.dashk.availability.utils.DayOfWeekConverter;
+import com.dashk.availability.utils.SalesRepLoader;
+import com.dashk.availability.utils.TimeSlotConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic random inputs shared by the benchmarks
+ */
+public class BenchmarkData {
+    public static final long SEED = 42;
+
+    /**
+     * Returns a random availability string, e.g. "Mon-Wed 9:00 am - 5:30 pm, Fri 12:00 am - 2:00 pm"
+     *
+     * @param random
+     * @param numRanges
+     * @return
+     */
+    public static String randomAvailability(Random random, int numRanges) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < numRanges; ++i) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+
+            int firstDay = random.nextInt(AvailabilityConstants.NUMBER_OF_DAYS);
+            int lastDay = firstDay + random.nextInt(AvailabilityConstants.NUMBER_OF_DAYS - firstDay);
+            builder.append(DayOfWeekConverter.convert(firstDay));
+            if (lastDay != firstDay) {
+                builder.append('-').append(DayOfWeekConverter.convert(lastDay));
+            }
+
+            // Slot 1 (12:30 am) is skipped, since TimeParser reads "12:30 am" as 12:30 pm
+            int startSlot = randomSlotOtherThanHalfPastMidnight(random, 0, AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY - 1);
+            int endSlot = randomSlotOtherThanHalfPastMidnight(random, startSlot + 1, AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY);
+
+            builder.append(' ').append(formatTime(startSlot)).append(" - ").append(formatTime(endSlot));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns a time string for given slot, e.g. 19 => "9:30 am", 48 => "12:00 am"
+     *
+     * @param slot
+     * @return
+     */
+    public static String formatTime(int slot) {
+        int time = TimeSlotConverter.getTimeByTimeSlotIndex(slot % AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY);
+        int hour = time / 100;
+        int minute = time % 100;
+        int displayHour = (hour % 12 == 0) ? 12 : hour % 12;
+
+        return String.format("%d:%02d %s", displayHour, minute, hour < 12 ? "am" : "pm");
+    }
+
+    /**
+     * Creates sales reps with random availability
+     *
+     * @param count
+     * @param rangesPerRep
+     * @return
+     * @throws AvailabilityException
+     */
+    public static List<SalesDevelopmentRepresentative> randomSalesReps(int count, int rangesPerRep) throws AvailabilityException {
+        Random random = new Random(SEED);
+        List<SalesDevelopmentRepresentative> salesReps = new ArrayList<SalesDevelopmentRepresentative>(count);
+
+        for (int i = 0; i < count; ++i) {
+            salesReps.add(SalesRepLoader.toSalesRep(String.format("rep%d@example.com", i), randomAvailability(random, rangesPerRep)));
+        }
+
+        return salesReps;
+    }
+
+    /**
+     * Creates a query that covers numSlots consecutive slots of the week, starting at a random slot
+     *
+     * @param random
+     * @param numSlots 1 ... PackedAvailability.TOTAL_SLOTS
+     * @return
+     */
+    public static PackedAvailability randomQuery(Random random, int numSlots) {
+        int firstSlot = random.nextInt(PackedAvailability.TOTAL_SLOTS - numSlots + 1);
+        List<TimeRange> timeRanges = new ArrayList<TimeRange>();
+
+        // Split the run of slots into one time range per day
+        int slot = firstSlot;
+        while (slot < firstSlot + numSlots) {
+            int dayOfWeek = slot / AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY;
+            int startSlot = slot % AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY;
+            int endSlot = Math.min(AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY, startSlot + (firstSlot + numSlots - slot));
+
+            timeRanges.add(new TimeRange(
+                    dayOfWeek,
+                    TimeSlotConverter.getTimeByTimeSlotIndex(startSlot),
+                    TimeSlotConverter.getTimeByTimeSlotIndex(endSlot)
+            ));
+            slot += endSlot - startSlot;
+        }
+
+        return PackedAvailability.fromTimeRanges(timeRanges);
+    }
+
+    private static int randomSlotOtherThanHalfPastMidnight(Random random, int from, int to) {
+        while (true) {
+            int slot = from + random.nextInt(to - from + 1);
+            if (slot != 1) {
+                return slot;
+            }
+        }
+    }
+}
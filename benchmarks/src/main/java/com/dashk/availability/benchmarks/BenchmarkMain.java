@@ -0,0 +1,49 @@
+package com.dashk.availability.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs JMH with the GC profiler attached (-prof gc), so every result comes with its allocation rate.
+ * Any other JMH argument is passed through, including other profilers, which run alongside it,
+ * e.g. java -jar benchmarks.jar SearchBenchmark -p repCount=1000 -prof stack
+ */
+public class BenchmarkMain {
+    private static final String PROFILER_ARGUMENT = "-prof";
+    private static final String GC_PROFILER = "gc";
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+
+        if (!hasProfiler(arguments, GC_PROFILER)) {
+            arguments.add(PROFILER_ARGUMENT);
+            arguments.add(GC_PROFILER);
+        }
+
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[arguments.size()]));
+    }
+
+    /**
+     * Returns whether given profiler is already listed, with or without options (e.g. -prof gc, -prof gc:churn=true)
+     *
+     * @param arguments
+     * @param profiler
+     * @return
+     */
+    private static boolean hasProfiler(List<String> arguments, String profiler) {
+        for (int i = 0; i < arguments.size() - 1; ++i) {
+            if (!arguments.get(i).equals(PROFILER_ARGUMENT)) {
+                continue;
+            }
+
+            String name = arguments.get(i + 1);
+            int optionsStart = name.indexOf(':');
+            if ((optionsStart >= 0 ? name.substring(0, optionsStart) : name).equals(profiler)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+package com.dashk.availability.benchmarks;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.TimeRange;
+import com.dashk.availability.utils.TimeRangeMerger;
+import com.dashk.availability.utils.TimeRangeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consolidation of a single rep's parsed time ranges, per call
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergerBenchmark {
+    private static final int NUM_INPUTS = 1024;
+
+    @Param({ "1", "5", "20" })
+    public int rangesPerRep;
+
+    private List<TimeRange>[] parsedAvailabilities;
+    private int next;
+
+    @Setup
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void setUp() throws AvailabilityException {
+        Random random = new Random(BenchmarkData.SEED);
+        parsedAvailabilities = new List[NUM_INPUTS];
+
+        for (int i = 0; i < NUM_INPUTS; ++i) {
+            parsedAvailabilities[i] = TimeRangeParser.parse(BenchmarkData.randomAvailability(random, rangesPerRep));
+        }
+    }
+
+    @Benchmark
+    public List<TimeRange> timeRangeMergerMerge() {
+        return TimeRangeMerger.merge(parsedAvailabilities[nextIndex()]);
+    }
+
+    @Benchmark
+    public PackedAvailability packedAvailabilityFromTimeRanges() {
+        return PackedAvailability.fromTimeRanges(parsedAvailabilities[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (NUM_INPUTS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,80 @@
+package com.dashk.availability.benchmarks;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.TimeRange;
+import com.dashk.availability.utils.FastTimeRangeParser;
+import com.dashk.availability.utils.TimeParser;
+import com.dashk.availability.utils.TimeRangeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a single availability string (or time), per call
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private static final int NUM_INPUTS = 1024;
+
+    @Param({ "1", "5", "20" })
+    public int rangesPerRep;
+
+    private String[] availabilities;
+    private String[] times;
+    private final FastTimeRangeParser parser = new FastTimeRangeParser();
+    private final long[] words = new long[PackedAvailability.WORD_COUNT];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        availabilities = new String[NUM_INPUTS];
+        times = new String[NUM_INPUTS];
+
+        for (int i = 0; i < NUM_INPUTS; ++i) {
+            availabilities[i] = BenchmarkData.randomAvailability(random, rangesPerRep);
+            times[i] = BenchmarkData.formatTime(2 + random.nextInt(46));
+        }
+    }
+
+    @Benchmark
+    public int timeParserConvertToNumericTime() {
+        return TimeParser.convertToNumericTime(times[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<TimeRange> timeRangeParserParse() throws AvailabilityException {
+        return TimeRangeParser.parse(availabilities[nextIndex()]);
+    }
+
+    @Benchmark
+    public long[] fastTimeRangeParserParseInto() {
+        Arrays.fill(words, 0);
+        parser.parseInto(availabilities[nextIndex()], words);
+        return words;
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (NUM_INPUTS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dashk.availability.benchmarks;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.utils.AvailabilityFinder;
+import com.dashk.availability.utils.AvailabilityIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searching a roster of reps for a query, per query (or per rep, for isAvailable)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xms8g", "-Xmx8g" })
+public class SearchBenchmark {
+    private static final int NUM_QUERIES = 256;
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int repCount;
+
+    @Param({ "1", "5", "20" })
+    public int rangesPerRep;
+
+    /**
+     * Number of consecutive half hour slots in the query, from 1 slot to the whole week
+     */
+    @Param({ "1", "8", "48", "240" })
+    public int queryWidth;
+
+    private List<SalesDevelopmentRepresentative> salesReps;
+    private AvailabilityIndex index;
+    private PackedAvailability[] queries;
+    private int nextQuery;
+    private int nextRep;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AvailabilityException {
+        salesReps = BenchmarkData.randomSalesReps(repCount, rangesPerRep);
+        index = AvailabilityIndex.build(salesReps);
+
+        Random random = new Random(BenchmarkData.SEED);
+        queries = new PackedAvailability[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; ++i) {
+            queries[i] = BenchmarkData.randomQuery(random, queryWidth);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean salesRepIsAvailable() {
+        nextRep = (nextRep + 1) % repCount;
+        return salesReps.get(nextRep).isAvailable(nextQuery());
+    }
+
+    @Benchmark
+    public List<SalesDevelopmentRepresentative> availabilityFinderFind() {
+        return AvailabilityFinder.find(nextQuery(), salesReps);
+    }
+
+    @Benchmark
+    public List<SalesDevelopmentRepresentative> availabilityIndexFind() {
+        return index.find(nextQuery());
+    }
+
+    private PackedAvailability nextQuery() {
+        nextQuery = (nextQuery + 1) & (NUM_QUERIES - 1);
+        return queries[nextQuery];
+    }
+}
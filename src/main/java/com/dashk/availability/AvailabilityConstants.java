@@ -6,4 +6,7 @@ package com.dashk.availability;
 public class AvailabilityConstants {
     public static final int NUMBER_OF_DAYS = 5;    // Monday through Friday
     public static final int NUMBER_OF_SLOTS_PER_DAY = 24 * 2;  // 24 hours, each hour has 2 slots
+    public static final int MINUTES_PER_SLOT = 30;
+    public static final int MAX_NUMBER_OF_DAYS = 7;    // Monday through Sunday
+    public static final int MINUTES_PER_DAY = 24 * 60;
 }
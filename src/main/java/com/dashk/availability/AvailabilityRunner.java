@@ -1,19 +1,41 @@
 package com.dashk.availability;
 
 import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.IntervalAvailability;
+import com.dashk.availability.models.PackedAvailability;
 import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.models.SalesRepCoverage;
+import com.dashk.availability.models.SlotGrid;
 import com.dashk.availability.models.TimeRange;
-import com.dashk.availability.utils.AvailabilityFinder;
-import com.dashk.availability.utils.TimeRangeMerger;
-import com.dashk.availability.utils.TimeRangeParser;
-import com.dashk.availability.utils.CsvFileReader;
-import org.apache.commons.csv.CSVRecord;
+import com.dashk.availability.utils.AvailabilityFileWatcher;
+import com.dashk.availability.utils.AvailabilityHeatmap;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.AvailabilitySnapshot;
+import com.dashk.availability.utils.FastTimeRangeParser;
+import com.dashk.availability.utils.IntervalAvailabilityIndex;
+import com.dashk.availability.utils.ParallelSalesRepLoader;
+import com.dashk.availability.utils.PipelineMetrics;
+import com.dashk.availability.utils.RejectedRowReport;
+import com.dashk.availability.utils.SalesRepLoader;
+import com.dashk.availability.utils.SearchResultCache;
+import com.dashk.availability.utils.TimeSlotConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AvailabilityRunner {
     private static final Logger logger = LogManager.getLogger();
@@ -22,98 +44,577 @@ public class AvailabilityRunner {
     public static final int AVAILABILITY_FILE_PATH_COMMAND_LINE_INDEX = 0;
     public static final int SEARCH_TIME_RANGE_COMMAND_LINE_INDEX = 1;
 
-    public static void main(String[] args) throws IOException, AvailabilityException {
-        assertValidArguments(args);
+    public static final String STATS_OPTION = "stats";
+    public static final String COMPILE_OPTION = "compile";
+    public static final String SERVE_OPTION = "serve";
+    public static final String THREADS_OPTION = "threads";
+    public static final String WATCH_OPTION = "watch";
+    public static final String BIND_OPTION = "bind";
+    public static final String BATCH_OPTION = "batch";
+    public static final String STANDARD_INPUT = "-";
+    public static final String CACHE_SIZE_OPTION = "cache-size";
+    public static final String COUNT_OPTION = "count";
+    public static final String LIMIT_OPTION = "limit";
+    public static final String TOP_OPTION = "top";
+    public static final String HEATMAP_OPTION = "heatmap";
+    public static final String EMAILS_OPTION = "emails";
+    public static final String DAYS_OPTION = "days";
+    public static final String SLOT_MINUTES_OPTION = "slot-minutes";
+    public static final String SHARDS_OPTION = "shards";
+    public static final String SHARD_TIMEOUT_OPTION = "shard-timeout";
+    public static final long DEFAULT_SHARD_TIMEOUT_MILLIS = 10000;
+    public static final String MAX_ERROR_RATE_OPTION = "max-error-rate";
+    public static final String REJECTS_OPTION = "rejects";
+    private static final int MAX_PRINTED_REJECTED_ROWS = 10;
 
-        String dataFilePath = args[AVAILABILITY_FILE_PATH_COMMAND_LINE_INDEX];
-        String timeSlotsInput = args[SEARCH_TIME_RANGE_COMMAND_LINE_INDEX];
+    public static void main(String[] args) throws IOException, AvailabilityException, InterruptedException {
+        CommandLineArguments arguments = new CommandLineArguments(args);
+        assertValidArguments(arguments);
+
+        String dataFilePath = arguments.get(AVAILABILITY_FILE_PATH_COMMAND_LINE_INDEX);
+        RejectedRowReport rejects = createRejectedRowReport(arguments);
+
+        // Every mode can report where load & query time goes, long running ones (serve, batch) most of all. Timing is
+        // only on with --stats, or once enabled over JMX.
+        PipelineMetrics.getInstance().register();
+        PipelineMetrics.getInstance().setEnabled(arguments.hasOption(STATS_OPTION));
+
+        if (arguments.hasOption(COMPILE_OPTION)) {
+            compile(dataFilePath, arguments.getOption(COMPILE_OPTION, null), rejects);
+            return;
+        }
+
+        if (arguments.hasOption(SERVE_OPTION)) {
+            String bindAddress = arguments.getOption(BIND_OPTION, null);
+            serve(dataFilePath,
+                    bindAddress != null ? InetAddress.getByName(bindAddress) : InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(arguments.getOption(SERVE_OPTION, null)),
+                    Integer.parseInt(arguments.getOption(THREADS_OPTION, String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    arguments.hasOption(WATCH_OPTION),
+                    createCache(arguments),
+                    rejects);
+            return;
+        }
+
+        if (arguments.hasOption(BATCH_OPTION)) {
+            batch(dataFilePath, arguments.getOption(BATCH_OPTION, null),
+                    Integer.parseInt(arguments.getOption(THREADS_OPTION, String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    createCache(arguments),
+                    rejects);
+
+            if (arguments.hasOption(STATS_OPTION)) {
+                System.out.print(PipelineMetrics.getInstance().getReport());
+            }
+            return;
+        }
+
+        if (arguments.hasOption(HEATMAP_OPTION)) {
+            heatmap(dataFilePath, Integer.parseInt(arguments.getOption(HEATMAP_OPTION, null)), arguments.getOption(EMAILS_OPTION, null), rejects);
+            return;
+        }
+
+        String timeSlotsInput = arguments.get(SEARCH_TIME_RANGE_COMMAND_LINE_INDEX);
+        SlotGrid grid = new SlotGrid(
+                Integer.parseInt(arguments.getOption(DAYS_OPTION, String.valueOf(AvailabilityConstants.NUMBER_OF_DAYS))),
+                Integer.parseInt(arguments.getOption(SLOT_MINUTES_OPTION, String.valueOf(AvailabilityConstants.MINUTES_PER_SLOT)))
+        );
+
+        if (arguments.hasOption(SHARDS_OPTION)) {
+            searchShards(dataFilePath, Integer.parseInt(arguments.getOption(SHARDS_OPTION, null)),
+                    Long.parseLong(arguments.getOption(SHARD_TIMEOUT_OPTION, String.valueOf(DEFAULT_SHARD_TIMEOUT_MILLIS))),
+                    timeSlotsInput,
+                    arguments.hasOption(COUNT_OPTION),
+                    Integer.parseInt(arguments.getOption(LIMIT_OPTION, String.valueOf(Integer.MAX_VALUE))));
+            return;
+        }
+
+        if (!grid.equals(SlotGrid.DEFAULT)) {
+            searchOnGrid(dataFilePath, grid, timeSlotsInput,
+                    arguments.hasOption(COUNT_OPTION),
+                    Integer.parseInt(arguments.getOption(LIMIT_OPTION, String.valueOf(Integer.MAX_VALUE))),
+                    rejects);
+            return;
+        }
 
         System.out.println(String.format("Searching available for %s", timeSlotsInput));
 
-        List<SalesDevelopmentRepresentative> availableSalesReps = findAvailableSalesRep(dataFilePath, timeSlotsInput);
+        logger.info("Extract Sales Rep availability info");
+        AvailabilityIndex index = extractSalesRepAvailabilityInfo(dataFilePath, rejects);
+
+        if (arguments.hasOption(COUNT_OPTION)) {
+            System.out.println(String.format("Avilable Reps: %d", countAvailableSalesRep(index, timeSlotsInput)));
+        } else {
+            int limit = Integer.parseInt(arguments.getOption(LIMIT_OPTION, String.valueOf(Integer.MAX_VALUE)));
+            List<SalesDevelopmentRepresentative> availableSalesReps = findAvailableSalesRep(index, timeSlotsInput, limit);
 
-        System.out.println(String.format("Avilable Reps: %d", availableSalesReps.size()));
-        for (SalesDevelopmentRepresentative salesRep : availableSalesReps) {
-            System.out.println(salesRep.getEmail());
+            System.out.println(String.format("Avilable Reps: %d", availableSalesReps.size()));
+            for (SalesDevelopmentRepresentative salesRep : availableSalesReps) {
+                System.out.println(salesRep.getEmail());
+            }
+
+            if (availableSalesReps.isEmpty() && arguments.hasOption(TOP_OPTION)) {
+                int k = Integer.parseInt(arguments.getOption(TOP_OPTION, null));
+                System.out.print(formatClosestSalesRep(findClosestSalesRep(index, timeSlotsInput, k), timeSlotsInput));
+            }
+        }
+
+        if (arguments.hasOption(STATS_OPTION)) {
+            System.out.print(PipelineMetrics.getInstance().getReport());
         }
     }
 
     /**
      * Simple argument validation
      *
-     * @param args
+     * @param arguments
      */
-    private static void assertValidArguments(String[] args) {
-        if (args.length != 2) {
-            System.out.println("Usage: java -jar <path to jar> <path to CSV file> \"<search term>\"");
+    private static void assertValidArguments(CommandLineArguments arguments) {
+        boolean isSingleFile = arguments.hasOption(COMPILE_OPTION) || arguments.hasOption(SERVE_OPTION) || arguments.hasOption(BATCH_OPTION)
+                || arguments.hasOption(HEATMAP_OPTION);
+        if (arguments.size() != (isSingleFile ? 1 : 2)
+                || (arguments.hasOption(COMPILE_OPTION) && arguments.getOption(COMPILE_OPTION, null) == null)
+                || !isPositiveInteger(arguments, SERVE_OPTION)
+                || !isPositiveInteger(arguments, THREADS_OPTION)
+                || !isInteger(arguments, CACHE_SIZE_OPTION, 0)
+                || (arguments.hasOption(BIND_OPTION) && (!arguments.hasOption(SERVE_OPTION) || arguments.getOption(BIND_OPTION, null) == null))
+                || (arguments.hasOption(BATCH_OPTION) && arguments.getOption(BATCH_OPTION, null) == null)
+                || !isPositiveInteger(arguments, LIMIT_OPTION)
+                || !isPositiveInteger(arguments, TOP_OPTION)
+                || !isPositiveInteger(arguments, HEATMAP_OPTION)
+                || (isSingleFile && (arguments.hasOption(DAYS_OPTION) || arguments.hasOption(SLOT_MINUTES_OPTION)))
+                || (arguments.hasOption(SHARDS_OPTION) && (isSingleFile || !isPositiveInteger(arguments, SHARDS_OPTION)))
+                || (arguments.hasOption(SHARDS_OPTION) && (arguments.hasOption(DAYS_OPTION) || arguments.hasOption(SLOT_MINUTES_OPTION)))
+                || (arguments.hasOption(MAX_ERROR_RATE_OPTION) && arguments.getOption(MAX_ERROR_RATE_OPTION, null) == null)
+                || (arguments.hasOption(REJECTS_OPTION) && arguments.getOption(REJECTS_OPTION, null) == null)
+                || (arguments.hasOption(SHARDS_OPTION) && (arguments.hasOption(MAX_ERROR_RATE_OPTION) || arguments.hasOption(REJECTS_OPTION)))
+                || (arguments.hasOption(WATCH_OPTION) && (arguments.hasOption(MAX_ERROR_RATE_OPTION) || arguments.hasOption(REJECTS_OPTION)))) {
+            System.out.println("Usage: java -jar <path to jar> <path to CSV or snapshot file> \"<search term>\" [--count | --limit=<count>] [--top=<count>] [--stats]");
+            System.out.println("       java -jar <path to jar> <path to CSV file> \"<search term>\" --days=<5 or 7> --slot-minutes=<minutes> [--count | --limit=<count>]");
+            System.out.println("       java -jar <path to jar> <path to CSV file> \"<search term>\" --shards=<count> [--shard-timeout=<milliseconds>] [--count | --limit=<count>]");
+            System.out.println("       java -jar <path to jar> <path to CSV file> --compile=<path to snapshot file>");
+            System.out.println("       java -jar <path to jar> <path to CSV or snapshot file> --serve=<port> [--bind=<address>] [--threads=<count>] [--watch] [--cache-size=<count>]");
+            System.out.println("       java -jar <path to jar> <path to CSV or snapshot file> --batch=<path to search terms file, or - for stdin> [--threads=<count>] [--cache-size=<count>] [--stats]");
+            System.out.println("       java -jar <path to jar> <path to CSV or snapshot file> --heatmap=<minimum reps> [--emails=<email>,<email>,...]");
+            System.out.println("Loading a CSV file also takes [--max-error-rate=<0 ... 1>] [--rejects=<path to rejected rows file>] to skip invalid rows, except with --shards or --watch");
             System.exit(1);
         }
     }
 
-    /****************************** ENTRY POINT - START ******************************/
+    /**
+     * Checks that given option, if present, has a value that is a positive integer, e.g. --limit=10
+     *
+     * @param arguments
+     * @param option
+     * @return
+     */
+    private static boolean isPositiveInteger(CommandLineArguments arguments, String option) {
+        return isInteger(arguments, option, 1);
+    }
 
     /**
-     * Finds available sales rep
+     * Checks that given option, if present, has a value that is an integer of at least minimum, e.g. --cache-size=0
      *
-     * @param availabilityDataFilePath
-     * @param searchTime
+     * @param arguments
+     * @param option
+     * @param minimum
      * @return
+     */
+    private static boolean isInteger(CommandLineArguments arguments, String option, int minimum) {
+        if (!arguments.hasOption(option)) {
+            return true;
+        }
+
+        String value = arguments.getOption(option, null);
+        try {
+            return value != null && Integer.parseInt(value) >= minimum;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the report of rows to skip while loading, if --max-error-rate or --rejects is given. --rejects alone
+     * allows no invalid row, but still lists the first RejectedRowReport.DEFAULT_MAX_KEPT_ROWS of them, and counts the
+     * rest, before failing.
+     *
+     * @param arguments
+     * @return null to fail on the first invalid row
+     */
+    private static RejectedRowReport createRejectedRowReport(CommandLineArguments arguments) {
+        if (!arguments.hasOption(MAX_ERROR_RATE_OPTION) && !arguments.hasOption(REJECTS_OPTION)) {
+            return null;
+        }
+
+        return new RejectedRowReport(
+                Double.parseDouble(arguments.getOption(MAX_ERROR_RATE_OPTION, "0")),
+                RejectedRowReport.DEFAULT_MAX_KEPT_ROWS,
+                arguments.getOption(REJECTS_OPTION, null)
+        );
+    }
+
+    /**
+     * Loads given CSV file, and writes it out as a snapshot (See AvailabilitySnapshot)
+     *
+     * @param dataFilePath
+     * @param snapshotFilePath
+     * @param rejects null to fail on the first invalid row
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    private static void compile(String dataFilePath, String snapshotFilePath, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        AvailabilityIndex index = ParallelSalesRepLoader.load(dataFilePath, rejects);
+        printRejectedRows(rejects);
+        AvailabilitySnapshot.write(index, snapshotFilePath);
+
+        System.out.println(String.format("Compiled %d reps into %s", index.size(), snapshotFilePath));
+    }
+
+    /**
+     * Creates the search result cache for server & batch modes, sized by --cache-size
+     *
+     * @param arguments
+     * @return null if --cache-size=0, so searches go straight to the index
+     */
+    private static SearchResultCache createCache(CommandLineArguments arguments) {
+        int maxEntries = Integer.parseInt(arguments.getOption(CACHE_SIZE_OPTION, String.valueOf(SearchResultCache.DEFAULT_MAX_ENTRIES)));
+        if (maxEntries == 0) {
+            return null;
+        }
+
+        return new SearchResultCache(maxEntries, SearchResultCache.DEFAULT_MAX_REPS);
+    }
+
+    /**
+     * Loads given data file once, and serves searches over HTTP until the process is stopped (See AvailabilityServer)
+     *
+     * @param dataFilePath
+     * @param bindAddress Address to listen on, the loopback interface unless asked otherwise
+     * @param port
+     * @param numThreads
+     * @param isWatching true to reload the data whenever the file changes (CSV only, See AvailabilityFileWatcher)
+     * @param cache null to always search the index
+     * @param rejects null to fail on the first invalid row. Must be null when watching, which reloads strictly.
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    private static void serve(String dataFilePath, InetAddress bindAddress, int port, int numThreads, boolean isWatching, SearchResultCache cache, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        final AvailabilityServer server;
+        if (isWatching) {
+            if (AvailabilitySnapshot.isSnapshot(dataFilePath)) {
+                throw new AvailabilityException(String.format("Only CSV files can be watched, but %s is a snapshot", dataFilePath));
+            }
+
+            AvailabilityFileWatcher watcher = new AvailabilityFileWatcher(dataFilePath);
+            watcher.start();
+            server = new AvailabilityServer(watcher, cache);
+        } else {
+            server = new AvailabilityServer(extractSalesRepAvailabilityInfo(dataFilePath, rejects), cache);
+        }
+
+        server.start(bindAddress, port, numThreads);
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                server.stop();
+            }
+        });
+
+        System.out.println(String.format("Serving on http://localhost:%d%s?%s=<search term>",
+                server.getPort(), AvailabilityServer.AVAILABILITY_PATH, AvailabilityServer.SEARCH_PARAMETER));
+    }
+
+    /**
+     * Loads given data file once, and runs every search in given file, one per line (See BatchSearch)
+     *
+     * @param dataFilePath
+     * @param searchFilePath Path to the search terms, or STANDARD_INPUT
+     * @param numThreads
+     * @param cache null to always search the index
+     * @param rejects null to fail on the first invalid row
+     * @throws IOException
      * @throws AvailabilityException
+     * @throws InterruptedException
+     */
+    private static void batch(String dataFilePath, String searchFilePath, int numThreads, SearchResultCache cache, RejectedRowReport rejects) throws IOException, AvailabilityException, InterruptedException {
+        AvailabilityIndex index = extractSalesRepAvailabilityInfo(dataFilePath, rejects);
+
+        InputStream inputStream = STANDARD_INPUT.equals(searchFilePath) ? System.in : new FileInputStream(searchFilePath);
+        BufferedReader input = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        PrintWriter output = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        try {
+            BatchSearch batchSearch = new BatchSearch(index, cache, executor);
+            batchSearch.run(input, output);
+            logger.info("Ran {} searches for {} lines, {} cache hits", batchSearch.getNumSearches(), batchSearch.getNumLines(), cache != null ? cache.getHitCount() : 0);
+        } finally {
+            executor.shutdown();
+            input.close();
+        }
+    }
+
+    /**
+     * Loads given data file, and prints the time ranges in which at least minReps reps are available (See
+     * AvailabilityHeatmap)
+     *
+     * @param dataFilePath
+     * @param minReps
+     * @param emails Comma separated emails of the reps to count, or null for every rep
+     * @param rejects null to fail on the first invalid row
      * @throws IOException
+     * @throws AvailabilityException
      */
-    private static List<SalesDevelopmentRepresentative> findAvailableSalesRep(String availabilityDataFilePath, String searchTime) throws AvailabilityException, IOException {
-        logger.info("Extract Sales Rep availability info");
-        List<SalesDevelopmentRepresentative> salesReps = extractSalesRepAvailabilityInfo(availabilityDataFilePath);
+    private static void heatmap(String dataFilePath, int minReps, String emails, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        AvailabilityIndex index = extractSalesRepAvailabilityInfo(dataFilePath, rejects);
+        AvailabilityHeatmap heatmap = emails == null
+                ? AvailabilityHeatmap.of(index)
+                : AvailabilityHeatmap.of(index, Arrays.asList(emails.split(",")));
+
+        List<TimeRange> timeRanges = heatmap.findTimeRanges(minReps);
+        System.out.println(String.format("Time Ranges with at least %d reps: %d", minReps, timeRanges.size()));
+        for (TimeRange timeRange : timeRanges) {
+            System.out.println(TimeSlotConverter.formatTimeRange(timeRange));
+        }
+    }
+
+    /**
+     * Loads given CSV file on given grid, and prints the reps available in every slot of given search time, the same
+     * way the default grid does
+     *
+     * @param dataFilePath
+     * @param grid
+     * @param searchTime
+     * @param isCountOnly
+     * @param limit
+     * @param rejects null to fail on the first invalid row
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    private static void searchOnGrid(String dataFilePath, SlotGrid grid, String searchTime, boolean isCountOnly, int limit, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        if (AvailabilitySnapshot.isSnapshot(dataFilePath)) {
+            throw new AvailabilityException(String.format("Snapshots only hold %s, but %s is requested", SlotGrid.DEFAULT, grid));
+        }
+
+        System.out.println(String.format("Searching available for %s", searchTime));
+
+        IntervalAvailabilityIndex index = SalesRepLoader.load(dataFilePath, grid, rejects);
+        printRejectedRows(rejects);
+        IntervalAvailability timeSlots = FastTimeRangeParser.parseIntervals(searchTime, grid);
+
+        if (isCountOnly) {
+            System.out.println(String.format("Avilable Reps: %d", index.count(timeSlots)));
+            return;
+        }
+
+        List<String> emails = index.findFirst(timeSlots, limit);
+        System.out.println(String.format("Avilable Reps: %d", emails.size()));
+        for (String email : emails) {
+            System.out.println(email);
+        }
+    }
+
+    /**
+     * Starts one local worker process per shard of given CSV file, runs given search across them, and prints the
+     * merged results the same way a single process does (See ShardLauncher & ShardCoordinator)
+     *
+     * @param dataFilePath
+     * @param numShards
+     * @param timeoutMillis Time each shard has to answer
+     * @param searchTime
+     * @param isCountOnly
+     * @param limit
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    private static void searchShards(String dataFilePath, int numShards, long timeoutMillis, String searchTime, boolean isCountOnly, int limit) throws IOException, AvailabilityException {
+        System.out.println(String.format("Searching available for %s", searchTime));
+
+        int threadsPerShard = Math.max(1, Runtime.getRuntime().availableProcessors() / numShards);
+        ShardLauncher launcher = ShardLauncher.start(dataFilePath, numShards, threadsPerShard);
+        ShardCoordinator coordinator = new ShardCoordinator(launcher.getWorkers(), timeoutMillis);
+
+        try {
+            if (isCountOnly) {
+                System.out.println(String.format("Avilable Reps: %d", coordinator.count(searchTime)));
+                return;
+            }
+
+            List<String> emails = coordinator.find(searchTime, limit);
+            System.out.println(String.format("Avilable Reps: %d", emails.size()));
+            for (String email : emails) {
+                System.out.println(email);
+            }
+        } finally {
+            coordinator.close();
+            launcher.close();
+        }
+    }
+
+    /****************************** ENTRY POINT - START ******************************/
+
+    /**
+     * Finds up to limit available sales rep in given index, in file order. The search stops once limit reps are found.
+     * Safe to call from several threads at once.
+     *
+     * @param index
+     * @param searchTime
+     * @param limit
+     * @return
+     * @throws IllegalArgumentException if the search time is invalid, or limit is not positive
+     */
+    static List<SalesDevelopmentRepresentative> findAvailableSalesRep(AvailabilityIndex index, String searchTime, int limit) {
+        assertPositive("Limit", limit);
 
         logger.info("Extract search target");
-        List<TimeRange> timeSlots = TimeRangeParser.parse(searchTime);
+        PackedAvailability timeSlots = FastTimeRangeParser.parse(searchTime);
+
+        logger.info("Search for first {} available Sales Rep", limit);
+        return index.findFirst(timeSlots, limit);
+    }
+
+    /**
+     * Counts available sales rep in given index. Safe to call from several threads at once.
+     *
+     * @param index
+     * @param searchTime
+     * @return
+     * @throws IllegalArgumentException if the search time is invalid
+     */
+    static int countAvailableSalesRep(AvailabilityIndex index, String searchTime) {
+        logger.info("Extract search target");
+        PackedAvailability timeSlots = FastTimeRangeParser.parse(searchTime);
+
+        logger.info("Count available Sales Rep");
+        return index.count(timeSlots);
+    }
+
+    /**
+     * Finds available sales rep in given index, going through given cache first. Safe to call from several threads
+     * at once.
+     *
+     * @param index
+     * @param cache null to always search the index
+     * @param searchTime
+     * @return
+     * @throws IllegalArgumentException if the search time is invalid
+     */
+    static List<SalesDevelopmentRepresentative> findAvailableSalesRep(AvailabilityIndex index, SearchResultCache cache, String searchTime) {
+        logger.info("Extract search target");
+        PackedAvailability timeSlots = FastTimeRangeParser.parse(searchTime);
+
+        if (cache != null) {
+            logger.info("Search for available Sales Rep, through the cache");
+            return cache.find(index, timeSlots);
+        }
 
         logger.info("Search for available Sales Rep");
-        List<SalesDevelopmentRepresentative> availableSalesReps = salesReps;
 
-        // Keep iterating until we find all Sales Rep that can cover all timeslots in the input
-        for (TimeRange timeSlot : timeSlots) {
-            availableSalesReps = AvailabilityFinder.find(timeSlot, availableSalesReps);
+        // Sales Rep must cover all timeslots in the input, so intersect the reps available in each of them
+        return index.find(timeSlots);
+    }
+
+    /**
+     * Finds the k sales reps available in the most slots of given search time, for when nobody is available in all of
+     * them (See AvailabilityIndex.findTopByCoverage). Safe to call from several threads at once.
+     *
+     * @param index
+     * @param searchTime
+     * @param k
+     * @return
+     * @throws IllegalArgumentException if the search time is invalid, or k is not positive
+     */
+    static List<SalesRepCoverage> findClosestSalesRep(AvailabilityIndex index, String searchTime, int k) {
+        assertPositive("Top", k);
+
+        logger.info("Extract search target");
+        PackedAvailability timeSlots = FastTimeRangeParser.parse(searchTime);
+
+        logger.info("Rank top {} Sales Rep by covered slots", k);
+        return index.findTopByCoverage(timeSlots, k);
+    }
+
+    /**
+     * Checks that given count of reps to return, e.g. a limit, is at least 1
+     *
+     * @param name
+     * @param count
+     * @throws IllegalArgumentException if it is not
+     */
+    static void assertPositive(String name, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException(String.format("%s must be a positive integer, got %d", name, count));
         }
+    }
 
-        return availableSalesReps;
+    /**
+     * Formats given closest sales reps, e.g. "Closest Reps: 1" followed by "a@b.com (3 of 4 slots)"
+     *
+     * @param closestSalesReps
+     * @param searchTime
+     * @return
+     */
+    static String formatClosestSalesRep(List<SalesRepCoverage> closestSalesReps, String searchTime) {
+        int numSlots = FastTimeRangeParser.parse(searchTime).cardinality();
+        StringBuilder output = new StringBuilder();
+
+        output.append(String.format("Closest Reps: %d%n", closestSalesReps.size()));
+        for (SalesRepCoverage coverage : closestSalesReps) {
+            output.append(String.format("%s (%d of %d slots)%n", coverage.getSalesRep().getEmail(), coverage.getCoveredSlots(), numSlots));
+        }
+
+        return output.toString();
     }
 
     /****************************** ENTRY POINT - END ******************************/
 
     /**
-     * Extracts sales rep's availability info from given data file
+     * Extracts sales rep's availability info from given data file, either a CSV or a snapshot
      *
      * @param dataFilePath
      * @return
      * @throws IOException
      * @throws AvailabilityException
      */
-    private static List<SalesDevelopmentRepresentative> extractSalesRepAvailabilityInfo(String dataFilePath) throws IOException, AvailabilityException {
-        List<SalesDevelopmentRepresentative> salesReps;
-        logger.debug(String.format("Read content from %s", dataFilePath));
-
-        List<CSVRecord> records = CsvFileReader.parseAllLines(dataFilePath);
+    static AvailabilityIndex extractSalesRepAvailabilityInfo(String dataFilePath) throws IOException, AvailabilityException {
+        return extractSalesRepAvailabilityInfo(dataFilePath, null);
+    }
 
-        int numRecords = records.size();
-        logger.debug(String.format("Convert %d records into SalesRep objects", numRecords));
-        salesReps = new ArrayList<SalesDevelopmentRepresentative>(numRecords);
-        for (CSVRecord record : records) {
-            String email = record.get(EMAIL_CSV_INDEX);
-            String rawAvailability = record.get(AVAILABILITY_CSV_INDEX);
+    /**
+     * Same as extractSalesRepAvailabilityInfo(dataFilePath), but invalid rows of a CSV are skipped & recorded in given
+     * report. Snapshots only hold valid rows, so they have none to skip.
+     *
+     * @param dataFilePath
+     * @param rejects null to fail on the first invalid row
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException if the report's error rate is exceeded
+     */
+    private static AvailabilityIndex extractSalesRepAvailabilityInfo(String dataFilePath, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        if (AvailabilitySnapshot.isSnapshot(dataFilePath)) {
+            return AvailabilitySnapshot.load(dataFilePath);
+        }
 
-            logger.debug(String.format("Convert %s, %s", email, rawAvailability));
-            List<TimeRange> availability = TimeRangeParser.parse(rawAvailability);
+        AvailabilityIndex index = ParallelSalesRepLoader.load(dataFilePath, rejects);
+        printRejectedRows(rejects);
 
-            logger.debug(String.format("Consolidate %d ranges", availability.size()));
-            availability = TimeRangeMerger.merge(availability);
+        return index;
+    }
 
-            logger.debug(String.format("Add sales rep %s with %d ranges", email, availability.size()));
-            salesReps.add(
-                new SalesDevelopmentRepresentative(email, availability)
-            );
+    /**
+     * Prints how many rows were skipped & the first few of them to stderr, so the search output is left as is
+     *
+     * @param rejects
+     */
+    private static void printRejectedRows(RejectedRowReport rejects) {
+        if (rejects == null || rejects.getRejectedCount() == 0) {
+            return;
         }
 
-        return salesReps;
+        System.err.println(String.format("Skipped %d of %d records", rejects.getRejectedCount(), rejects.getRecordCount()));
+        List<RejectedRowReport.RejectedRow> rows = rejects.getRejectedRows();
+        for (int i = 0; i < Math.min(rows.size(), MAX_PRINTED_REJECTED_ROWS); ++i) {
+            System.err.println(String.format("  %s", rows.get(i)));
+        }
     }
 }
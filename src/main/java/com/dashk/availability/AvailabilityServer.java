@@ -0,0 +1,275 @@
+package com.dashk.availability;
+
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.models.SalesRepCoverage;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.SearchResultCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Serves searches over HTTP against an index that is loaded once.
+ *
+ * GET /availability?search=Mon%2010:00%20am%20-%2011:00%20am[&count | &limit=<count>][&top=<count>]
+ *   200 => Same output as the CLI, i.e. "Avilable Reps: <count>" followed by one email per line. With count, only the
+ *          first line. With limit, at most that many reps, the first ones in file order. With top, if nobody is
+ *          available, the reps available in the most slots follow.
+ *   400 => Search string is invalid, with the reason
+ *
+ * An index is never modified once built, so requests share it without locking. Each request searches the latest index
+ * at the time it arrives (See AvailabilityFileWatcher), and keeps using it until it responds. Requests are handled on
+ * a fixed pool of worker threads, since a search is CPU bound & short. Results go through a SearchResultCache, which
+ * drops them as soon as a newer index is searched.
+ *
+ * Requests are not authenticated, so the server only listens on the loopback interface unless given another address
+ * to bind.
+ */
+public class AvailabilityServer {
+    private static final Logger logger = LogManager.getLogger();
+    public static final String AVAILABILITY_PATH = "/availability";
+    public static final String SEARCH_PARAMETER = "search";
+    public static final String COUNT_PARAMETER = "count";
+    public static final String LIMIT_PARAMETER = "limit";
+    public static final String TOP_PARAMETER = "top";
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final Supplier<AvailabilityIndex> indexSupplier;
+    private final SearchResultCache cache;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Serves given index, as is
+     *
+     * @param index
+     * @param cache null to always search the index
+     */
+    public AvailabilityServer(final AvailabilityIndex index, SearchResultCache cache) {
+        this(new Supplier<AvailabilityIndex>() {
+            @Override
+            public AvailabilityIndex get() {
+                return index;
+            }
+        }, cache);
+    }
+
+    /**
+     * Serves whichever index given supplier returns at the time of each request
+     *
+     * @param indexSupplier
+     * @param cache null to always search the index
+     */
+    public AvailabilityServer(Supplier<AvailabilityIndex> indexSupplier, SearchResultCache cache) {
+        this.indexSupplier = indexSupplier;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cache searches go through
+     *
+     * @return null if searches go straight to the index
+     */
+    public SearchResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Starts listening on given port (0 picks a free one) of the loopback interface
+     *
+     * @param port
+     * @param numThreads Number of worker threads
+     * @throws IOException
+     */
+    public void start(int port, int numThreads) throws IOException {
+        start(InetAddress.getLoopbackAddress(), port, numThreads);
+    }
+
+    /**
+     * Starts listening on given address & port (0 picks a free one)
+     *
+     * @param bindAddress
+     * @param port
+     * @param numThreads Number of worker threads
+     * @throws IOException
+     */
+    public synchronized void start(InetAddress bindAddress, int port, int numThreads) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server is already started");
+        }
+
+        executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, String.format("availability-server-%d", count.incrementAndGet()));
+            }
+        });
+
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext(AVAILABILITY_PATH, new AvailabilityHandler());
+        server.setExecutor(executor);
+        server.start();
+
+        logger.info("Serving {} reps on port {}", indexSupplier.get().size(), getPort());
+    }
+
+    /**
+     * Stops accepting requests, and waits briefly for in-flight ones to finish
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * Returns the port the server listens on
+     *
+     * @return
+     */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Server is not started");
+        }
+
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the value of given parameter in given raw (URL encoded) query string, or null if it is not there
+     *
+     * @param rawQuery
+     * @param name
+     * @return
+     * @throws UnsupportedEncodingException
+     */
+    static String getQueryParameter(String rawQuery, String name) throws UnsupportedEncodingException {
+        if (rawQuery == null) {
+            return null;
+        }
+
+        for (String parameter : rawQuery.split("&")) {
+            int separatorIndex = parameter.indexOf('=');
+            String key = separatorIndex < 0 ? parameter : parameter.substring(0, separatorIndex);
+
+            if (URLDecoder.decode(key, "UTF-8").equals(name)) {
+                return separatorIndex < 0 ? "" : URLDecoder.decode(parameter.substring(separatorIndex + 1), "UTF-8");
+            }
+        }
+
+        return null;
+    }
+
+    static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        OutputStream output = exchange.getResponseBody();
+        try {
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Handles GET /availability
+     */
+    private class AvailabilityHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    respond(exchange, 405, String.format("Method %s is not allowed\n", exchange.getRequestMethod()));
+                    return;
+                }
+
+                String rawQuery = exchange.getRequestURI().getRawQuery();
+                String searchTime = getQueryParameter(rawQuery, SEARCH_PARAMETER);
+                if (searchTime == null) {
+                    respond(exchange, 400, String.format("Missing query parameter, %s\n", SEARCH_PARAMETER));
+                    return;
+                }
+
+                String limit = getQueryParameter(rawQuery, LIMIT_PARAMETER);
+                String top = getQueryParameter(rawQuery, TOP_PARAMETER);
+                AvailabilityIndex index = indexSupplier.get();
+                List<SalesDevelopmentRepresentative> availableSalesReps;
+                List<SalesRepCoverage> closestSalesReps = null;
+                try {
+                    // Checked up front, even though top is only used when nobody is available
+                    int k = top != null ? Integer.parseInt(top) : 0;
+                    if (top != null) {
+                        AvailabilityRunner.assertPositive("Top", k);
+                    }
+
+                    if (getQueryParameter(rawQuery, COUNT_PARAMETER) != null) {
+                        int count = AvailabilityRunner.countAvailableSalesRep(index, searchTime);
+                        respond(exchange, 200, String.format("Avilable Reps: %d\n", count));
+                        return;
+                    } else if (limit != null) {
+                        availableSalesReps = AvailabilityRunner.findAvailableSalesRep(index, searchTime, Integer.parseInt(limit));
+                    } else {
+                        availableSalesReps = AvailabilityRunner.findAvailableSalesRep(index, cache, searchTime);
+                    }
+
+                    if (availableSalesReps.isEmpty() && top != null) {
+                        closestSalesReps = AvailabilityRunner.findClosestSalesRep(index, searchTime, k);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Includes an invalid limit or top (NumberFormatException)
+                    respond(exchange, 400, String.format("%s\n", e.getMessage()));
+                    return;
+                }
+
+                StringBuilder body = new StringBuilder();
+                body.append(String.format("Avilable Reps: %d\n", availableSalesReps.size()));
+                for (SalesDevelopmentRepresentative salesRep : availableSalesReps) {
+                    body.append(salesRep.getEmail()).append('\n');
+                }
+                if (closestSalesReps != null) {
+                    body.append(AvailabilityRunner.formatClosestSalesRep(closestSalesReps, searchTime));
+                }
+
+                respond(exchange, 200, body.toString());
+            } catch (RuntimeException e) {
+                logger.error("Unable to handle {}", exchange.getRequestURI(), e);
+                respond(exchange, 500, "Internal error\n");
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
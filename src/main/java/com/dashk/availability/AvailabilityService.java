@@ -0,0 +1,418 @@
+package com.dashk.availability;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.FastTimeRangeParser;
+import com.dashk.availability.utils.SearchResultCache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking entry point for embedding the search engine, e.g. in a service running on event loop threads.
+ *
+ * Every call returns at once. Searches run on the given executor, and their results (or failures, e.g. an
+ * IllegalArgumentException for an invalid search time) complete the returned future. At most maxInFlight searches
+ * run or wait for the executor at any time; past that, calls fail right away with a RejectedExecutionException rather
+ * than queue up or block the caller, so the caller decides whether to retry, shed or degrade.
+ *
+ * Large results can be streamed instead (See stream). Reps are then created & handed over only as the subscriber asks
+ * for them, so a slow subscriber holds a compact array of ids rather than a list of reps.
+ *
+ * Usage:
+ *   AvailabilityService service = new AvailabilityService(index, null, executor, 64);
+ *   service.find("Mon 10:00 am - 11:00 am").thenAccept(...);
+ */
+public class AvailabilityService {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final Supplier<AvailabilityIndex> indexSupplier;
+    private final SearchResultCache cache;
+    private final Executor executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    /**
+     * Searches given index, as is
+     *
+     * @param index
+     * @param cache null to always search the index
+     * @param executor Runs the searches, and delivers streamed reps
+     * @param maxInFlight Maximum number of searches & open streams at any time
+     */
+    public AvailabilityService(final AvailabilityIndex index, SearchResultCache cache, Executor executor, int maxInFlight) {
+        this(new Supplier<AvailabilityIndex>() {
+            @Override
+            public AvailabilityIndex get() {
+                return index;
+            }
+        }, cache, executor, maxInFlight);
+    }
+
+    /**
+     * Searches whichever index given supplier returns at the time each search runs (e.g. an AvailabilityFileWatcher)
+     *
+     * @param indexSupplier
+     * @param cache null to always search the index
+     * @param executor Runs the searches, and delivers streamed reps
+     * @param maxInFlight Maximum number of searches & open streams at any time
+     */
+    public AvailabilityService(Supplier<AvailabilityIndex> indexSupplier, SearchResultCache cache, Executor executor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException(String.format("At least 1 search must be allowed in flight, got %d", maxInFlight));
+        }
+
+        this.indexSupplier = indexSupplier;
+        this.cache = cache;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Loads given data file (CSV or snapshot) on given executor, and completes with a service over it
+     *
+     * @param dataFilePath
+     * @param cache null to always search the index
+     * @param executor Loads the file, then runs the searches
+     * @param maxInFlight
+     * @return
+     */
+    public static CompletableFuture<AvailabilityService> load(final String dataFilePath, final SearchResultCache cache, final Executor executor, final int maxInFlight) {
+        final CompletableFuture<AvailabilityService> output = new CompletableFuture<AvailabilityService>();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    AvailabilityIndex index = AvailabilityRunner.extractSalesRepAvailabilityInfo(dataFilePath);
+                    output.complete(new AvailabilityService(index, cache, executor, maxInFlight));
+                } catch (IOException | AvailabilityException | RuntimeException e) {
+                    output.completeExceptionally(e);
+                }
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Returns sales reps who are available in every slot of given search time, in file order
+     *
+     * @param searchTime e.g. "Mon 10:00 am - 11:00 am"
+     * @return
+     */
+    public CompletableFuture<List<SalesDevelopmentRepresentative>> find(final String searchTime) {
+        return submit(new Search<List<SalesDevelopmentRepresentative>>() {
+            @Override
+            public List<SalesDevelopmentRepresentative> run(AvailabilityIndex index) {
+                return AvailabilityRunner.findAvailableSalesRep(index, cache, searchTime);
+            }
+        });
+    }
+
+    /**
+     * Returns up to limit sales reps who are available in every slot of given search time, the first ones in file order
+     *
+     * @param searchTime
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<List<SalesDevelopmentRepresentative>> findFirst(final String searchTime, final int limit) {
+        return submit(new Search<List<SalesDevelopmentRepresentative>>() {
+            @Override
+            public List<SalesDevelopmentRepresentative> run(AvailabilityIndex index) {
+                return AvailabilityRunner.findAvailableSalesRep(index, searchTime, limit);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of sales reps who are available in every slot of given search time
+     *
+     * @param searchTime
+     * @return
+     */
+    public CompletableFuture<Integer> count(final String searchTime) {
+        return submit(new Search<Integer>() {
+            @Override
+            public Integer run(AvailabilityIndex index) {
+                return AvailabilityRunner.countAvailableSalesRep(index, searchTime);
+            }
+        });
+    }
+
+    /**
+     * Streams sales reps who are available in every slot of given search time to given subscriber, in file order.
+     *
+     * The subscriber is handed a Subscription first (on the calling thread), and gets reps only as it requests them,
+     * on the executor, one call at a time. The stream counts against maxInFlight until it completes, fails or is
+     * cancelled. If the limit is reached, the subscriber gets onError(RejectedExecutionException) right away.
+     *
+     * @param searchTime
+     * @param subscriber
+     */
+    public void stream(String searchTime, ResultSubscriber subscriber) {
+        if (!inFlight.tryAcquire()) {
+            subscriber.onSubscribe(CANCELLED);
+            subscriber.onError(rejected());
+            return;
+        }
+
+        ResultStream stream = new ResultStream(searchTime, subscriber);
+        subscriber.onSubscribe(stream);
+        stream.schedule();
+    }
+
+    /**
+     * Returns the maximum number of searches & open streams at any time
+     *
+     * @return
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Returns the number of searches & open streams right now
+     *
+     * @return
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    private <T> CompletableFuture<T> submit(final Search<T> search) {
+        final CompletableFuture<T> output = new CompletableFuture<T>();
+
+        if (!inFlight.tryAcquire()) {
+            output.completeExceptionally(rejected());
+            return output;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (!output.isDone()) {
+                            output.complete(search.run(indexSupplier.get()));
+                        }
+                    } catch (RuntimeException e) {
+                        output.completeExceptionally(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // e.g. the executor is shut down or its own queue is full
+            inFlight.release();
+            output.completeExceptionally(e);
+        }
+
+        return output;
+    }
+
+    private RejectedExecutionException rejected() {
+        return new RejectedExecutionException(String.format("%d searches are already in flight", maxInFlight));
+    }
+
+    private interface Search<T> {
+        T run(AvailabilityIndex index);
+    }
+
+    /**
+     * Receives the reps of a stream (See AvailabilityService.stream). Same contract as a Reactive Streams Subscriber,
+     * so it adapts directly to one: calls are never concurrent, nothing is delivered beyond what was requested, and
+     * onComplete or onError ends the stream.
+     */
+    public interface ResultSubscriber {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(SalesDevelopmentRepresentative salesRep);
+
+        void onError(Throwable error);
+
+        void onComplete();
+    }
+
+    /**
+     * Demand signalled by a ResultSubscriber. Both methods can be called from any thread, at any time.
+     */
+    public interface Subscription {
+        /**
+         * Asks for up to n more reps
+         *
+         * @param n Must be positive, Long.MAX_VALUE means unbounded
+         */
+        void request(long n);
+
+        /**
+         * Stops the stream. Reps already being delivered may still arrive.
+         */
+        void cancel();
+    }
+
+    private static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    /**
+     * A stream being delivered. The search runs on its first turn, then each turn delivers as many reps as were
+     * requested. Turns run on the executor, and never overlap (See schedule).
+     */
+    private class ResultStream implements Subscription, Runnable {
+        // Reps delivered per turn at most, so one stream with unbounded demand does not hog an executor thread
+        private static final int MAX_BATCH = 1024;
+
+        private final String searchTime;
+        private final ResultSubscriber subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingTurns = new AtomicInteger();
+        private final AtomicBoolean isDone = new AtomicBoolean();
+        private volatile Throwable invalidRequest;
+        private AvailabilityIndex index;
+        private int[] ids;
+        private int position;
+
+        ResultStream(String searchTime, ResultSubscriber subscriber) {
+            this.searchTime = searchTime;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException(String.format("Requested %d reps, but at least 1 must be", n));
+            } else {
+                long current;
+                long next;
+                do {
+                    current = demand.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!demand.compareAndSet(current, next));
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            finish();
+        }
+
+        /**
+         * Runs a turn, unless one is already pending or running, in which case that turn picks up the change
+         */
+        void schedule() {
+            if (pendingTurns.getAndIncrement() != 0) {
+                return;
+            }
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                if (finish()) {
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int turns = pendingTurns.get();
+
+            while (true) {
+                if (isDone.get()) {
+                    return;
+                }
+
+                try {
+                    deliver();
+                } catch (RuntimeException e) {
+                    // Invalid search time, or a subscriber that threw
+                    if (finish()) {
+                        subscriber.onError(e);
+                    }
+                    return;
+                }
+
+                if (isDone.get()) {
+                    return;
+                }
+                if (demand.get() > 0 && position < ids.length) {
+                    // Batch is full, yield the thread & come back for the rest. Turns stay pending, so nobody else
+                    // schedules one meanwhile.
+                    try {
+                        executor.execute(this);
+                    } catch (RejectedExecutionException e) {
+                        if (finish()) {
+                            subscriber.onError(e);
+                        }
+                    }
+                    return;
+                }
+
+                turns = pendingTurns.addAndGet(-turns);
+                if (turns == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void deliver() {
+            if (ids == null) {
+                PackedAvailability timeSlots = FastTimeRangeParser.parse(searchTime);
+                index = indexSupplier.get();
+                ids = index.findFirstIds(timeSlots, Integer.MAX_VALUE);
+            }
+
+            if (invalidRequest != null) {
+                if (finish()) {
+                    subscriber.onError(invalidRequest);
+                }
+                return;
+            }
+
+            for (int count = 0; count < MAX_BATCH && position < ids.length && demand.get() > 0 && !isDone.get(); ++count) {
+                demand.decrementAndGet();
+                subscriber.onNext(index.getSalesRep(ids[position++]));
+            }
+
+            if (position == ids.length && finish()) {
+                subscriber.onComplete();
+            }
+        }
+
+        /**
+         * Ends the stream & gives its slot back, once
+         *
+         * @return true if this call ended it
+         */
+        private boolean finish() {
+            if (!isDone.compareAndSet(false, true)) {
+                return false;
+            }
+
+            inFlight.release();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.dashk.availability;
+
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.FastTimeRangeParser;
+import com.dashk.availability.utils.SearchResultCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many searches, one per input line, against a single index.
+ *
+ * Searches run in parallel, but results are written in input order, each the same way the CLI writes a single search.
+ * Lines that come down to the same slots once parsed (e.g. "Mon 9:00 am - 10:00 am, Mon 9:30 am - 11:00 am" and
+ * "Mon 9:00 am - 11:00 am") share one search while they are in flight. At most MAX_PENDING_LINES lines are held
+ * waiting for their results, so input of any size streams through in bounded memory. Searches go through a
+ * SearchResultCache, so popular searches are also shared beyond that window.
+ */
+public class BatchSearch {
+    private static final int MAX_PENDING_LINES = 4096;
+
+    private final AvailabilityIndex index;
+    private final SearchResultCache cache;
+    private final ExecutorService executor;
+    private final Queue<PendingLine> pendingLines = new ArrayDeque<PendingLine>();
+    private final Map<PackedAvailability, PendingSearch> pendingSearches = new HashMap<PackedAvailability, PendingSearch>();
+    private long numLines;
+    private long numSearches;
+
+    /**
+     * Constructor
+     *
+     * @param index
+     * @param cache null to always search the index
+     * @param executor Runs the searches. It is left running once done.
+     */
+    public BatchSearch(AvailabilityIndex index, SearchResultCache cache, ExecutorService executor) {
+        this.index = index;
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    /**
+     * Searches for every non-blank line of given input, and writes the results to given output. Invalid lines are
+     * reported in place of their results.
+     *
+     * @param input
+     * @param output
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void run(BufferedReader input, PrintWriter output) throws IOException, InterruptedException {
+        String line;
+        while ((line = input.readLine()) != null) {
+            String searchTime = line.trim();
+            if (searchTime.isEmpty()) {
+                continue;
+            }
+
+            if (pendingLines.size() == MAX_PENDING_LINES) {
+                writeNext(output);
+            }
+            submit(searchTime);
+        }
+
+        while (!pendingLines.isEmpty()) {
+            writeNext(output);
+        }
+        output.flush();
+    }
+
+    /**
+     * Returns the number of lines read so far
+     *
+     * @return
+     */
+    public long getNumLines() {
+        return numLines;
+    }
+
+    /**
+     * Returns the number of searches run so far, i.e. lines less the ones that were invalid or shared a search
+     *
+     * @return
+     */
+    public long getNumSearches() {
+        return numSearches;
+    }
+
+    private void submit(String searchTime) {
+        ++numLines;
+
+        final PackedAvailability timeSlots;
+        try {
+            timeSlots = FastTimeRangeParser.parse(searchTime);
+        } catch (IllegalArgumentException e) {
+            pendingLines.add(new PendingLine(searchTime, null, e.getMessage()));
+            return;
+        }
+
+        PendingSearch search = pendingSearches.get(timeSlots);
+        if (search == null) {
+            ++numSearches;
+            search = new PendingSearch(timeSlots, executor.submit(new Callable<List<SalesDevelopmentRepresentative>>() {
+                @Override
+                public List<SalesDevelopmentRepresentative> call() {
+                    return cache != null ? cache.find(index, timeSlots) : index.find(timeSlots);
+                }
+            }));
+            pendingSearches.put(timeSlots, search);
+        }
+
+        ++search.numLines;
+        pendingLines.add(new PendingLine(searchTime, search, null));
+    }
+
+    /**
+     * Waits for the oldest pending line's results, and writes them
+     *
+     * @param output
+     * @throws InterruptedException
+     */
+    private void writeNext(PrintWriter output) throws InterruptedException {
+        PendingLine line = pendingLines.remove();
+        output.println(String.format("Searching available for %s", line.searchTime));
+
+        if (line.search == null) {
+            output.println(String.format("Invalid search, %s", line.error));
+            return;
+        }
+
+        List<SalesDevelopmentRepresentative> availableSalesReps;
+        try {
+            availableSalesReps = line.search.results.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(String.format("Search for %s failed", line.searchTime), e.getCause());
+        }
+
+        if (--line.search.numLines == 0) {
+            pendingSearches.remove(line.search.timeSlots);
+        }
+
+        output.println(String.format("Avilable Reps: %d", availableSalesReps.size()));
+        for (SalesDevelopmentRepresentative salesRep : availableSalesReps) {
+            output.println(salesRep.getEmail());
+        }
+    }
+
+    /**
+     * A search shared by every pending line that parses to the same slots
+     */
+    private static class PendingSearch {
+        final PackedAvailability timeSlots;
+        final Future<List<SalesDevelopmentRepresentative>> results;
+        int numLines;
+
+        PendingSearch(PackedAvailability timeSlots, Future<List<SalesDevelopmentRepresentative>> results) {
+            this.timeSlots = timeSlots;
+            this.results = results;
+        }
+    }
+
+    /**
+     * An input line waiting for its results. search is null if the line is invalid.
+     */
+    private static class PendingLine {
+        final String searchTime;
+        final PendingSearch search;
+        final String error;
+
+        PendingLine(String searchTime, PendingSearch search, String error) {
+            this.searchTime = searchTime;
+            this.search = search;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.dashk.availability;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits command line arguments into positional arguments & options.
+ *
+ * Options start with "--", and either stand alone (e.g. --stats) or carry a value (e.g. --batch=queries.txt).
+ */
+public class CommandLineArguments {
+    private static final String OPTION_PREFIX = "--";
+    private static final char VALUE_SEPARATOR = '=';
+
+    private final List<String> positionalArguments = new ArrayList<String>();
+    private final Map<String, String> options = new HashMap<String, String>();
+
+    public CommandLineArguments(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith(OPTION_PREFIX)) {
+                positionalArguments.add(arg);
+                continue;
+            }
+
+            int separatorIndex = arg.indexOf(VALUE_SEPARATOR);
+            if (separatorIndex < 0) {
+                options.put(arg.substring(OPTION_PREFIX.length()), null);
+            } else {
+                options.put(arg.substring(OPTION_PREFIX.length(), separatorIndex), arg.substring(separatorIndex + 1));
+            }
+        }
+    }
+
+    /**
+     * Returns the positional argument at given index
+     *
+     * @param index
+     * @return
+     */
+    public String get(int index) {
+        return positionalArguments.get(index);
+    }
+
+    /**
+     * Returns the number of positional arguments
+     *
+     * @return
+     */
+    public int size() {
+        return positionalArguments.size();
+    }
+
+    /**
+     * Returns true if given option is specified, with or without a value
+     *
+     * @param name Option name, without "--"
+     * @return
+     */
+    public boolean hasOption(String name) {
+        return options.containsKey(name);
+    }
+
+    /**
+     * Returns the value of given option, or defaultValue if it is not specified or has no value
+     *
+     * @param name Option name, without "--"
+     * @param defaultValue
+     * @return
+     */
+    public String getOption(String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,35 @@
+package com.dashk.availability;
+
+import com.dashk.availability.utils.SyntheticAvailabilityGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes a synthetic availability CSV, for performance testing (See SyntheticAvailabilityGenerator)
+ */
+public class DataGeneratorRunner {
+    public static final int OUTPUT_FILE_PATH_COMMAND_LINE_INDEX = 0;
+
+    public static void main(String[] args) throws IOException {
+        CommandLineArguments arguments = new CommandLineArguments(args);
+        if (arguments.size() != 1) {
+            System.out.println("Usage: java -cp <path to jar> com.dashk.availability.DataGeneratorRunner <output CSV file> " +
+                    "[--reps=100000] [--max-ranges=3] [--day-spans=30,15,15,10,30] [--clustered=0.5] [--seed=42]");
+            System.exit(1);
+        }
+
+        String outputFilePath = arguments.get(OUTPUT_FILE_PATH_COMMAND_LINE_INDEX);
+        long numReps = Long.parseLong(arguments.getOption("reps", "100000"));
+
+        SyntheticAvailabilityGenerator generator = new SyntheticAvailabilityGenerator(
+                Long.parseLong(arguments.getOption("seed", "42")),
+                Integer.parseInt(arguments.getOption("max-ranges", "3")),
+                SyntheticAvailabilityGenerator.parseWeights(arguments.getOption("day-spans", "30,15,15,10,30")),
+                Double.parseDouble(arguments.getOption("clustered", "0.5"))
+        );
+
+        long start = System.nanoTime();
+        generator.writeCsv(outputFilePath, numReps);
+        System.out.println(String.format("Wrote %d reps to %s in %d ms", numReps, outputFilePath, (System.nanoTime() - start) / 1000000));
+    }
+}
@@ -0,0 +1,146 @@
+package com.dashk.availability;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.FastTimeRangeParser;
+import com.dashk.availability.utils.ParallelSalesRepLoader;
+import com.dashk.availability.utils.PipelineMetrics;
+import com.dashk.availability.utils.SyntheticAvailabilityGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads an availability CSV, then runs a mix of synthetic searches against it from several threads & reports
+ * throughput and latency percentiles. Latency covers parsing the search string & searching.
+ */
+public class LoadTestRunner {
+    public static final int AVAILABILITY_FILE_PATH_COMMAND_LINE_INDEX = 0;
+
+    public static void main(String[] args) throws IOException, AvailabilityException, InterruptedException, ExecutionException {
+        CommandLineArguments arguments = new CommandLineArguments(args);
+        if (arguments.size() != 1) {
+            System.out.println("Usage: java -cp <path to jar> com.dashk.availability.LoadTestRunner <path to CSV file> " +
+                    "[--queries=100000] [--threads=<cores>] [--query-widths=1:40,2:30,4:20,16:10] [--seed=42]");
+            System.exit(1);
+        }
+
+        String dataFilePath = arguments.get(AVAILABILITY_FILE_PATH_COMMAND_LINE_INDEX);
+        int numQueries = Integer.parseInt(arguments.getOption("queries", "100000"));
+        int numThreads = Integer.parseInt(arguments.getOption("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long seed = Long.parseLong(arguments.getOption("seed", "42"));
+
+        PipelineMetrics.getInstance().setEnabled(true);
+        long loadStart = System.nanoTime();
+        final AvailabilityIndex index = ParallelSalesRepLoader.load(dataFilePath);
+        System.out.println(String.format("Loaded %d reps in %d ms", index.size(), (System.nanoTime() - loadStart) / 1000000));
+
+        final String[] queries = generateQueries(arguments.getOption("query-widths", "1:40,2:30,4:20,16:10"), numQueries, seed);
+        PipelineMetrics.getInstance().reset();
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<long[]>> results = new ArrayList<Future<long[]>>(numThreads);
+        long runStart = System.nanoTime();
+
+        for (int thread = 0; thread < numThreads; ++thread) {
+            final int firstQuery = thread;
+            final int stride = numThreads;
+
+            results.add(executor.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    long[] latencies = new long[(queries.length - firstQuery + stride - 1) / stride];
+                    int count = 0;
+
+                    for (int i = firstQuery; i < queries.length; i += stride) {
+                        long start = System.nanoTime();
+                        index.find(FastTimeRangeParser.parse(queries[i]));
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+
+                    return latencies;
+                }
+            }));
+        }
+
+        long[] latencies = new long[numQueries];
+        int numLatencies = 0;
+        for (Future<long[]> result : results) {
+            long[] threadLatencies = result.get();
+            System.arraycopy(threadLatencies, 0, latencies, numLatencies, threadLatencies.length);
+            numLatencies += threadLatencies.length;
+        }
+
+        long elapsed = System.nanoTime() - runStart;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.println(String.format("Ran %d queries on %d threads in %d ms: %.0f queries/sec",
+                numQueries, numThreads, elapsed / 1000000, numQueries * 1e9 / elapsed));
+        System.out.println(String.format("Latency (us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                getPercentile(latencies, 50) / 1000.0,
+                getPercentile(latencies, 90) / 1000.0,
+                getPercentile(latencies, 99) / 1000.0,
+                getPercentile(latencies, 99.9) / 1000.0,
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000.0
+        ));
+        System.out.print(PipelineMetrics.getInstance().getReport());
+    }
+
+    /**
+     * Generates search strings, with widths drawn from given mix, e.g. "1:40,2:30" => 40% of queries cover a single
+     * slot & 60% cover two consecutive slots
+     *
+     * @param queryWidths
+     * @param numQueries
+     * @param seed
+     * @return
+     */
+    private static String[] generateQueries(String queryWidths, int numQueries, long seed) {
+        String[] widthsAndWeights = queryWidths.split(",");
+        int[] widths = new int[widthsAndWeights.length];
+        double[] cumulativeWeights = new double[widthsAndWeights.length];
+        double totalWeight = 0;
+
+        for (int i = 0; i < widthsAndWeights.length; ++i) {
+            String[] widthAndWeight = widthsAndWeights[i].split(":");
+            widths[i] = Integer.parseInt(widthAndWeight[0].trim());
+            totalWeight += Double.parseDouble(widthAndWeight[1].trim());
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        // Same generator as the data, so searches lean towards the same busy hours
+        SyntheticAvailabilityGenerator generator = new SyntheticAvailabilityGenerator(seed, 1, new double[] { 1, 1, 1, 1, 1 }, 0);
+        Random random = new Random(seed);
+        String[] queries = new String[numQueries];
+
+        for (int i = 0; i < numQueries; ++i) {
+            double target = random.nextDouble() * totalWeight;
+            int widthIndex = 0;
+            while (widthIndex < widths.length - 1 && cumulativeWeights[widthIndex] <= target) {
+                ++widthIndex;
+            }
+
+            queries[i] = generator.nextQuery(widths[widthIndex]);
+        }
+
+        return queries;
+    }
+
+    private static long getPercentile(long[] sortedValues, double percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(sortedValues.length * percentile / 100.0) - 1;
+        return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, index))];
+    }
+}
@@ -0,0 +1,298 @@
+package com.dashk.availability;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.utils.FastTimeRangeParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs searches across shard workers (See ShardWorker), and merges their results.
+ *
+ * A search is parsed once here, then sent to every shard at the same time as a packed week. Each shard has the given
+ * time to answer. If any shard fails or runs out of time, the search fails, rather than silently missing reps. Shards
+ * return their reps in row order along with their row numbers, so merged results are in file order, the same as a
+ * single process would return.
+ *
+ * Safe to call from several threads at once.
+ */
+public class ShardCoordinator implements Closeable {
+    private final List<URI> workers;
+    private final long timeoutMillis;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor
+     *
+     * @param workers Base URI of each shard worker, e.g. http://localhost:8081, in shard order
+     * @param timeoutMillis Time each shard has to answer a search
+     */
+    public ShardCoordinator(List<URI> workers, long timeoutMillis) {
+        this.workers = new ArrayList<URI>(workers);
+        this.timeoutMillis = timeoutMillis;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, String.format("shard-coordinator-%d", count.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the emails of up to limit sales reps who are available in every slot of given search time, in file order
+     *
+     * @param searchTime
+     * @param limit
+     * @return
+     * @throws IllegalArgumentException if the search time is invalid
+     * @throws AvailabilityException if a shard fails or does not answer in time
+     */
+    public List<String> find(String searchTime, int limit) throws AvailabilityException {
+        List<List<String>> responses = fanOut(searchTime, String.format("&%s=%d", AvailabilityServer.LIMIT_PARAMETER, limit));
+        List<ShardResult> results = new ArrayList<ShardResult>(responses.size());
+        for (int shard = 0; shard < responses.size(); ++shard) {
+            results.add(parseResult(shard, responses.get(shard)));
+        }
+
+        // Each shard's reps are in row order, so repeatedly take the lowest head
+        int[] positions = new int[results.size()];
+        List<String> output = new ArrayList<String>();
+        while (output.size() < limit) {
+            int nextShard = -1;
+            long nextRowNumber = Long.MAX_VALUE;
+
+            for (int shard = 0; shard < results.size(); ++shard) {
+                ShardResult result = results.get(shard);
+                if (positions[shard] < result.rowNumbers.length && result.rowNumbers[positions[shard]] < nextRowNumber) {
+                    nextShard = shard;
+                    nextRowNumber = result.rowNumbers[positions[shard]];
+                }
+            }
+
+            if (nextShard < 0) {
+                break;
+            }
+
+            output.add(results.get(nextShard).emails[positions[nextShard]++]);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of sales reps who are available in every slot of given search time, across every shard
+     *
+     * @param searchTime
+     * @return
+     * @throws IllegalArgumentException if the search time is invalid
+     * @throws AvailabilityException if a shard fails, does not answer in time, or answers something else than a count
+     */
+    public int count(String searchTime) throws AvailabilityException {
+        List<List<String>> responses = fanOut(searchTime, String.format("&%s", AvailabilityServer.COUNT_PARAMETER));
+        int output = 0;
+
+        for (int shard = 0; shard < responses.size(); ++shard) {
+            List<String> lines = responses.get(shard);
+            if (lines.size() != 1) {
+                throw malformed(shard, String.format("expected a count only, but got %d lines", lines.size()));
+            }
+            output += parseCount(shard, lines.get(0));
+        }
+
+        return output;
+    }
+
+    /**
+     * Stops the threads waiting on shards. The workers themselves are left running.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sends given search to every shard, and waits for them all
+     *
+     * @param searchTime
+     * @param extraParameters
+     * @return Lines of each shard's response, starting with its count, in shard order
+     * @throws AvailabilityException
+     */
+    private List<List<String>> fanOut(String searchTime, String extraParameters) throws AvailabilityException {
+        PackedAvailability timeSlots = FastTimeRangeParser.parse(searchTime);
+        String query;
+        try {
+            query = String.format("%s=%s%s", ShardWorker.SLOTS_PARAMETER,
+                    URLEncoder.encode(ShardWorker.encodeSlots(timeSlots), "UTF-8"), extraParameters);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>(workers.size());
+        for (final URI worker : workers) {
+            final URI uri = worker.resolve(ShardWorker.SHARD_PATH + "?" + query);
+            futures.add(executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws IOException {
+                    return get(uri);
+                }
+            }));
+        }
+
+        List<List<String>> output = new ArrayList<List<String>>(workers.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (int shard = 0; shard < futures.size(); ++shard) {
+                try {
+                    output.add(futures.get(shard).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    throw new AvailabilityException(String.format("Shard %d (%s) did not answer within %d ms", shard, workers.get(shard), timeoutMillis));
+                } catch (ExecutionException e) {
+                    throw new AvailabilityException(String.format("Shard %d (%s) failed, %s", shard, workers.get(shard), e.getCause().getMessage()), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AvailabilityException(String.format("Interrupted while waiting for shard %d (%s)", shard, workers.get(shard)), e);
+                }
+            }
+        } finally {
+            for (Future<List<String>> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Sends a GET request to given worker URI, and returns the lines of the response
+     *
+     * @param uri
+     * @return
+     * @throws IOException if the worker is unreachable or does not respond with 200
+     */
+    private List<String> get(URI uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setConnectTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+        connection.setReadTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+
+        try {
+            int status = connection.getResponseCode();
+            InputStream stream = status == 200 ? connection.getInputStream() : connection.getErrorStream();
+            List<String> lines = new ArrayList<String>();
+
+            if (stream != null) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lines.add(line);
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+
+            if (status != 200) {
+                throw new IOException(String.format("Status %d, %s", status, lines.isEmpty() ? "" : lines.get(0)));
+            }
+
+            if (lines.isEmpty()) {
+                throw new IOException("Response is empty");
+            }
+
+            return lines;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Parses the lines of a shard's search response (See ShardWorker), checking them against its count line
+     *
+     * @param shard
+     * @param lines
+     * @return
+     * @throws AvailabilityException if the response is malformed
+     */
+    private ShardResult parseResult(int shard, List<String> lines) throws AvailabilityException {
+        int count = parseCount(shard, lines.get(0));
+        if (lines.size() != count + 1) {
+            throw malformed(shard, String.format("count is %d, but %d reps follow", count, lines.size() - 1));
+        }
+
+        ShardResult output = new ShardResult(count);
+        for (int i = 0; i < count; ++i) {
+            String line = lines.get(i + 1);
+            int separatorIndex = line.indexOf('\t');
+            if (separatorIndex <= 0) {
+                throw malformed(shard, String.format("line %d is not <row number>\\t<email>", i + 2));
+            }
+
+            try {
+                output.rowNumbers[i] = Long.parseLong(line.substring(0, separatorIndex));
+                output.emails[i] = ShardWorker.decodeEmail(line.substring(separatorIndex + 1));
+            } catch (IllegalArgumentException e) {
+                throw malformed(shard, String.format("line %d is invalid, %s", i + 2, e.getMessage()));
+            }
+
+            if (i > 0 && output.rowNumbers[i] <= output.rowNumbers[i - 1]) {
+                throw malformed(shard, String.format("line %d is out of row order", i + 2));
+            }
+        }
+
+        return output;
+    }
+
+    private int parseCount(int shard, String line) throws AvailabilityException {
+        try {
+            int output = Integer.parseInt(line);
+            if (output >= 0) {
+                return output;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+
+        throw malformed(shard, String.format("count is invalid, %s", line));
+    }
+
+    private AvailabilityException malformed(int shard, String reason) {
+        return new AvailabilityException(String.format("Shard %d (%s) sent a malformed response, %s", shard, workers.get(shard), reason));
+    }
+
+    /**
+     * Reps a shard found, in row order
+     */
+    private static class ShardResult {
+        final long[] rowNumbers;
+        final String[] emails;
+
+        ShardResult(int count) {
+            rowNumbers = new long[count];
+            emails = new String[count];
+        }
+    }
+}
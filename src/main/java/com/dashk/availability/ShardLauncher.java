@@ -0,0 +1,166 @@
+package com.dashk.availability;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts shard workers as local processes, one per shard, so a sharded setup can run on a single machine.
+ *
+ * Workers run the same classpath as this process, and load their shards at the same time. start() returns once every
+ * worker is ready to serve. Closing the launcher stops the workers.
+ *
+ * Usage:
+ *   ShardLauncher launcher = ShardLauncher.start("reps.csv", 4, 2);
+ *   ShardCoordinator coordinator = new ShardCoordinator(launcher.getWorkers(), 1000);
+ *   ... coordinator.find("Mon 10:00 am - 11:00 am", 10) ...
+ *   coordinator.close();
+ *   launcher.close();
+ */
+public class ShardLauncher implements Closeable {
+    private static final Logger logger = LogManager.getLogger();
+    private static final long STOP_TIMEOUT_SECONDS = 5;
+
+    private final List<Process> processes;
+    private final List<URI> workers;
+
+    private ShardLauncher(List<Process> processes, List<URI> workers) {
+        this.processes = processes;
+        this.workers = workers;
+    }
+
+    /**
+     * Starts one worker per shard of given data file, and waits for them all to be ready
+     *
+     * @param dataFilePath
+     * @param numShards
+     * @param threadsPerShard
+     * @param jvmOptions Extra options for each worker JVM, e.g. -Xmx2g
+     * @return
+     * @throws IOException if a worker exits before it is ready
+     */
+    public static ShardLauncher start(String dataFilePath, int numShards, int threadsPerShard, String... jvmOptions) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<Process>(numShards);
+        List<URI> workers = new ArrayList<URI>(numShards);
+        ShardLauncher output = new ShardLauncher(processes, workers);
+
+        try {
+            for (int shard = 0; shard < numShards; ++shard) {
+                List<String> command = new ArrayList<String>();
+                command.add(java);
+                command.addAll(Arrays.asList(jvmOptions));
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(ShardWorker.class.getName());
+                command.add(dataFilePath);
+                command.add(String.format("--shard=%d/%d", shard, numShards));
+                command.add("--port=0");
+                command.add(String.format("--threads=%d", threadsPerShard));
+
+                processes.add(new ProcessBuilder(command)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+
+            for (int shard = 0; shard < numShards; ++shard) {
+                int port = awaitReady(processes.get(shard), shard);
+                // Workers only listen on the loopback interface, which localhost may not resolve to first
+                workers.add(new URI("http", null, InetAddress.getLoopbackAddress().getHostAddress(), port, null, null, null));
+            }
+        } catch (URISyntaxException e) {
+            output.close();
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            output.close();
+            throw e;
+        }
+
+        logger.info("Started {} shard workers for {}", numShards, dataFilePath);
+        return output;
+    }
+
+    /**
+     * Returns the base URI of each worker, in shard order
+     *
+     * @return
+     */
+    public List<URI> getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Stops every worker
+     */
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            process.destroy();
+        }
+
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Reads given worker's output until it reports its port. Whatever it prints afterwards is discarded.
+     *
+     * @param process
+     * @param shard
+     * @return
+     * @throws IOException if the worker exits before it is ready
+     */
+    private static int awaitReady(Process process, int shard) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ShardWorker.READY_PREFIX)) {
+                break;
+            }
+        }
+
+        if (line == null) {
+            throw new IOException(String.format("Shard worker %d exited before it was ready", shard));
+        }
+
+        // Keep draining, so the worker never blocks on a full pipe
+        Thread drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (reader.readLine() != null) {
+                        // Discard
+                    }
+                } catch (IOException e) {
+                    // Worker is gone
+                }
+            }
+        }, String.format("shard-worker-%d-output", shard));
+        drainer.setDaemon(true);
+        drainer.start();
+
+        return Integer.parseInt(line.substring(ShardWorker.READY_PREFIX.length()).trim());
+    }
+}
@@ -0,0 +1,266 @@
+package com.dashk.availability;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.SalesRepLoader;
+import com.dashk.availability.utils.ShardIndex;
+import com.dashk.availability.utils.ShardSpec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves searches over one shard of a data file, for a ShardCoordinator.
+ *
+ * GET /shard?slots=<word>.<word>.<word>.<word>[&count | &limit=<count>]
+ *   slots => The query, already parsed by the coordinator, as the hex words of a packed week
+ *   200   => "<count>" followed by one "<row number>\t<email>" line per available rep, in row order. Emails are URL
+ *            encoded (See encodeEmail), since a quoted CSV field may hold a tab or a new line. With count, only the
+ *            first line. With limit, at most that many reps, the first ones in row order.
+ *   400   => slots or limit is invalid
+ *
+ * Run as its own process (See ShardLauncher):
+ *   java -cp <path to jar> com.dashk.availability.ShardWorker <path to CSV file> --shard=<index>/<count> [--port=<port>] [--threads=<count>] [--bind=<address>]
+ * Once the shard is loaded, READY_PREFIX followed by the port is printed on its own line.
+ *
+ * Requests are not authenticated, so the worker only listens on the loopback interface unless given another address
+ * to bind, e.g. to serve a coordinator on another host within a trusted network.
+ */
+public class ShardWorker {
+    private static final Logger logger = LogManager.getLogger();
+    public static final String SHARD_PATH = "/shard";
+    public static final String SLOTS_PARAMETER = "slots";
+    public static final String READY_PREFIX = "Shard ready on port ";
+    private static final char WORD_SEPARATOR = '.';
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final ShardIndex shardIndex;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ShardWorker(ShardIndex shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public static void main(String[] args) throws IOException, AvailabilityException {
+        CommandLineArguments arguments = new CommandLineArguments(args);
+        if (arguments.size() != 1 || arguments.getOption("shard", null) == null) {
+            System.out.println("Usage: java -cp <path to jar> com.dashk.availability.ShardWorker <path to CSV file> --shard=<index>/<count> [--port=<port>] [--threads=<count>] [--bind=<address>]");
+            System.exit(1);
+        }
+
+        ShardIndex shardIndex = SalesRepLoader.load(arguments.get(0), ShardSpec.parse(arguments.getOption("shard", null)));
+        final ShardWorker worker = new ShardWorker(shardIndex);
+        String bindAddress = arguments.getOption("bind", null);
+        worker.start(
+                bindAddress != null ? InetAddress.getByName(bindAddress) : InetAddress.getLoopbackAddress(),
+                Integer.parseInt(arguments.getOption("port", "0")),
+                Integer.parseInt(arguments.getOption("threads", String.valueOf(Runtime.getRuntime().availableProcessors())))
+        );
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                worker.stop();
+            }
+        });
+
+        System.out.println(READY_PREFIX + worker.getPort());
+        System.out.flush();
+    }
+
+    /**
+     * Encodes given query for the slots parameter
+     *
+     * @param timeSlots
+     * @return
+     */
+    public static String encodeSlots(PackedAvailability timeSlots) {
+        StringBuilder output = new StringBuilder();
+        for (int word = 0; word < PackedAvailability.WORD_COUNT; ++word) {
+            if (word > 0) {
+                output.append(WORD_SEPARATOR);
+            }
+            output.append(Long.toHexString(timeSlots.getWord(word)));
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Encodes given email for a response line, so it holds no tab or new line
+     *
+     * @param email
+     * @return
+     */
+    public static String encodeEmail(String email) {
+        try {
+            return URLEncoder.encode(email, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes an email of a response line
+     *
+     * @param email
+     * @return
+     * @throws IllegalArgumentException if it is not URL encoded
+     */
+    public static String decodeEmail(String email) {
+        try {
+            return URLDecoder.decode(email, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes the slots parameter
+     *
+     * @param slots
+     * @return
+     * @throws IllegalArgumentException if it is not WORD_COUNT hex words, or sets bits past the last slot
+     */
+    public static PackedAvailability decodeSlots(String slots) {
+        String[] parts = slots.split("\\.");
+        if (parts.length != PackedAvailability.WORD_COUNT) {
+            throw new IllegalArgumentException(String.format("Slots are invalid, %s. %d words are expected", slots, PackedAvailability.WORD_COUNT));
+        }
+
+        long[] words = new long[PackedAvailability.WORD_COUNT];
+        for (int word = 0; word < words.length; ++word) {
+            words[word] = Long.parseUnsignedLong(parts[word], 16);
+            if ((words[word] & ~PackedAvailability.FULL.getWord(word)) != 0) {
+                throw new IllegalArgumentException(String.format("Slots are invalid, %s. Only the first %d bits may be set", slots, PackedAvailability.TOTAL_SLOTS));
+            }
+        }
+
+        return PackedAvailability.fromWords(words);
+    }
+
+    /**
+     * Starts listening on given port (0 picks a free one) of the loopback interface
+     *
+     * @param port
+     * @param numThreads
+     * @throws IOException
+     */
+    public void start(int port, int numThreads) throws IOException {
+        start(InetAddress.getLoopbackAddress(), port, numThreads);
+    }
+
+    /**
+     * Starts listening on given address & port (0 picks a free one)
+     *
+     * @param bindAddress
+     * @param port
+     * @param numThreads
+     * @throws IOException
+     */
+    public synchronized void start(InetAddress bindAddress, int port, int numThreads) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Worker is already started");
+        }
+
+        executor = Executors.newFixedThreadPool(numThreads);
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext(SHARD_PATH, new ShardHandler());
+        server.setExecutor(executor);
+        server.start();
+
+        logger.info("Serving shard {} of {} reps on port {}", shardIndex.getShard(), shardIndex.getIndex().size(), getPort());
+    }
+
+    /**
+     * Stops accepting requests, and waits briefly for in-flight ones to finish
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        server = null;
+        executor = null;
+    }
+
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Worker is not started");
+        }
+
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handles GET /shard
+     */
+    private class ShardHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String rawQuery = exchange.getRequestURI().getRawQuery();
+                String slots = AvailabilityServer.getQueryParameter(rawQuery, SLOTS_PARAMETER);
+                if (slots == null) {
+                    AvailabilityServer.respond(exchange, 400, String.format("Missing query parameter, %s\n", SLOTS_PARAMETER));
+                    return;
+                }
+
+                AvailabilityIndex index = shardIndex.getIndex();
+                PackedAvailability timeSlots;
+                int limit;
+                try {
+                    timeSlots = decodeSlots(slots);
+                    String rawLimit = AvailabilityServer.getQueryParameter(rawQuery, AvailabilityServer.LIMIT_PARAMETER);
+                    limit = rawLimit != null ? Integer.parseInt(rawLimit) : Integer.MAX_VALUE;
+                    AvailabilityRunner.assertPositive("Limit", limit);
+                } catch (IllegalArgumentException e) {
+                    AvailabilityServer.respond(exchange, 400, String.format("%s\n", e.getMessage()));
+                    return;
+                }
+
+                if (AvailabilityServer.getQueryParameter(rawQuery, AvailabilityServer.COUNT_PARAMETER) != null) {
+                    AvailabilityServer.respond(exchange, 200, String.format("%d\n", index.count(timeSlots)));
+                    return;
+                }
+
+                // Ids are in row order, so the reps found first are also the first rows
+                int[] ids = index.findFirstIds(timeSlots, limit);
+                StringBuilder body = new StringBuilder();
+                body.append(ids.length).append('\n');
+                for (int id : ids) {
+                    body.append(shardIndex.getRowNumber(id)).append('\t').append(encodeEmail(index.getEmail(id))).append('\n');
+                }
+
+                AvailabilityServer.respond(exchange, 200, body.toString());
+            } catch (RuntimeException e) {
+                logger.error("Unable to handle {}", exchange.getRequestURI(), e);
+                AvailabilityServer.respond(exchange, 500, "Internal error\n");
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.dashk.availability.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Weekly availability stored as sorted, disjoint slot intervals, for any SlotGrid.
+ *
+ * Bounds are kept as [ start0, end0, start1, end1, ... ] (end exclusive), where each bound is a slot index within the
+ * week (See SlotGrid.getSlotIndex). Memory grows with the number of intervals, not the number of slots, so a finer grid
+ * costs nothing extra, and a lookup is a binary search over the interval starts.
+ * e.g. 15 minutes slots: Mon 1:00 am - 2:30 am, Tue 0:00 am - 0:15 am => [ 4, 10, 96, 97 ]
+ *
+ * Touching intervals are merged, including across midnight, so the bounds of equal availability are always equal.
+ */
+public class IntervalAvailability {
+    private static final int[] NO_BOUNDS = new int[0];
+
+    private final int[] bounds;
+
+    private IntervalAvailability(int[] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Returns the number of intervals
+     *
+     * @return
+     */
+    public int getIntervalCount() {
+        return bounds.length / 2;
+    }
+
+    public int getStart(int interval) {
+        return bounds[interval * 2];
+    }
+
+    public int getEnd(int interval) {
+        return bounds[interval * 2 + 1];
+    }
+
+    /**
+     * Returns a copy of the bounds (See class description)
+     *
+     * @return
+     */
+    public int[] toBounds() {
+        return Arrays.copyOf(bounds, bounds.length);
+    }
+
+    /**
+     * Returns true if every slot from fromIndex (inclusive) to toIndex (exclusive) is available
+     *
+     * @param fromIndex
+     * @param toIndex
+     * @return
+     */
+    public boolean encloses(int fromIndex, int toIndex) {
+        return encloses(bounds, 0, bounds.length, fromIndex, toIndex);
+    }
+
+    /**
+     * Returns true if every slot available in given availability is also available in this one
+     *
+     * @param other
+     * @return
+     */
+    public boolean encloses(IntervalAvailability other) {
+        return encloses(bounds, 0, bounds.length, other);
+    }
+
+    /**
+     * Same as encloses(IntervalAvailability), on bounds stored in a shared array (See IntervalAvailabilityIndex)
+     *
+     * @param bounds
+     * @param fromOffset Offset of this availability's first bound
+     * @param toOffset Offset past its last bound
+     * @param other
+     * @return
+     */
+    public static boolean encloses(int[] bounds, int fromOffset, int toOffset, IntervalAvailability other) {
+        for (int i = 0; i < other.bounds.length; i += 2) {
+            if (!encloses(bounds, fromOffset, toOffset, other.bounds[i], other.bounds[i + 1])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if the interval starting last at or before fromIndex reaches toIndex
+     */
+    private static boolean encloses(int[] bounds, int fromOffset, int toOffset, int fromIndex, int toIndex) {
+        int low = 0;
+        int high = (toOffset - fromOffset) / 2 - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (bounds[fromOffset + middle * 2] <= fromIndex) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return found >= 0 && bounds[fromOffset + found * 2 + 1] >= toIndex;
+    }
+
+    /**
+     * Returns the total number of available slots
+     *
+     * @return
+     */
+    public int cardinality() {
+        int output = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            output += bounds[i + 1] - bounds[i];
+        }
+
+        return output;
+    }
+
+    /**
+     * Converts the intervals back into time ranges, split at midnight, ordered by day & time
+     *
+     * @param grid Grid the intervals are on
+     * @return
+     */
+    public List<TimeRange> toTimeRanges(SlotGrid grid) {
+        List<TimeRange> output = new ArrayList<TimeRange>();
+        int slotsPerDay = grid.getSlotsPerDay();
+
+        for (int i = 0; i < bounds.length; i += 2) {
+            for (int start = bounds[i]; start < bounds[i + 1]; ) {
+                int dayOfWeek = start / slotsPerDay;
+                int dayStart = dayOfWeek * slotsPerDay;
+                int end = Math.min(bounds[i + 1], dayStart + slotsPerDay);
+
+                output.add(new TimeRange(dayOfWeek, grid.getTimeBySlot(start - dayStart), grid.getTimeBySlot(end - dayStart)));
+                start = end;
+            }
+        }
+
+        return output;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntervalAvailability)) {
+            return false;
+        }
+
+        return Arrays.equals(bounds, ((IntervalAvailability) o).bounds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bounds);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(bounds);
+    }
+
+    /**
+     * Collects intervals in any order, overlapping or not, and merges them on build()
+     *
+     * @note Not thread safe. A builder can be reused once built.
+     */
+    public static class Builder {
+        private int[] bounds = new int[16];
+        private int size;
+
+        /**
+         * Adds the slots from fromIndex (inclusive) to toIndex (exclusive). Empty intervals are ignored.
+         *
+         * @param fromIndex
+         * @param toIndex
+         * @return
+         */
+        public Builder add(int fromIndex, int toIndex) {
+            if (fromIndex >= toIndex) {
+                return this;
+            }
+
+            if (size + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[size++] = fromIndex;
+            bounds[size++] = toIndex;
+
+            return this;
+        }
+
+        /**
+         * Returns the merged intervals added so far, and empties the builder
+         *
+         * @return
+         */
+        public IntervalAvailability build() {
+            if (size == 0) {
+                return new IntervalAvailability(NO_BOUNDS);
+            }
+
+            // Sort by start. Each interval is packed into a long so one primitive sort keeps start & end together.
+            long[] intervals = new long[size / 2];
+            for (int i = 0; i < intervals.length; ++i) {
+                intervals[i] = ((long) bounds[i * 2] << 32) | bounds[i * 2 + 1];
+            }
+            Arrays.sort(intervals);
+
+            int[] merged = new int[size];
+            int mergedSize = 0;
+            for (long interval : intervals) {
+                int start = (int) (interval >>> 32);
+                int end = (int) interval;
+
+                if (mergedSize > 0 && start <= merged[mergedSize - 1]) {
+                    merged[mergedSize - 1] = Math.max(merged[mergedSize - 1], end);
+                } else {
+                    merged[mergedSize++] = start;
+                    merged[mergedSize++] = end;
+                }
+            }
+
+            size = 0;
+            return new IntervalAvailability(Arrays.copyOf(merged, mergedSize));
+        }
+    }
+}
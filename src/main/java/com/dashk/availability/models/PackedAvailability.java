@@ -0,0 +1,433 @@
+package com.dashk.availability.models;
+
+import com.dashk.availability.AvailabilityConstants;
+import com.dashk.availability.utils.TimeSlotConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Weekly availability packed into a bitmask, one bit per 30 minutes slot.
+ *
+ * Bit (dayOfWeek * NUMBER_OF_SLOTS_PER_DAY + slot) is set when the slot is available.
+ * e.g. Mon 1a-2a => bits 2 & 3, Tue 0a-0:30a => bit 48
+ *
+ * Also serves as an immutable set of slots: union, intersect, difference & complement each combine whole words, so
+ * e.g. the free time two reps share, or a rep's availability less their bookings, costs a handful of instructions.
+ *   shared = a.intersect(b), remaining = availability.difference(bookings)
+ */
+public class PackedAvailability {
+    public static final int TOTAL_SLOTS = AvailabilityConstants.NUMBER_OF_DAYS * AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY;
+    public static final int WORD_COUNT = (TOTAL_SLOTS + Long.SIZE - 1) / Long.SIZE;
+    // Bits of the last word that map to slots. The rest are always clear.
+    private static final long LAST_WORD_MASK = -1L >>> (WORD_COUNT * Long.SIZE - TOTAL_SLOTS);
+
+    public static final PackedAvailability EMPTY = new PackedAvailability(new long[WORD_COUNT]);
+    public static final PackedAvailability FULL = EMPTY.complement();
+
+    private final long[] words;
+
+    private PackedAvailability(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Creates a bitmask from given time ranges (Typically the output of TimeRangeMerger.merge)
+     *
+     * @param timeRanges
+     * @return
+     */
+    public static PackedAvailability fromTimeRanges(List<TimeRange> timeRanges) {
+        long[] words = new long[WORD_COUNT];
+
+        for (TimeRange timeRange : timeRanges) {
+            int fromIndex = getSlotIndex(timeRange.getDayOfWeek(), TimeSlotConverter.getTimeSlotIndexByTime(timeRange.getStartTime()));
+            int toIndex = getSlotIndex(timeRange.getDayOfWeek(), TimeSlotConverter.getTimeSlotIndexByTime(timeRange.getEndTime()));
+
+            setRange(words, fromIndex, toIndex);
+        }
+
+        return new PackedAvailability(words);
+    }
+
+    /**
+     * Creates a bitmask from given words (See WORD_COUNT). The words are copied.
+     *
+     * @param words
+     * @return
+     */
+    public static PackedAvailability fromWords(long[] words) {
+        if (words.length != WORD_COUNT) {
+            throw new IllegalArgumentException(String.format("Expected %d words, but got %d", WORD_COUNT, words.length));
+        }
+
+        return new PackedAvailability(Arrays.copyOf(words, WORD_COUNT));
+    }
+
+    /**
+     * Returns the bit index of given slot within the week
+     *
+     * @param dayOfWeek
+     * @param slot
+     * @return
+     */
+    public static int getSlotIndex(int dayOfWeek, int slot) {
+        return dayOfWeek * AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY + slot;
+    }
+
+    /**
+     * Converts the bitmask back into time ranges, one per contiguous run of slots within a day, ordered by day & time.
+     * This is the same shape TimeRangeMerger.merge produces.
+     *
+     * @return
+     */
+    public List<TimeRange> toTimeRanges() {
+        List<TimeRange> output = new ArrayList<TimeRange>();
+        for (TimeRange timeRange : timeRanges()) {
+            output.add(timeRange);
+        }
+
+        return output;
+    }
+
+    /**
+     * Same as toTimeRanges, but produces each time range as it is iterated. Runs are found a word at a time.
+     *
+     * @return
+     */
+    public Iterable<TimeRange> timeRanges() {
+        return new Iterable<TimeRange>() {
+            @Override
+            public Iterator<TimeRange> iterator() {
+                return new TimeRangeIterator();
+            }
+        };
+    }
+
+    /**
+     * Returns the slots available in either this or given availability
+     *
+     * @param other
+     * @return
+     */
+    public PackedAvailability union(PackedAvailability other) {
+        long[] output = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; ++i) {
+            output[i] = this.words[i] | other.words[i];
+        }
+
+        return new PackedAvailability(output);
+    }
+
+    /**
+     * Returns the slots available in both this & given availability
+     *
+     * @param other
+     * @return
+     */
+    public PackedAvailability intersect(PackedAvailability other) {
+        long[] output = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; ++i) {
+            output[i] = this.words[i] & other.words[i];
+        }
+
+        return new PackedAvailability(output);
+    }
+
+    /**
+     * Returns the slots available in this availability, but not in given one
+     *
+     * @param other
+     * @return
+     */
+    public PackedAvailability difference(PackedAvailability other) {
+        long[] output = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; ++i) {
+            output[i] = this.words[i] & ~other.words[i];
+        }
+
+        return new PackedAvailability(output);
+    }
+
+    /**
+     * Returns the slots of the week that are not available in this availability
+     *
+     * @return
+     */
+    public PackedAvailability complement() {
+        long[] output = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; ++i) {
+            output[i] = ~this.words[i];
+        }
+        output[WORD_COUNT - 1] &= LAST_WORD_MASK;
+
+        return new PackedAvailability(output);
+    }
+
+    /**
+     * Returns true if at least one slot is available in both this & given availability
+     *
+     * @param other
+     * @return
+     */
+    public boolean intersects(PackedAvailability other) {
+        for (int i = 0; i < WORD_COUNT; ++i) {
+            if ((this.words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns true if every slot set in given availability is also set in this one.
+     *
+     * @param other
+     * @return
+     */
+    public boolean encloses(PackedAvailability other) {
+        for (int i = 0; i < WORD_COUNT; ++i) {
+            if ((other.words[i] & ~this.words[i]) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Same as isSet, for set-like use
+     *
+     * @param slotIndex See getSlotIndex
+     * @return
+     */
+    public boolean contains(int slotIndex) {
+        return isSet(slotIndex);
+    }
+
+    /**
+     * Same as encloses(TimeRange), for set-like use
+     *
+     * @param timeRange
+     * @return
+     */
+    public boolean contains(TimeRange timeRange) {
+        return encloses(timeRange);
+    }
+
+    /**
+     * Returns true if every slot covered by given time range is set.
+     *
+     * @param timeRange
+     * @return
+     */
+    public boolean encloses(TimeRange timeRange) {
+        int fromIndex = getSlotIndex(timeRange.getDayOfWeek(), TimeSlotConverter.getTimeSlotIndexByTime(timeRange.getStartTime()));
+        int toIndex = getSlotIndex(timeRange.getDayOfWeek(), TimeSlotConverter.getTimeSlotIndexByTime(timeRange.getEndTime()));
+
+        for (int wordIndex = fromIndex / Long.SIZE; wordIndex <= (toIndex - 1) / Long.SIZE; ++wordIndex) {
+            long mask = getRangeMask(wordIndex, fromIndex, toIndex);
+            if ((this.words[wordIndex] & mask) != mask) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if given slot is available
+     *
+     * @param slotIndex See getSlotIndex
+     * @return
+     */
+    public boolean isSet(int slotIndex) {
+        return (this.words[slotIndex / Long.SIZE] & (1L << slotIndex)) != 0;
+    }
+
+    /**
+     * Returns the index of the first available slot at or after given index, or -1 if there is none
+     *
+     * @param fromIndex
+     * @return
+     */
+    public int nextSetSlot(int fromIndex) {
+        if (fromIndex >= TOTAL_SLOTS) {
+            return -1;
+        }
+
+        int wordIndex = fromIndex / Long.SIZE;
+        long word = this.words[wordIndex] & (-1L << fromIndex);
+
+        while (true) {
+            if (word != 0) {
+                return wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == WORD_COUNT) {
+                return -1;
+            }
+            word = this.words[wordIndex];
+        }
+    }
+
+    /**
+     * Returns the index of the first unavailable slot at or after given index, or TOTAL_SLOTS if there is none
+     *
+     * @param fromIndex
+     * @return
+     */
+    public int nextClearSlot(int fromIndex) {
+        if (fromIndex >= TOTAL_SLOTS) {
+            return TOTAL_SLOTS;
+        }
+
+        int wordIndex = fromIndex / Long.SIZE;
+        long word = ~this.words[wordIndex] & (-1L << fromIndex);
+
+        while (true) {
+            if (word != 0) {
+                return Math.min(TOTAL_SLOTS, wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word));
+            }
+            if (++wordIndex == WORD_COUNT) {
+                return TOTAL_SLOTS;
+            }
+            word = ~this.words[wordIndex];
+        }
+    }
+
+    /**
+     * Returns true if no slot is available
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        for (long word : this.words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of available slots
+     *
+     * @return
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : this.words) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the raw word at given index (0...WORD_COUNT - 1)
+     *
+     * @param index
+     * @return
+     */
+    public long getWord(int index) {
+        return this.words[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PackedAvailability)) {
+            return false;
+        }
+
+        return Arrays.equals(this.words, ((PackedAvailability) o).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.words);
+    }
+
+    /**
+     * Sets bits from fromIndex (inclusive) to toIndex (exclusive)
+     *
+     * @param words
+     * @param fromIndex
+     * @param toIndex
+     */
+    public static void setRange(long[] words, int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+
+        for (int wordIndex = fromIndex / Long.SIZE; wordIndex <= (toIndex - 1) / Long.SIZE; ++wordIndex) {
+            words[wordIndex] |= getRangeMask(wordIndex, fromIndex, toIndex);
+        }
+    }
+
+    /**
+     * Returns the portion of [fromIndex, toIndex) that falls into given word, as a mask
+     *
+     * @param wordIndex
+     * @param fromIndex
+     * @param toIndex
+     * @return
+     */
+    private static long getRangeMask(int wordIndex, int fromIndex, int toIndex) {
+        int wordStart = wordIndex * Long.SIZE;
+        long mask = -1L;
+
+        if (fromIndex > wordStart) {
+            mask &= -1L << (fromIndex - wordStart);
+        }
+        if (toIndex < wordStart + Long.SIZE) {
+            mask &= -1L >>> (wordStart + Long.SIZE - toIndex);
+        }
+
+        return mask;
+    }
+
+    /**
+     * Walks the runs of available slots, splitting them at midnight
+     */
+    private class TimeRangeIterator implements Iterator<TimeRange> {
+        private int nextStart = nextSetSlot(0);
+
+        @Override
+        public boolean hasNext() {
+            return nextStart >= 0;
+        }
+
+        @Override
+        public TimeRange next() {
+            if (nextStart < 0) {
+                throw new NoSuchElementException();
+            }
+
+            int dayOfWeek = nextStart / AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY;
+            int dayStart = getSlotIndex(dayOfWeek, 0);
+            int end = Math.min(nextClearSlot(nextStart), dayStart + AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY);
+
+            TimeRange output = new TimeRange(
+                    dayOfWeek,
+                    TimeSlotConverter.getTimeByTimeSlotIndex(nextStart - dayStart),
+                    TimeSlotConverter.getTimeByTimeSlotIndex(end - dayStart)
+            );
+            nextStart = nextSetSlot(end);
+
+            return output;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.dashk.availability.models;
 
-import com.dashk.availability.utils.TimeRangeMerger;
-
 import java.util.List;
 
 /**
@@ -9,21 +7,36 @@ import java.util.List;
  */
 public class SalesDevelopmentRepresentative {
     private final String email;
-    private final List<TimeRange> availability;
+    private final PackedAvailability packedAvailability;
 
     /**
      * Constructor
      *
      * @param email Sales rep's email address
-     * @param availability List of time ranges that the sales rep is available
+     * @param availability List of time ranges that the sales rep is available (See TimeRangeMerger.merge)
      */
     public SalesDevelopmentRepresentative(String email, List<TimeRange> availability) {
+        this(email, PackedAvailability.fromTimeRanges(availability));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param email Sales rep's email address
+     * @param availability Slots that the sales rep is available
+     */
+    public SalesDevelopmentRepresentative(String email, PackedAvailability availability) {
         this.email = email;
-        this.availability = availability;
+        this.packedAvailability = availability;
     }
 
+    /**
+     * Returns the merged time ranges that the sales rep is available
+     *
+     * @return
+     */
     public List<TimeRange> getAvailableTimeRange() {
-        return this.availability;
+        return this.packedAvailability.toTimeRanges();
     }
 
     /**
@@ -33,13 +46,21 @@ public class SalesDevelopmentRepresentative {
      * @return
      */
     public boolean isAvailable(TimeRange timeRange) {
-        for (TimeRange availableTimeRange : availability) {
-            if (availableTimeRange.isEnclosing(timeRange)) {
-                return true;
-            }
-        }
+        return packedAvailability.encloses(timeRange);
+    }
+
+    /**
+     * Returns true if sales rep is available in every slot of given availability
+     *
+     * @param timeSlots
+     * @return
+     */
+    public boolean isAvailable(PackedAvailability timeSlots) {
+        return packedAvailability.encloses(timeSlots);
+    }
 
-        return false;
+    public PackedAvailability getPackedAvailability() {
+        return packedAvailability;
     }
 
     public String getEmail() {
@@ -0,0 +1,27 @@
+package com.dashk.availability.models;
+
+/**
+ * Sales rep along with how many slots of a search they are available in (See AvailabilityIndex.findTopByCoverage)
+ */
+public class SalesRepCoverage {
+    private final SalesDevelopmentRepresentative salesRep;
+    private final int coveredSlots;
+
+    public SalesRepCoverage(SalesDevelopmentRepresentative salesRep, int coveredSlots) {
+        this.salesRep = salesRep;
+        this.coveredSlots = coveredSlots;
+    }
+
+    public SalesDevelopmentRepresentative getSalesRep() {
+        return salesRep;
+    }
+
+    /**
+     * Returns the number of searched slots the sales rep is available in
+     *
+     * @return
+     */
+    public int getCoveredSlots() {
+        return coveredSlots;
+    }
+}
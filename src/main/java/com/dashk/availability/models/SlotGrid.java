@@ -0,0 +1,133 @@
+package com.dashk.availability.models;
+
+import com.dashk.availability.AvailabilityConstants;
+
+/**
+ * Days & slot length a data set is scheduled on.
+ *
+ * Slots are numbered through the week, day after day, the same way PackedAvailability numbers its bits.
+ * e.g. 7 days of 15 minutes slots => 96 slots per day, Tue 1:15 am => slot 96 + 5 = 101
+ *
+ * The default grid (Mon through Fri, 30 minutes slots) is the one PackedAvailability & the slot index are built for.
+ * Any other grid is stored as intervals (See IntervalAvailability).
+ */
+public class SlotGrid {
+    public static final SlotGrid DEFAULT = new SlotGrid(AvailabilityConstants.NUMBER_OF_DAYS, AvailabilityConstants.MINUTES_PER_SLOT);
+
+    private final int numberOfDays;
+    private final int minutesPerSlot;
+
+    /**
+     * Constructor
+     *
+     * @param numberOfDays 1 (Mon only) ... 7 (Mon through Sun)
+     * @param minutesPerSlot Must divide an hour evenly, e.g. 5, 15 or 30
+     */
+    public SlotGrid(int numberOfDays, int minutesPerSlot) {
+        if (numberOfDays < 1 || numberOfDays > AvailabilityConstants.MAX_NUMBER_OF_DAYS) {
+            throw new IllegalArgumentException(String.format("Number of days is invalid, %d. It must be between 1 and %d", numberOfDays, AvailabilityConstants.MAX_NUMBER_OF_DAYS));
+        }
+        if (minutesPerSlot < 1 || 60 % minutesPerSlot != 0) {
+            throw new IllegalArgumentException(String.format("Minutes per slot is invalid, %d. It must divide an hour evenly", minutesPerSlot));
+        }
+
+        this.numberOfDays = numberOfDays;
+        this.minutesPerSlot = minutesPerSlot;
+    }
+
+    public int getNumberOfDays() {
+        return numberOfDays;
+    }
+
+    public int getMinutesPerSlot() {
+        return minutesPerSlot;
+    }
+
+    public int getSlotsPerDay() {
+        return AvailabilityConstants.MINUTES_PER_DAY / minutesPerSlot;
+    }
+
+    public int getTotalSlots() {
+        return numberOfDays * getSlotsPerDay();
+    }
+
+    /**
+     * Returns the index of given slot within the week
+     *
+     * @param dayOfWeek
+     * @param slot
+     * @return
+     */
+    public int getSlotIndex(int dayOfWeek, int slot) {
+        return dayOfWeek * getSlotsPerDay() + slot;
+    }
+
+    /**
+     * Given a numeric time (0...2400, See TimeParser), returns its slot within the day.
+     * e.g. 15 minutes slots: 0 => 0, 115 => 5, 2400 => 96
+     *
+     * @param time
+     * @return
+     */
+    public int getSlotByTime(int time) {
+        return ((time / 100) * 60 + time % 100) / minutesPerSlot;
+    }
+
+    /**
+     * Given a slot within the day, returns its numeric time.
+     * e.g. 15 minutes slots: 0 => 0, 5 => 115, 96 => 2400
+     *
+     * @param slot
+     * @return
+     */
+    public int getTimeBySlot(int slot) {
+        int minutes = slot * minutesPerSlot;
+        return (minutes / 60) * 100 + minutes % 60;
+    }
+
+    /**
+     * Returns true if given minute of an hour falls on a slot boundary
+     *
+     * @param minute
+     * @return
+     */
+    public boolean isValidMinute(int minute) {
+        return minute >= 0 && minute < 60 && minute % minutesPerSlot == 0;
+    }
+
+    /**
+     * Describes the minutes isValidMinute accepts, for error messages
+     *
+     * @return
+     */
+    public String describeValidMinutes() {
+        if (minutesPerSlot == AvailabilityConstants.MINUTES_PER_SLOT) {
+            return "either 00 or 30";
+        }
+
+        return String.format("a multiple of %d", minutesPerSlot);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SlotGrid)) {
+            return false;
+        }
+
+        SlotGrid other = (SlotGrid) o;
+        return numberOfDays == other.numberOfDays && minutesPerSlot == other.minutesPerSlot;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * numberOfDays + minutesPerSlot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d days of %d minutes slots", numberOfDays, minutesPerSlot);
+    }
+}
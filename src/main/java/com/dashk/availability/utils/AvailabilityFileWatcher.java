@@ -0,0 +1,278 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.AvailabilityRunner;
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Keeps an availability index in sync with a CSV file.
+ *
+ * On reload, the file is read again & compared to the current data by email. Beside the index, only a 64-bit hash of
+ * each rep's availability string is kept, so only reps that are new or whose hash changed are parsed, and every other
+ * rep is copied from the current index. The result is published as a new index (See AvailabilityIndex.getVersion) by
+ * swapping a single reference, so searches that already hold the previous index finish against it undisturbed.
+ *
+ * Parsing is what gets skipped. Every reload still reads the whole file & builds every slot bitmap again, so it costs
+ * O(total reps) even if a single line changed. Emails identify reps across reloads, so a file that lists an email
+ * twice is rejected. The file is read through its channel rather than mapped, so a writer truncating it mid-reload
+ * fails that reload with an IOException, and the current index is kept.
+ *
+ * @note Two availability strings with the same hash would be taken as unchanged. At 64 bits, that is not expected to
+ * happen in practice.
+ *
+ * Usage:
+ *   AvailabilityFileWatcher watcher = new AvailabilityFileWatcher("reps.csv");
+ *   watcher.start();
+ *   ... watcher.get().find(timeSlots) ...
+ *   watcher.close();
+ */
+public class AvailabilityFileWatcher implements Supplier<AvailabilityIndex>, Closeable {
+    private static final Logger logger = LogManager.getLogger();
+    private static final long RELOAD_DELAY_MILLIS = 200;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Path path;
+    private final AtomicReference<Version> current;
+    // Kept across reloads, so a rep switching to a common schedule reuses its pattern
+    private final AvailabilityPatterns patterns = new AvailabilityPatterns();
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Loads given CSV file. Call start() to follow changes to it.
+     *
+     * @param dataFilePath
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public AvailabilityFileWatcher(String dataFilePath) throws IOException, AvailabilityException {
+        this.path = Paths.get(dataFilePath).toAbsolutePath();
+        this.current = new AtomicReference<Version>(new Version(new AvailabilityIndex.Builder().build(), new long[0]));
+
+        reload();
+    }
+
+    /**
+     * Returns the latest index. It never changes, so it can be searched for as long as needed.
+     *
+     * @return
+     */
+    @Override
+    public AvailabilityIndex get() {
+        return current.get().index;
+    }
+
+    /**
+     * Reads the file again, and publishes a new index if any rep was added, removed, changed or moved
+     *
+     * @return true if a new index was published
+     * @throws IOException if the file cannot be read, or changes while being read. The current index is kept.
+     * @throws AvailabilityException if a record is invalid, or repeats an email. The current index is kept.
+     */
+    public synchronized boolean reload() throws IOException, AvailabilityException {
+        Version previous = current.get();
+        // Only lives for the reload, to catch repeated emails
+        Map<String, Integer> idsByEmail = new HashMap<String, Integer>(Math.max(16, previous.index.size() * 4 / 3 + 1));
+        long[] hashes = new long[Math.max(16, previous.hashes.length)];
+        AvailabilityIndex.Builder builder = new AvailabilityIndex.Builder();
+        SalesRepLoader.RowConverter converter = new SalesRepLoader.RowConverter(patterns);
+        int added = 0;
+        int changed = 0;
+        int kept = 0;
+        boolean isReordered = false;
+
+        MappedCsvReader reader = new MappedCsvReader(path.toString(), false);
+        try {
+            for (int id = 0; reader.nextRecord(); ++id) {
+                if (reader.getFieldCount() <= AvailabilityRunner.AVAILABILITY_CSV_INDEX) {
+                    String field = reader.getFieldCount() <= AvailabilityRunner.EMAIL_CSV_INDEX ? RejectedRowReport.EMAIL_FIELD : RejectedRowReport.AVAILABILITY_FIELD;
+                    throw SalesRepLoader.invalidRecord(reader.getRecordNumber(), field, SalesRepLoader.MISSING_FIELD);
+                }
+
+                String email = reader.getField(AvailabilityRunner.EMAIL_CSV_INDEX).toString();
+                CsvField rawAvailability = reader.getField(AvailabilityRunner.AVAILABILITY_CSV_INDEX);
+                Integer duplicateId = idsByEmail.put(email, id);
+                if (duplicateId != null) {
+                    throw new AvailabilityException(String.format("Record %d repeats the email of record %d, %s",
+                            reader.getRecordNumber(), duplicateId + 1, email));
+                }
+
+                if (id == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, hashes.length * 2);
+                }
+                hashes[id] = hash(rawAvailability);
+
+                int previousId = previous.index.getId(email);
+                SalesDevelopmentRepresentative salesRep;
+
+                if (previousId >= 0 && previous.hashes[previousId] == hashes[id]) {
+                    ++kept;
+                    isReordered |= previousId != id;
+                    salesRep = previous.index.getSalesRep(previousId);
+                } else {
+                    if (previousId < 0) {
+                        ++added;
+                    } else {
+                        ++changed;
+                    }
+
+                    try {
+                        salesRep = converter.convert(email, rawAvailability);
+                    } catch (IllegalArgumentException e) {
+                        throw SalesRepLoader.invalidRecord(reader.getRecordNumber(), RejectedRowReport.AVAILABILITY_FIELD, e.getMessage());
+                    }
+                }
+
+                builder.add(salesRep);
+            }
+        } finally {
+            reader.close();
+        }
+
+        // Emails are distinct on both sides, so every previous rep not found again was removed
+        int removed = previous.index.size() - kept - changed;
+
+        if (added == 0 && changed == 0 && removed == 0 && !isReordered) {
+            logger.info("{} is unchanged, keeping version {}", path, previous.index.getVersion());
+            return false;
+        }
+
+        AvailabilityIndex index = builder.build();
+        Version next = new Version(index, Arrays.copyOf(hashes, index.size()));
+        current.set(next);
+
+        logger.info("Reloaded {} as version {}: {} added, {} removed, {} changed, {} reps in total",
+                path, next.index.getVersion(), added, removed, changed, next.index.size());
+        return true;
+    }
+
+    /**
+     * Starts following changes to the file on a background thread
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException(String.format("Already watching %s", path));
+        }
+
+        watchService = path.getFileSystem().newWatchService();
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "availability-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops following changes. The latest index stays available.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (thread == null) {
+            return;
+        }
+
+        watchService.close();
+        thread.interrupt();
+        thread = null;
+        watchService = null;
+    }
+
+    private void watch() {
+        WatchService watchService = this.watchService;
+
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean isFileChanged = hasFileEvent(key);
+                key.reset();
+
+                if (!isFileChanged) {
+                    continue;
+                }
+
+                // Writers tend to touch the file several times in a row, so let them settle & read it once
+                Thread.sleep(RELOAD_DELAY_MILLIS);
+                for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+
+                try {
+                    reload();
+                } catch (IOException | AvailabilityException e) {
+                    // Including a file truncated while being read, in which case the write that truncated it will
+                    // trigger another reload
+                    logger.error("Unable to reload {}, keeping version {}", path, get().getVersion(), e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.info("Stopped watching {}", path);
+        }
+    }
+
+    private boolean hasFileEvent(WatchKey key) {
+        boolean output = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(event.context())) {
+                output = true;
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * FNV-1a hash of the raw bytes of given field
+     *
+     * @param field
+     * @return
+     */
+    private static long hash(CsvField field) {
+        long output = FNV_OFFSET_BASIS;
+        for (int i = 0; i < field.length(); ++i) {
+            output = (output ^ (field.byteAt(i) & 0xFF)) * FNV_PRIME;
+        }
+
+        return output;
+    }
+
+    /**
+     * An index & the hashes of the availability strings it was built from, by id, published together
+     */
+    private static class Version {
+        final AvailabilityIndex index;
+        final long[] hashes;
+
+        Version(AvailabilityIndex index, long[] hashes) {
+            this.index = index;
+            this.hashes = hashes;
+        }
+    }
+}
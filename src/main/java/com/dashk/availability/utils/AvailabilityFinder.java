@@ -1,5 +1,6 @@
 package com.dashk.availability.utils;
 
+import com.dashk.availability.models.PackedAvailability;
 import com.dashk.availability.models.SalesDevelopmentRepresentative;
 import com.dashk.availability.models.TimeRange;
 
@@ -21,4 +22,23 @@ public class AvailabilityFinder {
 
         return availableSalesRep;
     }
+
+    /**
+     * Returns sales reps who are available in every slot of given time slots
+     *
+     * @param timeSlots
+     * @param salesReps
+     * @return
+     */
+    public static List<SalesDevelopmentRepresentative> find(PackedAvailability timeSlots, List<SalesDevelopmentRepresentative> salesReps) {
+        List<SalesDevelopmentRepresentative> availableSalesRep = new ArrayList<SalesDevelopmentRepresentative>();
+
+        for (SalesDevelopmentRepresentative salesRep: salesReps) {
+            if (salesRep.isAvailable(timeSlots)) {
+                availableSalesRep.add(salesRep);
+            }
+        }
+
+        return availableSalesRep;
+    }
 }
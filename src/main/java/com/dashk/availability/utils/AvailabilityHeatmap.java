@@ -0,0 +1,154 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.TimeRange;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Number of available sales reps in each slot of the week, over a chosen set of reps.
+ *
+ * Counts are kept up to date one rep at a time (See add, remove & replace), so a heatmap can be maintained as reps
+ * join, leave or change their availability, and read at any time without recounting.
+ *
+ * e.g. a@x.com: Mon 10:00 am - 11:00 am, b@x.com: Mon 10:30 am - 12:00 pm
+ *   => Mon slot 20: 1, slots 21: 2, slot 22, 23: 1
+ *   => findTimeRanges(2) => [ Mon 10:30 am - 11:00 am ]
+ */
+public class AvailabilityHeatmap {
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(PackedAvailability.TOTAL_SLOTS);
+
+    /**
+     * Builds a heatmap over every rep of given index. Counts come straight from the slot bitmaps.
+     *
+     * @param index
+     * @return
+     */
+    public static AvailabilityHeatmap of(AvailabilityIndex index) {
+        AvailabilityHeatmap output = new AvailabilityHeatmap();
+        for (int slot = 0; slot < PackedAvailability.TOTAL_SLOTS; ++slot) {
+            output.counts.set(slot, index.getSalesRepsBySlot(slot).getCardinality());
+        }
+
+        return output;
+    }
+
+    /**
+     * Builds a heatmap over the reps of given index with given emails. A rep listed more than once is counted once.
+     *
+     * @param index
+     * @param emails
+     * @return
+     * @throws IllegalArgumentException if an email is not in the index
+     */
+    public static AvailabilityHeatmap of(AvailabilityIndex index, List<String> emails) {
+        AvailabilityHeatmap output = new AvailabilityHeatmap();
+        long[] words = new long[PackedAvailability.WORD_COUNT];
+        BitSet counted = new BitSet(index.size());
+
+        for (String email : emails) {
+            int id = index.getId(email);
+            if (id < 0) {
+                throw new IllegalArgumentException(String.format("Unknown sales rep, %s", email));
+            }
+            if (counted.get(id)) {
+                continue;
+            }
+            counted.set(id);
+
+            for (int word = 0; word < words.length; ++word) {
+                words[word] = index.getPackedWeekWord(id, word);
+            }
+            output.update(words, 1);
+        }
+
+        return output;
+    }
+
+    /**
+     * Counts given availability in
+     *
+     * @param availability
+     */
+    public void add(PackedAvailability availability) {
+        update(availability, 1);
+    }
+
+    /**
+     * Counts given availability out. It must have been added before.
+     *
+     * @param availability
+     */
+    public void remove(PackedAvailability availability) {
+        update(availability, -1);
+    }
+
+    /**
+     * Replaces a rep's previous availability with its current one. Only slots that differ are touched.
+     *
+     * @param previous
+     * @param current
+     */
+    public void replace(PackedAvailability previous, PackedAvailability current) {
+        for (int word = 0; word < PackedAvailability.WORD_COUNT; ++word) {
+            long removed = previous.getWord(word) & ~current.getWord(word);
+            long added = current.getWord(word) & ~previous.getWord(word);
+            updateWord(word, removed, -1);
+            updateWord(word, added, 1);
+        }
+    }
+
+    /**
+     * Returns the number of available reps in given slot
+     *
+     * @param dayOfWeek
+     * @param slot
+     * @return
+     */
+    public int getCount(int dayOfWeek, int slot) {
+        return counts.get(PackedAvailability.getSlotIndex(dayOfWeek, slot));
+    }
+
+    /**
+     * Returns the slots with at least minReps available reps, as merged time ranges in day & time order (the same
+     * shape TimeRangeMerger.merge produces)
+     *
+     * @param minReps
+     * @return
+     * @throws IllegalArgumentException if minReps is less than 1, since every slot would match
+     */
+    public List<TimeRange> findTimeRanges(int minReps) {
+        if (minReps < 1) {
+            throw new IllegalArgumentException(String.format("Minimum reps must be at least 1, got %d", minReps));
+        }
+
+        long[] words = new long[PackedAvailability.WORD_COUNT];
+        for (int slot = 0; slot < PackedAvailability.TOTAL_SLOTS; ++slot) {
+            if (counts.get(slot) >= minReps) {
+                words[slot / Long.SIZE] |= 1L << slot;
+            }
+        }
+
+        return PackedAvailability.fromWords(words).toTimeRanges();
+    }
+
+    private void update(PackedAvailability availability, int delta) {
+        for (int word = 0; word < PackedAvailability.WORD_COUNT; ++word) {
+            updateWord(word, availability.getWord(word), delta);
+        }
+    }
+
+    private void update(long[] words, int delta) {
+        for (int word = 0; word < words.length; ++word) {
+            updateWord(word, words[word], delta);
+        }
+    }
+
+    private void updateWord(int word, long bits, int delta) {
+        for (; bits != 0; bits &= bits - 1) {
+            counts.addAndGet(word * Long.SIZE + Long.numberOfTrailingZeros(bits), delta);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.models.SalesRepCoverage;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Inverted index that maps each time slot of the week to the sales reps available in it.
+ *
+ * Sales reps are identified by their position in the list the index was built from. A search intersects the
+ * bitmaps of every slot in the query, so its cost follows the size of the result rather than the number of reps.
+ * Reps themselves are kept in columns (See SalesRepStore), so scans that have to look at every rep read a flat buffer
+ * of packed weeks, and rep objects are only created for results.
+ *
+ * An index never changes once built. Each index gets its own version number, so anything derived from one (e.g.
+ * cached results) can tell it apart from the next one built over updated data.
+ */
+public class AvailabilityIndex {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final Comparator<RoaringBitmap> BY_CARDINALITY = new Comparator<RoaringBitmap>() {
+        @Override
+        public int compare(RoaringBitmap a, RoaringBitmap b) {
+            return Integer.compare(a.getCardinality(), b.getCardinality());
+        }
+    };
+
+    private final SalesRepStore salesReps;
+    private final RoaringBitmap[] salesRepsBySlot;
+    private final LongBuffer packedWeeks;
+    private final long version;
+    private volatile Map<String, Integer> idsByEmail;
+
+    /**
+     * Constructor
+     *
+     * @param salesReps
+     * @param salesRepsBySlot Ids of the reps available in each slot
+     */
+    AvailabilityIndex(SalesRepStore salesReps, RoaringBitmap[] salesRepsBySlot) {
+        this.salesReps = salesReps;
+        this.salesRepsBySlot = salesRepsBySlot;
+        this.packedWeeks = salesReps.getPackedWeeks();
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Builds an index over given sales reps
+     *
+     * @param salesReps
+     * @return
+     */
+    public static AvailabilityIndex build(List<SalesDevelopmentRepresentative> salesReps) {
+        Builder builder = new Builder();
+        for (SalesDevelopmentRepresentative salesRep : salesReps) {
+            builder.add(salesRep);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns sales reps who are available in every slot of given time slots, in the order they were indexed
+     *
+     * @param timeSlots
+     * @return
+     */
+    public List<SalesDevelopmentRepresentative> find(PackedAvailability timeSlots) {
+        return findFirst(timeSlots, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of sales reps who are available in every slot of given time slots, without collecting them
+     *
+     * @param timeSlots
+     * @return
+     */
+    public int count(PackedAvailability timeSlots) {
+        PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+        timer.start();
+
+        RoaringBitmap[] bitmaps = getBitmapsBySlots(timeSlots);
+        int output = bitmaps.length == 0 ? salesReps.size() : RoaringBitmap.andCardinality(bitmaps);
+
+        timer.stop(PipelineMetrics.Stage.SEARCH, 1);
+        return output;
+    }
+
+    /**
+     * Returns up to limit sales reps who are available in every slot of given time slots, in the order they were
+     * indexed. The search stops as soon as limit reps are found.
+     *
+     * @param timeSlots
+     * @param limit
+     * @return
+     */
+    public List<SalesDevelopmentRepresentative> findFirst(PackedAvailability timeSlots, int limit) {
+        int[] ids = findFirstIds(timeSlots, limit);
+
+        List<SalesDevelopmentRepresentative> output = new ArrayList<SalesDevelopmentRepresentative>(ids.length);
+        for (int id : ids) {
+            output.add(salesReps.get(id));
+        }
+
+        return output;
+    }
+
+    /**
+     * Same as findFirst, but returns the ids of the reps, without creating them
+     *
+     * @param timeSlots
+     * @param limit
+     * @return
+     */
+    public int[] findFirstIds(PackedAvailability timeSlots, int limit) {
+        PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+        timer.start();
+
+        RoaringBitmap[] bitmaps = getBitmapsBySlots(timeSlots);
+        // No more reps can match than the rarest slot has
+        int[] output = new int[Math.max(0, Math.min(limit, bitmaps.length == 0 ? salesReps.size() : bitmaps[0].getCardinality()))];
+
+        if (output.length == 0) {
+            // Nothing to collect
+        } else if (bitmaps.length == 0) {
+            // Nothing to match against, everyone is available
+            for (int id = 0; id < output.length; ++id) {
+                output[id] = id;
+            }
+        } else {
+            IdCollector collector = new IdCollector(output);
+            RoaringBitmap.forEachInAll(bitmaps, collector);
+            output = collector.getIds();
+        }
+
+        timer.stop(PipelineMetrics.Stage.SEARCH, 1);
+        return output;
+    }
+
+    /**
+     * Ranks sales reps by how many slots of given time slots they are available in, and returns the top k, best first.
+     * Reps covering the same number of slots keep the order they were indexed in. Reps covering no slot are left out.
+     *
+     * Useful when find() comes back empty. Every rep is scored in a single pass over the packed weeks, and the best k
+     * are kept in a bounded heap of primitives, so nothing is allocated per rep.
+     *
+     * @param timeSlots
+     * @param k
+     * @return
+     */
+    public List<SalesRepCoverage> findTopByCoverage(PackedAvailability timeSlots, int k) {
+        PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+        timer.start();
+
+        long[] query = new long[PackedAvailability.WORD_COUNT];
+        for (int word = 0; word < query.length; ++word) {
+            query[word] = timeSlots.getWord(word);
+        }
+
+        // Min-heap of (covered slots << 32 | ~id), so the greater key is the better rep & the root is the worst kept
+        long[] heap = new long[Math.max(0, Math.min(k, salesReps.size()))];
+        int heapSize = 0;
+
+        for (int id = 0, offset = 0; id < salesReps.size() && heap.length > 0; ++id, offset += PackedAvailability.WORD_COUNT) {
+            int coveredSlots = 0;
+            for (int word = 0; word < query.length; ++word) {
+                coveredSlots += Long.bitCount(packedWeeks.get(offset + word) & query[word]);
+            }
+
+            if (coveredSlots == 0) {
+                continue;
+            }
+
+            long key = ((long) coveredSlots << 32) | (Integer.MAX_VALUE - id);
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        Arrays.sort(heap, 0, heapSize);
+        List<SalesRepCoverage> output = new ArrayList<SalesRepCoverage>(heapSize);
+        for (int i = heapSize - 1; i >= 0; --i) {
+            int id = Integer.MAX_VALUE - (int) heap[i];
+            output.add(new SalesRepCoverage(salesReps.get(id), (int) (heap[i] >>> 32)));
+        }
+
+        timer.stop(PipelineMetrics.Stage.SEARCH, 1);
+        return output;
+    }
+
+    /**
+     * Returns the number of indexed sales reps
+     *
+     * @return
+     */
+    public int size() {
+        return salesReps.size();
+    }
+
+    /**
+     * Returns the version of this index, unique within the process & increasing with every index built
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the sales rep with given id (Its position in the index). Each call creates a new view of the rep.
+     *
+     * @param id
+     * @return
+     */
+    public SalesDevelopmentRepresentative getSalesRep(int id) {
+        return salesReps.get(id);
+    }
+
+    /**
+     * Returns the email of the sales rep with given id, without creating the rep
+     *
+     * @param id
+     * @return
+     */
+    public String getEmail(int id) {
+        return salesReps.getEmail(id);
+    }
+
+    /**
+     * Returns the ids of sales reps available in given slot (See PackedAvailability.getSlotIndex)
+     *
+     * @param slot
+     * @return
+     */
+    RoaringBitmap getSalesRepsBySlot(int slot) {
+        return salesRepsBySlot[slot];
+    }
+
+    /**
+     * Returns the bitmaps of given slots, rarest first, so intersections stay as small as possible
+     *
+     * @param timeSlots
+     * @return
+     */
+    private RoaringBitmap[] getBitmapsBySlots(PackedAvailability timeSlots) {
+        RoaringBitmap[] bitmaps = new RoaringBitmap[timeSlots.cardinality()];
+        int count = 0;
+
+        for (int slot = timeSlots.nextSetSlot(0); slot >= 0; slot = timeSlots.nextSetSlot(slot + 1)) {
+            bitmaps[count++] = salesRepsBySlot[slot];
+        }
+
+        Arrays.sort(bitmaps, BY_CARDINALITY);
+        return bitmaps;
+    }
+
+    /**
+     * Returns the id of the sales rep with given email, or -1 if there is none. The first call maps every email, so
+     * it takes as long as a scan over the reps.
+     *
+     * @param email
+     * @return
+     */
+    public int getId(String email) {
+        Map<String, Integer> output = idsByEmail;
+        if (output == null) {
+            synchronized (this) {
+                output = idsByEmail;
+                if (output == null) {
+                    output = new HashMap<String, Integer>(salesReps.size() * 4 / 3 + 1);
+                    for (int id = 0; id < salesReps.size(); ++id) {
+                        output.put(salesReps.getEmail(id), id);
+                    }
+                    idsByEmail = output;
+                }
+            }
+        }
+
+        Integer id = output.get(email);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the packed week of the sales rep with given id, without going through the rep
+     *
+     * @param id
+     * @param word See PackedAvailability.getWord
+     * @return
+     */
+    long getPackedWeekWord(int id, int word) {
+        return packedWeeks.get(id * PackedAvailability.WORD_COUNT + word);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int index = 0;
+
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                ++child;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    /**
+     * Builds an index one sales rep at a time
+     */
+    public static class Builder {
+        private final SalesRepStore.Builder salesReps = new SalesRepStore.Builder();
+        private final RoaringBitmap[] salesRepsBySlot = new RoaringBitmap[PackedAvailability.TOTAL_SLOTS];
+
+        public Builder() {
+            for (int slot = 0; slot < salesRepsBySlot.length; ++slot) {
+                salesRepsBySlot[slot] = new RoaringBitmap();
+            }
+        }
+
+        /**
+         * Adds given sales rep to the index, and returns its id. Only its email & packed week are kept.
+         *
+         * @param salesRep
+         * @return
+         */
+        public int add(SalesDevelopmentRepresentative salesRep) {
+            int id = salesReps.add(salesRep.getEmail(), salesRep.getPackedAvailability());
+            indexSlots(id);
+
+            return id;
+        }
+
+        /**
+         * Adds the rep with given id of given store builder (e.g. reps loaded by another thread), and returns its id
+         *
+         * @param other
+         * @param otherId
+         * @return
+         */
+        public int add(SalesRepStore.Builder other, int otherId) {
+            int id = salesReps.add(other, otherId);
+            indexSlots(id);
+
+            return id;
+        }
+
+        private void indexSlots(int id) {
+            for (int word = 0; word < PackedAvailability.WORD_COUNT; ++word) {
+                for (long bits = salesReps.getPackedWeekWord(id, word); bits != 0; bits &= bits - 1) {
+                    salesRepsBySlot[word * Long.SIZE + Long.numberOfTrailingZeros(bits)].add(id);
+                }
+            }
+        }
+
+        public AvailabilityIndex build() {
+            return new AvailabilityIndex(salesReps.build(), salesRepsBySlot);
+        }
+    }
+
+    /**
+     * Collects ids until its array is full
+     */
+    private static class IdCollector implements IntPredicate {
+        private final int[] ids;
+        private int size;
+
+        IdCollector(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean test(int id) {
+            ids[size++] = id;
+            return size < ids.length;
+        }
+
+        int[] getIds() {
+            return size == ids.length ? ids : Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.PackedAvailability;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interns availability patterns, so sales reps with the same availability share one immutable packed week.
+ *
+ * Patterns are looked up by their raw availability string first, so a string seen before is neither parsed nor
+ * merged again. Lookups go through a reusable Key over the raw characters (e.g. a CsvField), so a string seen before is
+ * not even decoded; only the raw string of a new pattern is copied. Strings that are written differently but come down
+ * to the same slots (e.g. "Mon-Tue 9:00 am - 5:00 pm" and "Mon 9:00 am - 5:00 pm, Tue 9:00 am - 5:00 pm") still share
+ * one instance, since parsed patterns are also interned by value.
+ *
+ * Safe to share between loading threads. If two threads parse the same new string at once, both end up with the same
+ * instance. Once maxPatterns patterns are known, new ones are returned as is without being kept, so data without
+ * repeated patterns costs no more than before.
+ */
+public class AvailabilityPatterns {
+    public static final int DEFAULT_MAX_PATTERNS = 1 << 16;
+
+    private final int maxPatterns;
+    private final ConcurrentHashMap<Key, PackedAvailability> patternsByRawAvailability;
+    private final ConcurrentHashMap<PackedAvailability, PackedAvailability> patterns;
+    private final LongAdder hits = new LongAdder();
+
+    public AvailabilityPatterns() {
+        this(DEFAULT_MAX_PATTERNS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxPatterns Maximum number of raw strings & of distinct patterns kept
+     */
+    public AvailabilityPatterns(int maxPatterns) {
+        this.maxPatterns = maxPatterns;
+        this.patternsByRawAvailability = new ConcurrentHashMap<Key, PackedAvailability>();
+        this.patterns = new ConcurrentHashMap<PackedAvailability, PackedAvailability>();
+    }
+
+    /**
+     * Returns the pattern interned for the raw availability string given key points at, or null if it has not been seen
+     *
+     * @param rawAvailability
+     * @return
+     */
+    public PackedAvailability get(Key rawAvailability) {
+        PackedAvailability output = patternsByRawAvailability.get(rawAvailability);
+        if (output != null) {
+            hits.increment();
+        }
+
+        return output;
+    }
+
+    /**
+     * Interns given pattern, parsed from the raw availability string given key points at, and returns the shared
+     * instance. The key is copied if kept, so it can be pointed at the next string right after.
+     *
+     * @param rawAvailability
+     * @param availability
+     * @return
+     */
+    public PackedAvailability intern(Key rawAvailability, PackedAvailability availability) {
+        PackedAvailability output = patterns.get(availability);
+        if (output == null) {
+            if (patterns.size() >= maxPatterns) {
+                return availability;
+            }
+
+            output = patterns.putIfAbsent(availability, availability);
+            if (output == null) {
+                output = availability;
+            }
+        }
+
+        if (patternsByRawAvailability.size() < maxPatterns) {
+            patternsByRawAvailability.putIfAbsent(rawAvailability.copy(), output);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of distinct patterns kept
+     *
+     * @return
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a raw string seen before
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Raw availability string to look patterns up by. Compared char by char (See CsvField.charAt), so a view over a
+     * CSV field is looked up as is, without being decoded.
+     *
+     * @note Reusable, but not thread safe. Use one key per loading thread.
+     */
+    public static class Key {
+        private CharSequence chars;
+        private int hash;
+
+        /**
+         * Points this key at given characters, which must not change while the key is used
+         *
+         * @param chars
+         * @return this
+         */
+        public Key set(CharSequence chars) {
+            int hash = 0;
+            for (int i = 0; i < chars.length(); ++i) {
+                hash = 31 * hash + chars.charAt(i);
+            }
+
+            this.chars = chars;
+            this.hash = hash;
+            return this;
+        }
+
+        /**
+         * Returns a key over a copy of the current characters, so it stays valid once the source is reused
+         *
+         * @return
+         */
+        Key copy() {
+            char[] copy = new char[chars.length()];
+            for (int i = 0; i < copy.length; ++i) {
+                copy[i] = chars.charAt(i);
+            }
+
+            Key output = new Key();
+            output.chars = new String(copy);
+            output.hash = hash;
+            return output;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            if (hash != other.hash || chars.length() != other.chars.length()) {
+                return false;
+            }
+            for (int i = 0; i < chars.length(); ++i) {
+                if (chars.charAt(i) != other.chars.charAt(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
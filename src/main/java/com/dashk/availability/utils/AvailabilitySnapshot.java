@@ -0,0 +1,243 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Precompiled, memory-mapped form of an availability index, so a run can answer queries without reading the CSV.
+ *
+ * Layout (big endian):
+ *   Header: long MAGIC, int VERSION, int TOTAL_SLOTS, int rep count, long body length, long CRC32 of the body
+ *   Body:   int[rep count + 1] email offsets, UTF-8 email bytes, long[rep count * WORD_COUNT] packed availability,
+ *           then one RoaringBitmap per slot (See RoaringBitmap.writeTo)
+ *
+ * Loading checks the header & checksum, copies the slot bitmaps out of the mapping, and leaves emails & availability
+ * in the mapping, as the columns of a SalesRepStore. A sales rep is only decoded when a search returns it, and scans
+ * over every rep's availability read the mapping directly.
+ */
+public class AvailabilitySnapshot {
+    private static final long MAGIC = 0x4156414C534E4150L;     // "AVALSNAP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES * 3 + Long.BYTES * 2;
+
+    /**
+     * Writes given index to given path, replacing the file if it exists.
+     *
+     * The snapshot is written to a temporary file next to it, then moved over it in one step, so a run that maps the
+     * path meanwhile (e.g. while cron recompiles it) sees either the previous snapshot or the new one, never a partial
+     * one, and a mapping of the previous one is never truncated.
+     *
+     * @param index
+     * @param path
+     * @throws IOException
+     */
+    public static void write(AvailabilityIndex index, String path) throws IOException {
+        Path target = Paths.get(path).toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+
+        try {
+            writeTo(index, temporary);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes given index to given new file
+     *
+     * @param index
+     * @param path
+     * @throws IOException
+     */
+    private static void writeTo(AvailabilityIndex index, Path path) throws IOException {
+        FileOutputStream file = new FileOutputStream(path.toFile());
+
+        try {
+            CRC32 checksum = new CRC32();
+            CheckedOutputStream checkedOutput = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), checksum);
+            DataOutputStream output = new DataOutputStream(checkedOutput);
+
+            // Header goes in last, once the body length & checksum are known
+            output.write(new byte[HEADER_SIZE]);
+            checksum.reset();
+
+            int repCount = index.size();
+            byte[][] emails = new byte[repCount][];
+            int emailOffset = 0;
+
+            output.writeInt(emailOffset);
+            for (int id = 0; id < repCount; ++id) {
+                emails[id] = index.getEmail(id).getBytes(StandardCharsets.UTF_8);
+                emailOffset += emails[id].length;
+                output.writeInt(emailOffset);
+            }
+
+            for (byte[] email : emails) {
+                output.write(email);
+            }
+
+            for (int id = 0; id < repCount; ++id) {
+                for (int word = 0; word < PackedAvailability.WORD_COUNT; ++word) {
+                    output.writeLong(index.getPackedWeekWord(id, word));
+                }
+            }
+
+            for (int slot = 0; slot < PackedAvailability.TOTAL_SLOTS; ++slot) {
+                index.getSalesRepsBySlot(slot).writeTo(output);
+            }
+
+            output.flush();
+            if (output.size() == Integer.MAX_VALUE) {
+                throw new IOException(String.format("Snapshot of %d reps is larger than %d bytes", repCount, Integer.MAX_VALUE));
+            }
+            long bodyLength = output.size() - HEADER_SIZE;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(PackedAvailability.TOTAL_SLOTS)
+                    .putInt(repCount)
+                    .putLong(bodyLength)
+                    .putLong(checksum.getValue());
+            header.flip();
+            file.getChannel().write(header, 0);
+            // On disk before the move makes it visible under the snapshot's name
+            file.getChannel().force(true);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Returns true if given file starts with the snapshot magic number
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static boolean isSnapshot(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+
+        try {
+            return file.length() >= HEADER_SIZE && file.readLong() == MAGIC;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Maps given snapshot, and returns an index over it
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException if the file is not a snapshot, was written by another version, or is corrupted
+     */
+    public static AvailabilityIndex load(String path) throws IOException, AvailabilityException {
+        PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+        timer.start();
+
+        MappedByteBuffer buffer;
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            if (file.length() > Integer.MAX_VALUE) {
+                throw new AvailabilityException(String.format("Snapshot %s is larger than %d bytes", path, Integer.MAX_VALUE));
+            }
+            if (file.length() < HEADER_SIZE) {
+                throw new AvailabilityException(String.format("%s is not an availability snapshot", path));
+            }
+
+            // The mapping stays valid after the file is closed
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+            file.close();
+        }
+
+        if (buffer.getLong() != MAGIC) {
+            throw new AvailabilityException(String.format("%s is not an availability snapshot", path));
+        }
+
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new AvailabilityException(String.format("Snapshot %s is version %d, but only version %d is supported", path, version, VERSION));
+        }
+
+        int totalSlots = buffer.getInt();
+        if (totalSlots != PackedAvailability.TOTAL_SLOTS) {
+            throw new AvailabilityException(String.format("Snapshot %s has %d slots per week, but %d are expected", path, totalSlots, PackedAvailability.TOTAL_SLOTS));
+        }
+
+        int repCount = buffer.getInt();
+        long bodyLength = buffer.getLong();
+        long expectedChecksum = buffer.getLong();
+
+        if (bodyLength != buffer.remaining()) {
+            throw new AvailabilityException(String.format("Snapshot %s is truncated, %d bytes are expected but got %d", path, bodyLength, buffer.remaining()));
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate());
+        if (checksum.getValue() != expectedChecksum) {
+            throw new AvailabilityException(String.format("Snapshot %s is corrupted, checksum does not match", path));
+        }
+
+        try {
+            int emailOffsetsStart = buffer.position();
+            int emailsStart = emailOffsetsStart + (repCount + 1) * Integer.BYTES;
+            int availabilityStart = emailsStart + buffer.getInt(emailOffsetsStart + repCount * Integer.BYTES);
+            int bitmapsStart = availabilityStart + repCount * PackedAvailability.WORD_COUNT * Long.BYTES;
+
+            buffer.position(bitmapsStart);
+            RoaringBitmap[] salesRepsBySlot = new RoaringBitmap[PackedAvailability.TOTAL_SLOTS];
+            for (int slot = 0; slot < salesRepsBySlot.length; ++slot) {
+                salesRepsBySlot[slot] = RoaringBitmap.readFrom(buffer);
+            }
+
+            // Rep columns stay in the mapping, so they take no heap (See SalesRepStore)
+            SalesRepStore salesReps = new SalesRepStore(
+                    slice(buffer, emailOffsetsStart, emailsStart).asIntBuffer(),
+                    slice(buffer, emailsStart, availabilityStart),
+                    slice(buffer, availabilityStart, bitmapsStart).asLongBuffer()
+            );
+            timer.stop(PipelineMetrics.Stage.INDEX, repCount);
+
+            return new AvailabilityIndex(salesReps, salesRepsBySlot);
+        } catch (RuntimeException e) {
+            // Out of bounds reads, invalid containers, ...
+            throw new AvailabilityException(String.format("Snapshot %s is malformed", path), e);
+        }
+    }
+
+    /**
+     * Returns the bytes of given buffer from start (inclusive) to end (exclusive), as a buffer of their own
+     *
+     * @param buffer
+     * @param start
+     * @param end
+     * @return
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+        ByteBuffer output = buffer.duplicate();
+        output.limit(end);
+        output.position(start);
+
+        return output.slice();
+    }
+}
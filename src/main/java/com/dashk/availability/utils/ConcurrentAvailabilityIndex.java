@@ -0,0 +1,369 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Availability index whose reps can be added, replaced & removed one at a time while it is searched, e.g. as
+ * calendar events arrive.
+ *
+ * Each rep gets an id on its first put, and keeps it (even across a remove & put of the same email), so results come
+ * back in the order reps were first added. A rep is held as an immutable SalesDevelopmentRepresentative in an atomic
+ * array, so replacing its availability is a single write, and a search sees either the previous rep or the next one,
+ * never a mix. Next to it, each slot has a bitset of the ids available in it, updated with CAS, word by word.
+ *
+ * Searches never lock or wait. They AND the bitsets of the query's slots, then check each candidate against the rep
+ * it currently holds, which is the source of truth. Writers to the same rep are serialized by a striped lock, and
+ * update the bitsets so they always cover the rep that is published: slots the rep gains are set before the rep is
+ * swapped, slots it loses are cleared after. A candidate can therefore only be missed if the rep it holds at the time
+ * did not match, so every rep in a result matches as of some point during the search, and every rep that matched for
+ * the whole search is in it.
+ *
+ * Storage grows in segments of SEGMENT_SIZE ids, each holding a bitset per slot (about 2 MB per segment), so growing
+ * never copies or blocks what is already there.
+ */
+public class ConcurrentAvailabilityIndex {
+    private static final int SEGMENT_BITS = 16;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_WORDS = SEGMENT_SIZE / Long.SIZE;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentHashMap<String, Integer> idsByEmail = new ConcurrentHashMap<String, Integer>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Function<String, Integer> idAllocator = new Function<String, Integer>() {
+        @Override
+        public Integer apply(String email) {
+            return allocateId();
+        }
+    };
+    private volatile Segment[] segments = new Segment[0];
+
+    public ConcurrentAvailabilityIndex() {
+        for (int stripe = 0; stripe < locks.length; ++stripe) {
+            locks[stripe] = new Object();
+        }
+    }
+
+    /**
+     * Starts with every rep of given index, in the same order
+     *
+     * @param index
+     * @return
+     */
+    public static ConcurrentAvailabilityIndex of(AvailabilityIndex index) {
+        ConcurrentAvailabilityIndex output = new ConcurrentAvailabilityIndex();
+        for (int id = 0; id < index.size(); ++id) {
+            output.put(index.getSalesRep(id));
+        }
+
+        return output;
+    }
+
+    /**
+     * Adds given sales rep, or replaces the one with the same email
+     *
+     * @param salesRep
+     * @return The rep it replaced, or null if there was none
+     */
+    public SalesDevelopmentRepresentative put(SalesDevelopmentRepresentative salesRep) {
+        // Allocation happens inside the map's own lock for the email, so an email never gets 2 ids
+        int id = idsByEmail.computeIfAbsent(salesRep.getEmail(), idAllocator);
+        Segment segment = segments[id >>> SEGMENT_BITS];
+        int offset = id & (SEGMENT_SIZE - 1);
+
+        synchronized (locks[id & (LOCK_STRIPES - 1)]) {
+            SalesDevelopmentRepresentative previous = segment.salesReps.get(offset);
+            PackedAvailability previousSlots = previous != null ? previous.getPackedAvailability() : PackedAvailability.EMPTY;
+            PackedAvailability slots = salesRep.getPackedAvailability();
+
+            segment.setSlots(offset, slots.difference(previousSlots), true);
+            segment.salesReps.set(offset, salesRep);
+            segment.setSlots(offset, previousSlots.difference(slots), false);
+
+            if (previous == null) {
+                liveCount.incrementAndGet();
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Removes the sales rep with given email
+     *
+     * @param email
+     * @return The rep it removed, or null if there was none
+     */
+    public SalesDevelopmentRepresentative remove(String email) {
+        Integer id = idsByEmail.get(email);
+        if (id == null) {
+            return null;
+        }
+
+        Segment segment = segments[id >>> SEGMENT_BITS];
+        int offset = id & (SEGMENT_SIZE - 1);
+
+        synchronized (locks[id & (LOCK_STRIPES - 1)]) {
+            SalesDevelopmentRepresentative previous = segment.salesReps.getAndSet(offset, null);
+            if (previous != null) {
+                segment.setSlots(offset, previous.getPackedAvailability(), false);
+                liveCount.decrementAndGet();
+            }
+
+            return previous;
+        }
+    }
+
+    /**
+     * Returns the sales rep with given email, or null if there is none
+     *
+     * @param email
+     * @return
+     */
+    public SalesDevelopmentRepresentative get(String email) {
+        Integer id = idsByEmail.get(email);
+        if (id == null) {
+            return null;
+        }
+
+        return segments[id >>> SEGMENT_BITS].salesReps.get(id & (SEGMENT_SIZE - 1));
+    }
+
+    /**
+     * Returns the slots whose bitsets hold the rep with given email. Once no write to it is in progress, they are the
+     * slots of its availability, or none if it was removed.
+     *
+     * @param email
+     * @return
+     */
+    PackedAvailability getIndexedSlots(String email) {
+        Integer id = idsByEmail.get(email);
+        if (id == null) {
+            return PackedAvailability.EMPTY;
+        }
+
+        Segment segment = segments[id >>> SEGMENT_BITS];
+        int offset = id & (SEGMENT_SIZE - 1);
+        long[] words = new long[PackedAvailability.WORD_COUNT];
+        for (int slot = 0; slot < PackedAvailability.TOTAL_SLOTS; ++slot) {
+            if ((segment.salesRepsBySlot[slot].get(offset / Long.SIZE) & (1L << offset)) != 0) {
+                words[slot / Long.SIZE] |= 1L << slot;
+            }
+        }
+
+        return PackedAvailability.fromWords(words);
+    }
+
+    /**
+     * Returns the number of reps, as of the last completed put or remove
+     *
+     * @return
+     */
+    public int size() {
+        return liveCount.get();
+    }
+
+    /**
+     * Returns sales reps who are available in every slot of given time slots, in the order they were first added
+     *
+     * @param timeSlots
+     * @return
+     */
+    public List<SalesDevelopmentRepresentative> find(PackedAvailability timeSlots) {
+        return findFirst(timeSlots, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns up to limit sales reps who are available in every slot of given time slots, in the order they were first
+     * added. The search stops as soon as limit reps are found.
+     *
+     * @param timeSlots
+     * @param limit
+     * @return
+     */
+    public List<SalesDevelopmentRepresentative> findFirst(PackedAvailability timeSlots, int limit) {
+        PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+        timer.start();
+
+        List<SalesDevelopmentRepresentative> output = new ArrayList<SalesDevelopmentRepresentative>();
+        int[] slots = getSlots(timeSlots);
+        int idCount = nextId.get();
+        Segment[] segments = this.segments;
+
+        for (int segmentIndex = 0; segmentIndex < segments.length && output.size() < limit; ++segmentIndex) {
+            Segment segment = segments[segmentIndex];
+            int numWords = getWordCount(segmentIndex, idCount);
+
+            for (int word = 0; word < numWords && output.size() < limit; ++word) {
+                for (long bits = segment.and(slots, word); bits != 0 && output.size() < limit; bits &= bits - 1) {
+                    SalesDevelopmentRepresentative salesRep = segment.salesReps.get(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                    if (salesRep != null && salesRep.isAvailable(timeSlots)) {
+                        output.add(salesRep);
+                    }
+                }
+            }
+        }
+
+        timer.stop(PipelineMetrics.Stage.SEARCH, 1);
+        return output;
+    }
+
+    /**
+     * Returns the number of sales reps who are available in every slot of given time slots, without collecting them
+     *
+     * @param timeSlots
+     * @return
+     */
+    public int count(PackedAvailability timeSlots) {
+        PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+        timer.start();
+
+        int output = 0;
+        int[] slots = getSlots(timeSlots);
+        int idCount = nextId.get();
+        Segment[] segments = this.segments;
+
+        for (int segmentIndex = 0; segmentIndex < segments.length; ++segmentIndex) {
+            Segment segment = segments[segmentIndex];
+            int numWords = getWordCount(segmentIndex, idCount);
+
+            for (int word = 0; word < numWords; ++word) {
+                for (long bits = segment.and(slots, word); bits != 0; bits &= bits - 1) {
+                    SalesDevelopmentRepresentative salesRep = segment.salesReps.get(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                    if (salesRep != null && salesRep.isAvailable(timeSlots)) {
+                        ++output;
+                    }
+                }
+            }
+        }
+
+        timer.stop(PipelineMetrics.Stage.SEARCH, 1);
+        return output;
+    }
+
+    /**
+     * Returns an immutable index over the reps as of now, e.g. to write a snapshot. Reps changed while it is taken may
+     * be in either state.
+     *
+     * @return
+     */
+    public AvailabilityIndex toIndex() {
+        AvailabilityIndex.Builder builder = new AvailabilityIndex.Builder();
+        int idCount = nextId.get();
+        Segment[] segments = this.segments;
+        idCount = (int) Math.min(idCount, (long) segments.length << SEGMENT_BITS);
+
+        for (int id = 0; id < idCount; ++id) {
+            SalesDevelopmentRepresentative salesRep = segments[id >>> SEGMENT_BITS].salesReps.get(id & (SEGMENT_SIZE - 1));
+            if (salesRep != null) {
+                builder.add(salesRep);
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of words of given segment that may hold ids below given count
+     *
+     * @param segmentIndex
+     * @param idCount
+     * @return
+     */
+    private static int getWordCount(int segmentIndex, int idCount) {
+        int idsInSegment = Math.min(SEGMENT_SIZE, idCount - (segmentIndex << SEGMENT_BITS));
+        return Math.max(0, (idsInSegment + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private static int[] getSlots(PackedAvailability timeSlots) {
+        int[] output = new int[timeSlots.cardinality()];
+        int count = 0;
+
+        for (int slot = timeSlots.nextSetSlot(0); slot >= 0; slot = timeSlots.nextSetSlot(slot + 1)) {
+            output[count++] = slot;
+        }
+
+        return output;
+    }
+
+    /**
+     * Hands out the next id. Its segment is published before the id count moves past it, so a reader that reads the
+     * count and then the segments always finds a segment for every id below the count.
+     *
+     * @return
+     */
+    private synchronized int allocateId() {
+        int id = nextId.get();
+        int segmentIndex = id >>> SEGMENT_BITS;
+        if (segmentIndex >= segments.length) {
+            Segment[] next = Arrays.copyOf(segments, segmentIndex + 1);
+            next[segmentIndex] = new Segment();
+            segments = next;
+        }
+
+        nextId.set(id + 1);
+        return id;
+    }
+
+    /**
+     * SEGMENT_SIZE consecutive ids: their reps, and a bitset per slot of the ones available in it
+     */
+    private static class Segment {
+        final AtomicReferenceArray<SalesDevelopmentRepresentative> salesReps = new AtomicReferenceArray<SalesDevelopmentRepresentative>(SEGMENT_SIZE);
+        final AtomicLongArray[] salesRepsBySlot = new AtomicLongArray[PackedAvailability.TOTAL_SLOTS];
+
+        Segment() {
+            for (int slot = 0; slot < salesRepsBySlot.length; ++slot) {
+                salesRepsBySlot[slot] = new AtomicLongArray(SEGMENT_WORDS);
+            }
+        }
+
+        /**
+         * Returns the bits of given word that are set for every given slot. Every bit is set if there is no slot.
+         *
+         * @param slots
+         * @param word
+         * @return
+         */
+        long and(int[] slots, int word) {
+            long output = -1L;
+            for (int i = 0; i < slots.length && output != 0; ++i) {
+                output &= salesRepsBySlot[slots[i]].get(word);
+            }
+
+            return output;
+        }
+
+        /**
+         * Sets or clears the bit of given offset for every given slot
+         *
+         * @param offset
+         * @param slots
+         * @param isAvailable
+         */
+        void setSlots(int offset, PackedAvailability slots, boolean isAvailable) {
+            int word = offset / Long.SIZE;
+            long mask = 1L << offset;
+
+            for (int slot = slots.nextSetSlot(0); slot >= 0; slot = slots.nextSetSlot(slot + 1)) {
+                AtomicLongArray bitset = salesRepsBySlot[slot];
+                long current;
+                long next;
+                do {
+                    current = bitset.get(word);
+                    next = isAvailable ? current | mask : current & ~mask;
+                } while (current != next && !bitset.compareAndSet(word, current, next));
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dashk.availability.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * View over a single CSV field within a byte buffer (See MappedCsvReader).
+ *
+ * The view does not copy the field. Characters are read straight from the underlying UTF-8 bytes, so charAt only
+ * returns meaningful characters for ASCII content (e.g. availability strings). Use toString() to decode the field.
+ *
+ * @note A view is reused for the next record, so it must not be kept after MappedCsvReader.nextRecord() is called.
+ */
+public class CsvField implements CharSequence {
+    private static final byte QUOTE = '"';
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    private boolean hasEscapedQuotes;
+    private byte[] unescaped;
+
+    /**
+     * Points this view at given bytes. Quoted fields are passed without their enclosing quotes.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @param hasEscapedQuotes true if the field contains "" that must be read as "
+     */
+    void set(ByteBuffer buffer, int offset, int length, boolean hasEscapedQuotes) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.hasEscapedQuotes = hasEscapedQuotes;
+        this.unescaped = null;
+
+        if (hasEscapedQuotes) {
+            unescape();
+        }
+    }
+
+    @Override
+    public int length() {
+        return unescaped != null ? unescaped.length : length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (byteAt(index) & 0xFF);
+    }
+
+    /**
+     * Returns the raw byte at given index
+     *
+     * @param index
+     * @return
+     */
+    public byte byteAt(int index) {
+        if (unescaped != null) {
+            return unescaped[index];
+        }
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of range, %d", index, length));
+        }
+
+        return buffer.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * Decodes the field as UTF-8
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        if (unescaped != null) {
+            return new String(unescaped, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = buffer.get(offset + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the field with "" collapsed into ". Only needed for fields that actually contain escaped quotes.
+     */
+    private void unescape() {
+        byte[] bytes = new byte[length];
+        int size = 0;
+
+        for (int i = 0; i < length; ++i) {
+            byte value = buffer.get(offset + i);
+            bytes[size++] = value;
+
+            if (value == QUOTE) {
+                // Skip the second quote of the pair
+                ++i;
+            }
+        }
+
+        unescaped = new byte[size];
+        System.arraycopy(bytes, 0, unescaped, 0, size);
+    }
+}
@@ -1,5 +1,7 @@
 package com.dashk.availability.utils;
 
+import com.dashk.availability.AvailabilityConstants;
+
 /**
  * Converts day of week represent to/from string/int
  */
@@ -11,23 +13,47 @@ public class DayOfWeekConverter {
      * @throws AvailabilityException
      */
     public static int convert(String dayOfWeek) throws IllegalArgumentException {
+        return convert(dayOfWeek, AvailabilityConstants.NUMBER_OF_DAYS);
+    }
+
+    /**
+     * Given Mon, Tue, ..., Sun, returns corresponding day in week (0, 1, ..., 6), as long as it is one of the first
+     * numberOfDays days (See SlotGrid)
+     *
+     * @param dayOfWeek
+     * @param numberOfDays
+     * @return
+     * @throws IllegalArgumentException
+     */
+    public static int convert(String dayOfWeek, int numberOfDays) throws IllegalArgumentException {
+        int output;
         if (dayOfWeek.equals("Mon")) {
-            return 0;
+            output = 0;
         } else if (dayOfWeek.equals("Tue")) {
-            return 1;
+            output = 1;
         } else if (dayOfWeek.equals("Wed")) {
-            return 2;
+            output = 2;
         } else if (dayOfWeek.equals("Thu")) {
-            return 3;
+            output = 3;
         } else if (dayOfWeek.equals("Fri")) {
-            return 4;
+            output = 4;
+        } else if (dayOfWeek.equals("Sat")) {
+            output = 5;
+        } else if (dayOfWeek.equals("Sun")) {
+            output = 6;
         } else {
+            output = -1;
+        }
+
+        if (output < 0 || output >= numberOfDays) {
             throw new IllegalArgumentException(String.format("Unrecognized day of week, %s", dayOfWeek));
         }
+
+        return output;
     }
 
     /**
-     * Given 0, 1, .., 4, returns corresponding string representing the day of week (Mon, Tue, ..., Fri)
+     * Given 0, 1, .., 6, returns corresponding string representing the day of week (Mon, Tue, ..., Sun)
      *
      * @param dayOfWeek
      * @return
@@ -40,6 +66,8 @@ public class DayOfWeekConverter {
             case 2: return "Wed";
             case 3: return "Thu";
             case 4: return "Fri";
+            case 5: return "Sat";
+            case 6: return "Sun";
             default:
                 throw new IllegalArgumentException(
                         String.format("Unrecognized day of week index %d", dayOfWeek));
@@ -0,0 +1,397 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.IntervalAvailability;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SlotGrid;
+
+/**
+ * Single pass parser that converts an availability string straight into a packed week.
+ *
+ * Accepts the same format & applies the same validation as TimeRangeParser + TimeParser (See README), but scans the
+ * input once, character by character, without splitting it into strings or building TimeRange objects. Overlapping
+ * ranges are merged for free, since they set the same bits.
+ *
+ * e.g. "Mon-Tue 10:00 am - 1:00 pm, Fri 9:00 am - 9:30 am" => Mon & Tue slots 20...25, Fri slot 18
+ *
+ * A parser for another SlotGrid also accepts the days & minutes of that grid (e.g. "Sat 10:15 am - 11:45 am"), and
+ * parses into intervals instead (See IntervalAvailability).
+ *
+ * @note A parser instance keeps scanning state, so it must not be shared between threads.
+ */
+public class FastTimeRangeParser {
+    private static final char TIME_RANGE_SEPARATOR = ',';
+    private static final char RANGE_SEPARATOR = '-';
+    private static final char HOUR_MINUTE_SEPARATOR = ':';
+    private static final char SEPARATOR = ' ';
+    private static final int MIDNIGHT_END_TIME = 2400;
+
+    private final SlotGrid grid;
+    private final int lastTime;
+    private CharSequence input;
+    private int length;
+    private int position;
+    private long[] words;
+    private IntervalAvailability.Builder intervals;
+
+    public FastTimeRangeParser() {
+        this(SlotGrid.DEFAULT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param grid Days & minutes to accept
+     */
+    public FastTimeRangeParser(SlotGrid grid) {
+        this.grid = grid;
+        this.lastTime = TimeParser.getLastTime(grid);
+    }
+
+    /**
+     * Parses given availability string into a new packed week
+     *
+     * @param rawAvailability
+     * @return
+     * @throws IllegalArgumentException if the availability string is invalid
+     */
+    public static PackedAvailability parse(CharSequence rawAvailability) {
+        long[] words = new long[PackedAvailability.WORD_COUNT];
+        new FastTimeRangeParser().parseInto(rawAvailability, words);
+
+        return PackedAvailability.fromWords(words);
+    }
+
+    /**
+     * Parses given availability string, and sets the available slots on given words. Nothing is allocated unless the
+     * input is invalid.
+     *
+     * @param rawAvailability
+     * @param words Packed week to set slots on (See PackedAvailability.WORD_COUNT)
+     * @throws IllegalArgumentException if the availability string is invalid
+     */
+    public void parseInto(CharSequence rawAvailability, long[] words) {
+        if (!grid.equals(SlotGrid.DEFAULT)) {
+            throw new IllegalStateException(String.format("Only %s fit a packed week, but this parser is for %s", SlotGrid.DEFAULT, grid));
+        }
+
+        this.words = words;
+        scan(rawAvailability);
+    }
+
+    /**
+     * Parses given availability string into intervals on given grid
+     *
+     * @param rawAvailability
+     * @param grid
+     * @return
+     * @throws IllegalArgumentException if the availability string is invalid
+     */
+    public static IntervalAvailability parseIntervals(CharSequence rawAvailability, SlotGrid grid) {
+        IntervalAvailability.Builder builder = new IntervalAvailability.Builder();
+        new FastTimeRangeParser(grid).parseInto(rawAvailability, builder);
+
+        return builder.build();
+    }
+
+    /**
+     * Parses given availability string, and adds the available slots to given builder
+     *
+     * @param rawAvailability
+     * @param intervals
+     * @throws IllegalArgumentException if the availability string is invalid
+     */
+    public void parseInto(CharSequence rawAvailability, IntervalAvailability.Builder intervals) {
+        this.intervals = intervals;
+        scan(rawAvailability);
+    }
+
+    private void scan(CharSequence rawAvailability) {
+        this.input = rawAvailability;
+        this.length = rawAvailability.length();
+        this.position = 0;
+
+        // Like String.split in TimeRangeParser, separators that end the input are dropped, along with the empty ranges
+        // after them (e.g. "Mon 10:00 am - 11:00 am,"). Input made of separators only has no range at all.
+        while (length > 0 && input.charAt(length - 1) == TIME_RANGE_SEPARATOR) {
+            --length;
+        }
+
+        try {
+            if (length == 0 && input.length() > 0) {
+                return;
+            }
+
+            // At least one time range, and one after every separator
+            skipWhitespace();
+            while (true) {
+                if (position == length) {
+                    throw missingRange();
+                }
+                parseRange();
+
+                skipWhitespace();
+                if (position == length) {
+                    break;
+                }
+                expect(TIME_RANGE_SEPARATOR);
+                skipWhitespace();
+            }
+        } finally {
+            this.input = null;
+            this.words = null;
+            this.intervals = null;
+        }
+    }
+
+    /**
+     * Parses "Mon-Tue 10:00 am - 1:00 pm" at the current position
+     */
+    private void parseRange() {
+        int firstDay = parseDay();
+        int lastDay = firstDay;
+
+        if (peek() == RANGE_SEPARATOR) {
+            ++position;
+            lastDay = parseDay();
+        }
+
+        if (peek() != SEPARATOR) {
+            throw malformed();
+        }
+        skipWhitespace();
+
+        int startTime = parseTime();
+
+        skipWhitespace();
+        expect(RANGE_SEPARATOR);
+        skipWhitespace();
+
+        int endTime = parseTime();
+        if (endTime == 0) {
+            endTime = MIDNIGHT_END_TIME;
+        }
+
+        // @NOTE: Like TimeRangeParser, a reversed day range (e.g. Thu-Mon) covers no days, so there is no time range
+        // to validate either
+        if (firstDay > lastDay) {
+            return;
+        }
+
+        if (startTime >= endTime) {
+            throw new IllegalArgumentException(String.format("Start time %d must be less than end time %d", startTime, endTime));
+        }
+
+        if (words != null) {
+            int startSlot = TimeSlotConverter.getTimeSlotIndexByTime(startTime);
+            int endSlot = TimeSlotConverter.getTimeSlotIndexByTime(endTime);
+
+            for (int dayOfWeek = firstDay; dayOfWeek <= lastDay; ++dayOfWeek) {
+                PackedAvailability.setRange(
+                        words,
+                        PackedAvailability.getSlotIndex(dayOfWeek, startSlot),
+                        PackedAvailability.getSlotIndex(dayOfWeek, endSlot)
+                );
+            }
+        } else {
+            int startSlot = grid.getSlotByTime(startTime);
+            int endSlot = grid.getSlotByTime(endTime);
+
+            for (int dayOfWeek = firstDay; dayOfWeek <= lastDay; ++dayOfWeek) {
+                intervals.add(grid.getSlotIndex(dayOfWeek, startSlot), grid.getSlotIndex(dayOfWeek, endSlot));
+            }
+        }
+    }
+
+    /**
+     * Parses "Mon", ..., "Sun" at the current position, and returns its index (See DayOfWeekConverter). Days past the
+     * grid's last day are not recognized.
+     *
+     * @return
+     */
+    private int parseDay() {
+        int start = position;
+        if (position + 3 > length) {
+            throw unrecognizedDay(start);
+        }
+
+        char first = input.charAt(position);
+        char second = input.charAt(position + 1);
+        char third = input.charAt(position + 2);
+        position += 3;
+
+        int dayOfWeek;
+        if (first == 'M' && second == 'o' && third == 'n') {
+            dayOfWeek = 0;
+        } else if (first == 'T' && second == 'u' && third == 'e') {
+            dayOfWeek = 1;
+        } else if (first == 'W' && second == 'e' && third == 'd') {
+            dayOfWeek = 2;
+        } else if (first == 'T' && second == 'h' && third == 'u') {
+            dayOfWeek = 3;
+        } else if (first == 'F' && second == 'r' && third == 'i') {
+            dayOfWeek = 4;
+        } else if (first == 'S' && second == 'a' && third == 't') {
+            dayOfWeek = 5;
+        } else if (first == 'S' && second == 'u' && third == 'n') {
+            dayOfWeek = 6;
+        } else {
+            throw unrecognizedDay(start);
+        }
+
+        if (dayOfWeek >= grid.getNumberOfDays()) {
+            throw unrecognizedDay(start);
+        }
+
+        return dayOfWeek;
+    }
+
+    /**
+     * Parses "10:00 am" at the current position, and returns the same numeric time TimeParser.convertToNumericTime
+     * does (e.g. 1000, or 1330 for "1:30 pm").
+     *
+     * @return
+     */
+    private int parseTime() {
+        int start = position;
+
+        int hour = parseDigits(2);
+        if (hour < 0) {
+            throw invalidTime(start);
+        }
+
+        expect(HOUR_MINUTE_SEPARATOR);
+
+        int minuteStart = position;
+        int minute = parseDigits(2);
+        if (minute < 0 || position - minuteStart != 2) {
+            throw invalidTime(start);
+        }
+
+        if (peek() != SEPARATOR) {
+            throw invalidTime(start);
+        }
+        skipWhitespace();
+
+        boolean isPm;
+        char first = peek();
+        char second = position + 1 < length ? input.charAt(position + 1) : 0;
+        if (first == 'a' && second == 'm') {
+            isPm = false;
+        } else if (first == 'p' && second == 'm') {
+            isPm = true;
+        } else {
+            throw new IllegalArgumentException(String.format("Time of day is invalid, %s. It must be either am or pm", textFrom(start, false)));
+        }
+        position += 2;
+
+        int time = hour * 100 + minute;
+
+        // Same rules as TimeParser.validateTime
+        // @NOTE(dashk): 0000 is considered invalid time
+        if (time < 100 || time > lastTime) {
+            throw invalidTime(start);
+        }
+        if (!grid.isValidMinute(minute)) {
+            throw new IllegalArgumentException(String.format("Minute is invalid, %s. It must be %s", textFrom(start, false), grid.describeValidMinutes()));
+        }
+
+        if (time < 1200 && isPm) {
+            time += 1200;
+        } else if (time == 1200 && !isPm) {
+            time = 0;
+        }
+
+        return time;
+    }
+
+    /**
+     * Parses up to maxDigits digits at the current position, not counting leading zeros, as TimeParser reads the
+     * digits as a number (e.g. "010:00" is 10:00)
+     *
+     * @param maxDigits
+     * @return the value, or -1 if there is no digit
+     */
+    private int parseDigits(int maxDigits) {
+        int value = 0;
+        int count = 0;
+        boolean hasDigit = false;
+
+        while (count < maxDigits && position < length) {
+            char c = input.charAt(position);
+            if (c < '0' || c > '9') {
+                break;
+            }
+
+            value = value * 10 + (c - '0');
+            ++position;
+            hasDigit = true;
+            if (value > 0) {
+                ++count;
+            }
+        }
+
+        return hasDigit ? value : -1;
+    }
+
+    private char peek() {
+        return position < length ? input.charAt(position) : 0;
+    }
+
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw malformed();
+        }
+
+        ++position;
+    }
+
+    private void skipWhitespace() {
+        while (position < length && isWhitespace(input.charAt(position))) {
+            ++position;
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        // Same as what String.trim() strips, which is what TimeRangeParser allows around ranges & dashes. Days & times
+        // are split off at the first ' ' though, so whitespace after them must start with one (See SEPARATOR), e.g.
+        // "Mon\t10:00 am" is rejected.
+        return c != 0 && c <= ' ';
+    }
+
+    /**
+     * Returns the token starting at given position, for error messages. A token ends at a range separator, a time
+     * range separator, or, if stopAtWhitespace is set, at whitespace.
+     *
+     * @param start
+     * @param stopAtWhitespace
+     * @return
+     */
+    private String textFrom(int start, boolean stopAtWhitespace) {
+        int end = start;
+        while (end < input.length()) {
+            char c = input.charAt(end);
+            if (c == TIME_RANGE_SEPARATOR || c == RANGE_SEPARATOR || (stopAtWhitespace && isWhitespace(c))) {
+                break;
+            }
+            ++end;
+        }
+
+        return input.subSequence(start, end).toString().trim();
+    }
+
+    private IllegalArgumentException malformed() {
+        return new IllegalArgumentException(String.format("Time range is malformed at position %d, %s", position, input));
+    }
+
+    private IllegalArgumentException missingRange() {
+        return new IllegalArgumentException(String.format("At least one time range must be specified, and one after each separator, %s", input));
+    }
+
+    private IllegalArgumentException unrecognizedDay(int start) {
+        return new IllegalArgumentException(String.format("Unrecognized day of week, %s", textFrom(start, true)));
+    }
+
+    private IllegalArgumentException invalidTime(int start) {
+        return new IllegalArgumentException(String.format("Time is invalid, %s", textFrom(start, false)));
+    }
+}
@@ -0,0 +1,143 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.IntervalAvailability;
+import com.dashk.availability.models.SlotGrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sales reps scheduled on any SlotGrid (e.g. 7 days of 5 minutes slots), with their availability stored as intervals.
+ *
+ * Every rep's interval bounds (See IntervalAvailability) are kept back to back in one flat array, with one offset per
+ * rep, so a rep costs two ints per interval however fine the grid is. A search scans the reps & binary searches each
+ * one's intervals for every interval of the query.
+ *
+ * An index never changes once built.
+ */
+public class IntervalAvailabilityIndex {
+    private final SlotGrid grid;
+    private final List<String> emails;
+    private final int[] bounds;
+    private final int[] offsets;
+
+    private IntervalAvailabilityIndex(SlotGrid grid, List<String> emails, int[] bounds, int[] offsets) {
+        this.grid = grid;
+        this.emails = emails;
+        this.bounds = bounds;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the emails of up to limit sales reps who are available in every slot of given time slots, in the order
+     * they were indexed
+     *
+     * @param timeSlots Parsed on this index's grid (See FastTimeRangeParser.parseIntervals)
+     * @param limit
+     * @return
+     */
+    public List<String> findFirst(IntervalAvailability timeSlots, int limit) {
+        List<String> output = new ArrayList<String>();
+
+        for (int id = 0; id < emails.size() && output.size() < limit; ++id) {
+            if (IntervalAvailability.encloses(bounds, offsets[id], offsets[id + 1], timeSlots)) {
+                output.add(emails.get(id));
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of sales reps who are available in every slot of given time slots
+     *
+     * @param timeSlots
+     * @return
+     */
+    public int count(IntervalAvailability timeSlots) {
+        int output = 0;
+
+        for (int id = 0; id < emails.size(); ++id) {
+            if (IntervalAvailability.encloses(bounds, offsets[id], offsets[id + 1], timeSlots)) {
+                ++output;
+            }
+        }
+
+        return output;
+    }
+
+    public SlotGrid getGrid() {
+        return grid;
+    }
+
+    public String getEmail(int id) {
+        return emails.get(id);
+    }
+
+    /**
+     * Returns the number of indexed sales reps
+     *
+     * @return
+     */
+    public int size() {
+        return emails.size();
+    }
+
+    /**
+     * Returns the number of intervals across every rep
+     *
+     * @return
+     */
+    public int getIntervalCount() {
+        return bounds.length / 2;
+    }
+
+    /**
+     * Collects sales reps one at a time
+     */
+    public static class Builder {
+        private final SlotGrid grid;
+        private final List<String> emails = new ArrayList<String>();
+        private int[] bounds = new int[64];
+        private int[] offsets = new int[16];
+        private int size;
+
+        public Builder(SlotGrid grid) {
+            this.grid = grid;
+        }
+
+        /**
+         * Adds a sales rep to the index, and returns its id
+         *
+         * @param email
+         * @param availability Parsed on the builder's grid
+         * @return
+         */
+        public int add(String email, IntervalAvailability availability) {
+            int id = emails.size();
+            emails.add(email);
+
+            int count = availability.getIntervalCount() * 2;
+            while (size + count > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            for (int interval = 0; interval < availability.getIntervalCount(); ++interval) {
+                bounds[size++] = availability.getStart(interval);
+                bounds[size++] = availability.getEnd(interval);
+            }
+
+            if (id + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[id + 1] = size;
+
+            return id;
+        }
+
+        public IntervalAvailabilityIndex build() {
+            return new IntervalAvailabilityIndex(grid, emails,
+                    Arrays.copyOf(bounds, size), Arrays.copyOf(offsets, emails.size() + 1));
+        }
+    }
+}
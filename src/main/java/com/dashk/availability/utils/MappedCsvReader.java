@@ -0,0 +1,307 @@
+package com.dashk.availability.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * RFC4180 reader over a memory-mapped UTF-8 file.
+ *
+ * Records are read one at a time, and fields are handed out as views (See CsvField) over the mapped bytes rather than
+ * as decoded strings. Large files are mapped in windows, so a record must fit within a window.
+ *
+ * A file that another process may truncate while it is read (e.g. one being watched) should be read unmapped instead
+ * (See MappedCsvReader(String, boolean)): a mapped read past the new end of the file faults the JVM, while an unmapped
+ * one fails with an IOException.
+ *
+ * Usage:
+ *   while (reader.nextRecord()) {
+ *       CsvField email = reader.getField(0);
+ *       ...
+ *   }
+ */
+public class MappedCsvReader implements Closeable {
+    private static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+    // Unmapped windows live on the heap, so they are kept smaller
+    private static final long DEFAULT_READ_WINDOW_SIZE = 16L * 1024 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte DELIMITER = ',';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte NEW_LINE = '\n';
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long end;
+    private final long windowSize;
+    private final boolean isMapped;
+
+    private ByteBuffer buffer;
+    private long bufferStart;
+    private int position;
+    private long recordNumber;
+
+    private CsvField[] fields = new CsvField[0];
+    private int fieldCount;
+
+    /**
+     * Reads the whole file
+     *
+     * @param path
+     * @throws IOException
+     */
+    public MappedCsvReader(String path) throws IOException {
+        this(path, true);
+    }
+
+    /**
+     * Reads the whole file, mapped or not. Unmapped, each window is read into the heap, and the reader fails with an
+     * IOException if the file is cut short or changes size before the last record is read.
+     *
+     * @param path
+     * @param isMapped false to read the file through its channel
+     * @throws IOException
+     */
+    public MappedCsvReader(String path, boolean isMapped) throws IOException {
+        this.file = new RandomAccessFile(path, "r");
+        this.channel = file.getChannel();
+        this.end = channel.size();
+        this.windowSize = isMapped ? DEFAULT_WINDOW_SIZE : DEFAULT_READ_WINDOW_SIZE;
+        this.isMapped = isMapped;
+        map(0);
+    }
+
+    /**
+     * Reads records within [start, end) of given channel. start must be the beginning of a record.
+     * The channel is left open on close.
+     *
+     * @param channel
+     * @param start
+     * @param end
+     * @throws IOException
+     */
+    public MappedCsvReader(FileChannel channel, long start, long end) throws IOException {
+        this(channel, start, end, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedCsvReader(FileChannel channel, long start, long end, long windowSize) throws IOException {
+        this(channel, start, end, windowSize, true);
+    }
+
+    MappedCsvReader(FileChannel channel, long start, long end, long windowSize, boolean isMapped) throws IOException {
+        this.file = null;
+        this.channel = channel;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.isMapped = isMapped;
+        map(start);
+    }
+
+    /**
+     * Moves to the next record
+     *
+     * @return false if there are no more records
+     * @throws IOException if the record is malformed
+     */
+    public boolean nextRecord() throws IOException {
+        if (bufferStart + position >= end) {
+            if (!isMapped && channel.size() != end) {
+                throw new IOException(String.format("File changed size from %d to %d bytes while being read", end, channel.size()));
+            }
+            return false;
+        }
+
+        int recordStart = position;
+        if (!parseRecord()) {
+            // Record spans past the mapped window, so map again from the start of the record
+            if (recordStart == 0) {
+                throw new IOException(String.format("Record %d is larger than %d bytes", recordNumber + 1, windowSize));
+            }
+
+            map(bufferStart + recordStart);
+            if (!parseRecord()) {
+                throw new IOException(String.format("Record %d is larger than %d bytes", recordNumber + 1, windowSize));
+            }
+        }
+
+        ++recordNumber;
+        return true;
+    }
+
+    /**
+     * Returns the number of fields in the current record
+     *
+     * @return
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns a view over given field of the current record
+     *
+     * @param index
+     * @return
+     */
+    public CsvField getField(int index) {
+        if (index >= fieldCount) {
+            throw new IndexOutOfBoundsException(String.format("Record %d has %d fields, but field %d is requested", recordNumber, fieldCount, index));
+        }
+
+        return fields[index];
+    }
+
+    /**
+     * Returns the 1-based number of the current record
+     *
+     * @return
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    private void map(long start) throws IOException {
+        long size = Math.min(end - start, windowSize);
+        if (isMapped) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        } else {
+            read(start, (int) size);
+        }
+        bufferStart = start;
+        position = 0;
+    }
+
+    /**
+     * Reads size bytes from start into the heap window, reusing it from one window to the next
+     *
+     * @param start
+     * @param size
+     * @throws IOException if the file ends first
+     */
+    private void read(long start, int size) throws IOException {
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size);
+        }
+
+        buffer.clear();
+        buffer.limit(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException(String.format("File ended at %d bytes while being read, expected %d", start + buffer.position(), end));
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Parses the record starting at position
+     *
+     * @return false if the window ends before the record does (and the file goes on)
+     * @throws IOException
+     */
+    private boolean parseRecord() throws IOException {
+        int limit = buffer.limit();
+        boolean isLastWindow = bufferStart + limit >= end;
+        int index = position;
+        fieldCount = 0;
+
+        while (true) {
+            int fieldStart;
+            int fieldEnd;
+            boolean hasEscapedQuotes = false;
+
+            if (index < limit && buffer.get(index) == QUOTE) {
+                // Quoted field, runs until a quote that is not followed by another quote
+                fieldStart = ++index;
+                while (true) {
+                    if (index >= limit) {
+                        if (isLastWindow) {
+                            throw new IOException(String.format("Record %d ends within a quoted field", recordNumber + 1));
+                        }
+                        return false;
+                    }
+
+                    if (buffer.get(index) == QUOTE) {
+                        if (index + 1 < limit && buffer.get(index + 1) == QUOTE) {
+                            hasEscapedQuotes = true;
+                            index += 2;
+                            continue;
+                        }
+                        if (index + 1 >= limit && !isLastWindow) {
+                            return false;
+                        }
+                        break;
+                    }
+
+                    ++index;
+                }
+
+                fieldEnd = index++;
+                if (index < limit && !isSeparator(buffer.get(index))) {
+                    throw new IOException(String.format("Invalid character between quoted field and delimiter in record %d", recordNumber + 1));
+                }
+            } else {
+                fieldStart = index;
+                while (index < limit && !isSeparator(buffer.get(index))) {
+                    ++index;
+                }
+                fieldEnd = index;
+            }
+
+            if (index >= limit && !isLastWindow) {
+                return false;
+            }
+
+            addField(fieldStart, fieldEnd - fieldStart, hasEscapedQuotes);
+
+            if (index >= limit) {
+                position = index;
+                return true;
+            }
+
+            byte separator = buffer.get(index++);
+            if (separator == DELIMITER) {
+                continue;
+            }
+
+            // End of record: \n, \r or \r\n
+            if (separator == CARRIAGE_RETURN) {
+                if (index >= limit && !isLastWindow) {
+                    return false;
+                }
+                if (index < limit && buffer.get(index) == NEW_LINE) {
+                    ++index;
+                }
+            }
+
+            position = index;
+            return true;
+        }
+    }
+
+    private static boolean isSeparator(byte value) {
+        return value == DELIMITER || value == NEW_LINE || value == CARRIAGE_RETURN;
+    }
+
+    private void addField(int offset, int length, boolean hasEscapedQuotes) {
+        if (fieldCount == fields.length) {
+            CsvField[] expanded = new CsvField[Math.max(2, fields.length * 2)];
+            System.arraycopy(fields, 0, expanded, 0, fields.length);
+            for (int i = fields.length; i < expanded.length; ++i) {
+                expanded[i] = new CsvField();
+            }
+            fields = expanded;
+        }
+
+        fields[fieldCount++].set(buffer, offset, length, hasEscapedQuotes);
+    }
+}
@@ -0,0 +1,387 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads sales reps from an availability data file using all cores.
+ *
+ * The file is split into byte ranges that end on record boundaries, each range is parsed & merged on a fork-join
+ * pool, and the results are indexed in file order. The resulting index is the same as the one SalesRepLoader builds.
+ */
+public class ParallelSalesRepLoader {
+    private static final Logger logger = LogManager.getLogger();
+    private static final long MIN_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final byte QUOTE = '"';
+    private static final byte NEW_LINE = '\n';
+
+    /**
+     * Loads given data file with as many threads as there are available processors
+     *
+     * @param dataFilePath
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public static AvailabilityIndex load(String dataFilePath) throws IOException, AvailabilityException {
+        return load(dataFilePath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads given data file with as many threads as there are available processors, skipping rows that cannot be
+     * converted (See SalesRepLoader.load(String, RejectedRowReport))
+     *
+     * @param dataFilePath
+     * @param rejects null to fail on the first invalid row
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public static AvailabilityIndex load(String dataFilePath, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        return load(dataFilePath, Runtime.getRuntime().availableProcessors(), rejects);
+    }
+
+    /**
+     * Loads given data file with given number of threads. Small files are streamed on the calling thread.
+     *
+     * @param dataFilePath
+     * @param parallelism
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public static AvailabilityIndex load(String dataFilePath, int parallelism) throws IOException, AvailabilityException {
+        return load(dataFilePath, parallelism, null);
+    }
+
+    /**
+     * Loads given data file with given number of threads, skipping rows that cannot be converted if given a report.
+     * Rejected rows are reported in file order, with the same record numbers as a sequential load.
+     *
+     * @param dataFilePath
+     * @param parallelism
+     * @param rejects null to fail on the first invalid row
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public static AvailabilityIndex load(String dataFilePath, int parallelism, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        return load(dataFilePath, parallelism, rejects, MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Same as load(dataFilePath, parallelism, rejects), with chunks of at least minChunkSize bytes. Tests use small
+     * chunks so small files take the parallel path.
+     *
+     * @param dataFilePath
+     * @param parallelism
+     * @param rejects null to fail on the first invalid row
+     * @param minChunkSize
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    static AvailabilityIndex load(String dataFilePath, int parallelism, RejectedRowReport rejects, long minChunkSize) throws IOException, AvailabilityException {
+        RandomAccessFile file = new RandomAccessFile(dataFilePath, "r");
+
+        try {
+            FileChannel channel = file.getChannel();
+            long fileSize = channel.size();
+            int numChunks = (int) Math.min((long) parallelism * CHUNKS_PER_THREAD, fileSize / minChunkSize);
+
+            if (parallelism <= 1 || numChunks <= 1) {
+                return SalesRepLoader.load(dataFilePath, rejects);
+            }
+
+            logger.debug("Load {} in {} chunks with {} threads", dataFilePath, numChunks, parallelism);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+            try {
+                long[] boundaries = findChunkBoundaries(pool, channel, fileSize, numChunks);
+
+                // Shared by every chunk, so a pattern is only parsed once across the file
+                AvailabilityPatterns patterns = new AvailabilityPatterns();
+                List<ChunkLoader> loaders = new ArrayList<ChunkLoader>(numChunks);
+                for (int i = 0; i < numChunks; ++i) {
+                    loaders.add(new ChunkLoader(channel, boundaries[i], boundaries[i + 1], patterns, rejects != null));
+                }
+                pool.invoke(new ForkAll<SalesRepStore.Builder>(loaders));
+
+                // Assemble in file order, so ids are the same as a sequential load
+                AvailabilityIndex.Builder builder = new AvailabilityIndex.Builder();
+                PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+                long recordCount = 0;
+                for (ChunkLoader loader : loaders) {
+                    // Chunks run to their end or first failure, so the failure reported is the first in file order
+                    if (loader.failure != null) {
+                        throw loader.failure.unwrap();
+                    }
+
+                    // Chunks number their records from 1, so shift them by the records of the chunks before
+                    SalesRepStore.Builder salesReps = loader.getRawResult();
+                    if (rejects != null) {
+                        rejects.addAll(loader.rejects, recordCount);
+                    } else if (loader.rejects.getRejectedCount() > 0) {
+                        RejectedRowReport.RejectedRow row = loader.rejects.getRejectedRows().get(0);
+                        throw SalesRepLoader.invalidRecord(recordCount + row.getRecordNumber(), row.getField(), row.getReason());
+                    }
+                    recordCount += loader.recordCount;
+
+                    timer.start();
+                    for (int id = 0; id < salesReps.size(); ++id) {
+                        builder.add(salesReps, id);
+                    }
+                    timer.stop(PipelineMetrics.Stage.INDEX, salesReps.size());
+                }
+
+                if (rejects != null) {
+                    rejects.finish(recordCount);
+                }
+
+                logger.info("Loaded {} distinct availability patterns, {} rows reused one", patterns.size(), patterns.getHitCount());
+                return builder.build();
+            } catch (ChunkLoadException e) {
+                throw e.unwrap();
+            } finally {
+                pool.shutdown();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Splits the file into numChunks byte ranges, each of which starts right after a record separator.
+     *
+     * Since RFC4180 allows new lines within quoted fields, a new line only ends a record if it is preceded by an even
+     * number of quotes (Escaped quotes "" count twice, so they don't flip the parity). Quotes are counted per chunk in
+     * parallel, so every chunk knows whether it starts inside a quoted field.
+     *
+     * @return numChunks + 1 offsets, the first being 0 and the last being fileSize
+     */
+    static long[] findChunkBoundaries(ForkJoinPool pool, FileChannel channel, long fileSize, int numChunks) {
+        long chunkSize = fileSize / numChunks;
+
+        List<QuoteCounter> counters = new ArrayList<QuoteCounter>(numChunks);
+        for (int i = 0; i < numChunks; ++i) {
+            long start = i * chunkSize;
+            long end = (i == numChunks - 1) ? fileSize : start + chunkSize;
+            counters.add(new QuoteCounter(channel, start, end));
+        }
+        pool.invoke(new ForkAll<Long>(counters));
+
+        List<BoundaryFinder> finders = new ArrayList<BoundaryFinder>(numChunks - 1);
+        boolean isQuoted = false;
+        for (int i = 1; i < numChunks; ++i) {
+            isQuoted ^= (counters.get(i - 1).getRawResult() % 2) == 1;
+            finders.add(new BoundaryFinder(channel, i * chunkSize, fileSize, isQuoted));
+        }
+        pool.invoke(new ForkAll<Long>(finders));
+
+        long[] boundaries = new long[numChunks + 1];
+        boundaries[numChunks] = fileSize;
+        for (int i = 1; i < numChunks; ++i) {
+            // A record may be longer than a chunk, in which case the chunk in between ends up empty
+            boundaries[i] = Math.max(boundaries[i - 1], finders.get(i - 1).getRawResult());
+        }
+
+        return boundaries;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long end) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new ChunkLoadException(e);
+        }
+    }
+
+    /**
+     * Runs given tasks in parallel & waits for all of them
+     */
+    private static class ForkAll<T> extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends ForkJoinTask<T>> tasks;
+
+        ForkAll(List<? extends ForkJoinTask<T>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected Void compute() {
+            invokeAll(tasks);
+            return null;
+        }
+    }
+
+    /**
+     * Counts quotes in [start, end)
+     */
+    private static class QuoteCounter extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+        QuoteCounter(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Long compute() {
+            MappedByteBuffer buffer = map(channel, start, end);
+            long count = 0;
+
+            while (buffer.hasRemaining()) {
+                if (buffer.get() == QUOTE) {
+                    ++count;
+                }
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Finds the offset right after the first record separator at or after start
+     */
+    private static class BoundaryFinder extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private static final long SCAN_WINDOW = 64 * 1024;
+        private final FileChannel channel;
+        private final long start;
+        private final long fileSize;
+        private final boolean startsQuoted;
+
+        BoundaryFinder(FileChannel channel, long start, long fileSize, boolean startsQuoted) {
+            this.channel = channel;
+            this.start = start;
+            this.fileSize = fileSize;
+            this.startsQuoted = startsQuoted;
+        }
+
+        @Override
+        protected Long compute() {
+            boolean isQuoted = startsQuoted;
+
+            for (long windowStart = start; windowStart < fileSize; windowStart += SCAN_WINDOW) {
+                MappedByteBuffer buffer = map(channel, windowStart, Math.min(fileSize, windowStart + SCAN_WINDOW));
+
+                while (buffer.hasRemaining()) {
+                    byte value = buffer.get();
+                    if (value == QUOTE) {
+                        isQuoted = !isQuoted;
+                    } else if (value == NEW_LINE && !isQuoted) {
+                        return windowStart + buffer.position();
+                    }
+                }
+            }
+
+            return fileSize;
+        }
+    }
+
+    /**
+     * Parses & merges the records in [start, end) into columns, so no rep object outlives its row. Rows that cannot be
+     * converted are recorded in the chunk's own report, numbered from the start of the chunk. If strict, the chunk
+     * stops at the first one, as it does on a malformed record (See failure).
+     */
+    private static class ChunkLoader extends RecursiveTask<SalesRepStore.Builder> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final AvailabilityPatterns patterns;
+        private final boolean isLenient;
+        final RejectedRowReport rejects;
+        long recordCount;
+        // Kept instead of thrown, so the loader can report the first failing chunk rather than the first to fail
+        ChunkLoadException failure;
+
+        ChunkLoader(FileChannel channel, long start, long end, AvailabilityPatterns patterns, boolean isLenient) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.patterns = patterns;
+            this.isLenient = isLenient;
+            this.rejects = new RejectedRowReport(isLenient ? RejectedRowReport.DEFAULT_MAX_KEPT_ROWS : 1);
+        }
+
+        @Override
+        protected SalesRepStore.Builder compute() {
+            SalesRepStore.Builder salesReps = new SalesRepStore.Builder();
+            if (start == end) {
+                return salesReps;
+            }
+
+            try {
+                MappedCsvReader reader = new MappedCsvReader(channel, start, end);
+                SalesRepLoader.RowConverter converter = new SalesRepLoader.RowConverter(patterns);
+                PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+
+                try {
+                    while (true) {
+                        timer.start();
+                        if (!reader.nextRecord()) {
+                            break;
+                        }
+                        timer.stop(PipelineMetrics.Stage.READ, 1);
+
+                        SalesDevelopmentRepresentative salesRep = converter.convert(reader, rejects);
+                        if (salesRep != null) {
+                            salesReps.add(salesRep.getEmail(), salesRep.getPackedAvailability());
+                        } else if (!isLenient) {
+                            break;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+                recordCount = reader.getRecordNumber();
+            } catch (IOException e) {
+                failure = new ChunkLoadException(e);
+            } catch (AvailabilityException e) {
+                failure = new ChunkLoadException(e);
+            }
+
+            return salesReps;
+        }
+    }
+
+    /**
+     * Carries checked exceptions out of fork-join tasks
+     */
+    private static class ChunkLoadException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ChunkLoadException(Exception cause) {
+            super(cause);
+        }
+
+        AvailabilityException unwrap() throws IOException {
+            if (getCause() instanceof IOException) {
+                throw (IOException) getCause();
+            }
+
+            return (AvailabilityException) getCause();
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.dashk.availability.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process wide timing & allocation counters for each stage of the load & search pipeline.
+ *
+ * Usage:
+ *   PipelineMetrics.getInstance().setEnabled(true);
+ *   ...
+ *   PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+ *   timer.start();
+ *   ... parse a row ...
+ *   timer.stop(PipelineMetrics.Stage.PARSE, 1);
+ *
+ * Timing costs a couple of System.nanoTime() calls per stage & row, so it is off until enabled (by --stats, or over
+ * JMX), and timers cost a flag check until then. Allocations are only measured on one out of every
+ * ALLOCATION_SAMPLE_INTERVAL timings, since reading the thread's allocation counter is comparatively slow.
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+    private static final Logger logger = LogManager.getLogger();
+    private static final String OBJECT_NAME = "com.dashk.availability:type=PipelineMetrics";
+    private static final int ALLOCATION_SAMPLE_INTERVAL = 64;
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    /**
+     * Stages of the pipeline. SEARCH counts queries, every other stage counts rows.
+     */
+    public enum Stage { READ, PARSE, MERGE, INDEX, SEARCH }
+
+    private final LongAdder[] counts = createAdders();
+    private final LongAdder[] nanos = createAdders();
+    private final LongAdder[] sampledCounts = createAdders();
+    private final LongAdder[] sampledBytes = createAdders();
+    private final LatencyHistogram queryLatency = new LatencyHistogram();
+    private final ThreadLocal<StageTimer> timers = new ThreadLocal<StageTimer>() {
+        @Override
+        protected StageTimer initialValue() {
+            return new StageTimer();
+        }
+    };
+    private volatile boolean isRegistered = false;
+    private volatile boolean isEnabled = false;
+
+    private PipelineMetrics() {
+    }
+
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the calling thread's timer
+     *
+     * @return
+     */
+    public StageTimer timer() {
+        return timers.get();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, if it is not registered yet
+     */
+    public synchronized void register() {
+        if (isRegistered) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            isRegistered = true;
+        } catch (JMException e) {
+            logger.warn("Unable to register {}", OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    @Override
+    public void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    @Override
+    public Map<String, Long> getItemCounts() {
+        Map<String, Long> output = new LinkedHashMap<String, Long>();
+        for (Stage stage : Stage.values()) {
+            output.put(stage.name(), counts[stage.ordinal()].sum());
+        }
+
+        return output;
+    }
+
+    @Override
+    public Map<String, Double> getNanosPerItem() {
+        Map<String, Double> output = new LinkedHashMap<String, Double>();
+        for (Stage stage : Stage.values()) {
+            output.put(stage.name(), getNanosPerItem(stage));
+        }
+
+        return output;
+    }
+
+    @Override
+    public Map<String, Double> getItemsPerSecond() {
+        Map<String, Double> output = new LinkedHashMap<String, Double>();
+        for (Stage stage : Stage.values()) {
+            output.put(stage.name(), getItemsPerSecond(stage));
+        }
+
+        return output;
+    }
+
+    @Override
+    public Map<String, Double> getAllocatedBytesPerItem() {
+        Map<String, Double> output = new LinkedHashMap<String, Double>();
+        for (Stage stage : Stage.values()) {
+            output.put(stage.name(), getAllocatedBytesPerItem(stage));
+        }
+
+        return output;
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queryLatency.getCount();
+    }
+
+    @Override
+    public double getQueryLatencyP50Micros() {
+        return queryLatency.getPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getQueryLatencyP90Micros() {
+        return queryLatency.getPercentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getQueryLatencyP99Micros() {
+        return queryLatency.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getQueryLatencyP999Micros() {
+        return queryLatency.getPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-8s %12s %14s %12s %18s%n", "Stage", "Items", "Items/sec", "ns/item", "Alloc bytes/item"));
+
+        for (Stage stage : Stage.values()) {
+            report.append(String.format("%-8s %12d %14.0f %12.1f %18.1f%n",
+                    stage.name(),
+                    counts[stage.ordinal()].sum(),
+                    getItemsPerSecond(stage),
+                    getNanosPerItem(stage),
+                    getAllocatedBytesPerItem(stage)
+            ));
+        }
+
+        report.append(String.format("Query latency (us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f (%d queries)%n",
+                getQueryLatencyP50Micros(),
+                getQueryLatencyP90Micros(),
+                getQueryLatencyP99Micros(),
+                getQueryLatencyP999Micros(),
+                getQueryCount()
+        ));
+
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Stage stage : Stage.values()) {
+            counts[stage.ordinal()].reset();
+            nanos[stage.ordinal()].reset();
+            sampledCounts[stage.ordinal()].reset();
+            sampledBytes[stage.ordinal()].reset();
+        }
+        queryLatency.reset();
+    }
+
+    private double getNanosPerItem(Stage stage) {
+        long count = counts[stage.ordinal()].sum();
+        return count == 0 ? 0 : (double) nanos[stage.ordinal()].sum() / count;
+    }
+
+    private double getItemsPerSecond(Stage stage) {
+        long elapsed = nanos[stage.ordinal()].sum();
+        return elapsed == 0 ? 0 : counts[stage.ordinal()].sum() * 1e9 / elapsed;
+    }
+
+    private double getAllocatedBytesPerItem(Stage stage) {
+        long count = sampledCounts[stage.ordinal()].sum();
+        return count == 0 ? 0 : (double) sampledBytes[stage.ordinal()].sum() / count;
+    }
+
+    private static LongAdder[] createAdders() {
+        LongAdder[] adders = new LongAdder[Stage.values().length];
+        for (int i = 0; i < adders.length; ++i) {
+            adders[i] = new LongAdder();
+        }
+
+        return adders;
+    }
+
+    /**
+     * Times one stage at a time on the thread that owns it (See PipelineMetrics.timer())
+     */
+    public class StageTimer {
+        private final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        private final long threadId = Thread.currentThread().getId();
+        private long startNanos;
+        private long startBytes = -1;
+        private int timings;
+        private boolean isTiming;
+
+        private StageTimer() {
+        }
+
+        /**
+         * Starts timing, if the metrics are enabled. The matching stop() is skipped too otherwise.
+         */
+        public void start() {
+            isTiming = isEnabled;
+            if (!isTiming) {
+                return;
+            }
+
+            if (threadBean != null && (timings++ % ALLOCATION_SAMPLE_INTERVAL) == 0) {
+                startBytes = threadBean.getThreadAllocatedBytes(threadId);
+            }
+
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Records the time since start() against given stage
+         *
+         * @param stage
+         * @param items Number of rows (or queries) handled since start()
+         */
+        public void stop(Stage stage, long items) {
+            if (!isTiming) {
+                return;
+            }
+
+            long elapsed = System.nanoTime() - startNanos;
+            int index = stage.ordinal();
+
+            counts[index].add(items);
+            nanos[index].add(elapsed);
+
+            if (startBytes >= 0) {
+                sampledBytes[index].add(threadBean.getThreadAllocatedBytes(threadId) - startBytes);
+                sampledCounts[index].add(items);
+                startBytes = -1;
+            }
+
+            if (stage == Stage.SEARCH) {
+                queryLatency.record(elapsed);
+            }
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadBean;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Log-linear histogram of nanosecond latencies, accurate to within 1/8 of the value.
+     *
+     * Values below 16 get a bucket each. Above that, each power of 2 is split into 8 buckets.
+     */
+    private static class LatencyHistogram {
+        private static final int LINEAR_BUCKETS = 16;
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private final AtomicLongArray buckets = new AtomicLongArray(LINEAR_BUCKETS + (Long.SIZE - 4) * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+
+        void record(long value) {
+            buckets.incrementAndGet(getBucketIndex(Math.max(0, value)));
+            count.increment();
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the upper bound of the bucket that holds given percentile
+         */
+        long getPercentile(double percentile) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+
+            long target = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); ++i) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return getBucketUpperBound(i);
+                }
+            }
+
+            return getBucketUpperBound(buckets.length() - 1);
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); ++i) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+        }
+
+        private static int getBucketIndex(long value) {
+            if (value < LINEAR_BUCKETS) {
+                return (int) value;
+            }
+
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long getBucketUpperBound(int index) {
+            if (index < LINEAR_BUCKETS) {
+                return index;
+            }
+
+            int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+            int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
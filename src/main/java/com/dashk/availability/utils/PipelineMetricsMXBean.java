@@ -0,0 +1,52 @@
+package com.dashk.availability.utils;
+
+import java.util.Map;
+
+/**
+ * JMX view of PipelineMetrics, registered as com.dashk.availability:type=PipelineMetrics
+ */
+public interface PipelineMetricsMXBean {
+    /**
+     * Returns whether stages are being timed. Nothing is counted while disabled.
+     */
+    boolean isEnabled();
+
+    void setEnabled(boolean isEnabled);
+
+    /**
+     * Returns the number of rows (or queries, for SEARCH) that went through each stage
+     */
+    Map<String, Long> getItemCounts();
+
+    /**
+     * Returns the average nanoseconds spent per row (or query) in each stage
+     */
+    Map<String, Double> getNanosPerItem();
+
+    /**
+     * Returns the rows (or queries) per second of each stage, per thread
+     */
+    Map<String, Double> getItemsPerSecond();
+
+    /**
+     * Returns the average bytes allocated per row (or query) in each stage, estimated from sampled rows
+     */
+    Map<String, Double> getAllocatedBytesPerItem();
+
+    long getQueryCount();
+
+    double getQueryLatencyP50Micros();
+
+    double getQueryLatencyP90Micros();
+
+    double getQueryLatencyP99Micros();
+
+    double getQueryLatencyP999Micros();
+
+    /**
+     * Returns a human readable report of all of the above
+     */
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,207 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rows a lenient load skipped instead of failing on, e.g. an unknown day of week or a missing field.
+ *
+ * Every rejected row is counted, but only the first maxKeptRows are kept (record number, field & reason), so a file
+ * full of bad rows cannot exhaust memory. Once the load is done (See finish), the kept rows are written to the side
+ * file if there is one, followed by the number of rows that were not kept, and the load fails if more than maxErrorRate
+ * of its records were rejected.
+ *
+ * Usage:
+ *   RejectedRowReport rejects = new RejectedRowReport(0.01, RejectedRowReport.DEFAULT_MAX_KEPT_ROWS, "rejects.csv");
+ *   AvailabilityIndex index = ParallelSalesRepLoader.load("reps.csv", rejects);
+ *   ... rejects.getRejectedCount() ...
+ */
+public class RejectedRowReport {
+    public static final int DEFAULT_MAX_KEPT_ROWS = 1000;
+    public static final String EMAIL_FIELD = "email";
+    public static final String AVAILABILITY_FIELD = "availability";
+
+    private final double maxErrorRate;
+    private final int maxKeptRows;
+    private final String sideFilePath;
+    private final List<RejectedRow> keptRows = new ArrayList<RejectedRow>();
+    private long rejectedCount;
+    private long recordCount;
+
+    /**
+     * Constructor
+     *
+     * @param maxErrorRate Share of records that may be rejected before the load fails, 0 ... 1
+     * @param maxKeptRows Number of rejected rows kept for the report, the first ones in file order
+     * @param sideFilePath Path to write the kept rows to as CSV, or null
+     */
+    public RejectedRowReport(double maxErrorRate, int maxKeptRows, String sideFilePath) {
+        if (maxErrorRate < 0 || maxErrorRate > 1) {
+            throw new IllegalArgumentException(String.format("Error rate must be between 0 and 1, got %s", maxErrorRate));
+        }
+
+        this.maxErrorRate = maxErrorRate;
+        this.maxKeptRows = maxKeptRows;
+        this.sideFilePath = sideFilePath;
+    }
+
+    /**
+     * Report for a part of a file, to be merged into the report of the whole file (See addAll)
+     *
+     * @param maxKeptRows
+     */
+    RejectedRowReport(int maxKeptRows) {
+        this(1, maxKeptRows, null);
+    }
+
+    /**
+     * Records that given row was skipped
+     *
+     * @param recordNumber 1-based
+     * @param field See EMAIL_FIELD & AVAILABILITY_FIELD
+     * @param reason
+     */
+    public synchronized void reject(long recordNumber, String field, String reason) {
+        ++rejectedCount;
+        if (keptRows.size() < maxKeptRows) {
+            keptRows.add(new RejectedRow(recordNumber, field, reason != null ? reason : "Invalid value"));
+        }
+    }
+
+    /**
+     * Adds the rows rejected in another part of the file, whose record numbers start after given offset
+     *
+     * @param other
+     * @param recordOffset Number of records before that part
+     */
+    synchronized void addAll(RejectedRowReport other, long recordOffset) {
+        for (RejectedRow row : other.getRejectedRows()) {
+            if (keptRows.size() == maxKeptRows) {
+                break;
+            }
+            keptRows.add(new RejectedRow(recordOffset + row.recordNumber, row.field, row.reason));
+        }
+
+        rejectedCount += other.getRejectedCount();
+    }
+
+    /**
+     * Ends the load of given number of records: writes the side file, and checks the error rate
+     *
+     * @param recordCount Records read, including rejected ones
+     * @throws IOException if the side file cannot be written
+     * @throws AvailabilityException if too many records were rejected
+     */
+    public void finish(long recordCount) throws IOException, AvailabilityException {
+        synchronized (this) {
+            this.recordCount = recordCount;
+        }
+
+        if (sideFilePath != null) {
+            writeTo(sideFilePath);
+        }
+
+        List<RejectedRow> rows = getRejectedRows();
+        if (getRejectedCount() > maxErrorRate * recordCount) {
+            throw new AvailabilityException(String.format("Rejected %d of %d records, more than the allowed %s%%%s",
+                    getRejectedCount(), recordCount, maxErrorRate * 100, rows.isEmpty() ? "" : String.format(", first at %s", rows.get(0))));
+        }
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Returns the number of records the load read, including rejected ones, once finished
+     *
+     * @return
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the kept rejected rows, in file order
+     *
+     * @return
+     */
+    public synchronized List<RejectedRow> getRejectedRows() {
+        return Collections.unmodifiableList(new ArrayList<RejectedRow>(keptRows));
+    }
+
+    /**
+     * Writes the kept rejected rows to given path as CSV (record, field, reason), replacing the file if it exists. Rows
+     * beyond maxKeptRows are only counted, so they are not listed: a last row with no record or field gives their
+     * number instead, e.g. ,,"25 more rows rejected, not listed".
+     *
+     * @param path
+     * @throws IOException
+     */
+    public void writeTo(String path) throws IOException {
+        List<RejectedRow> rows;
+        long rejectedCount;
+        synchronized (this) {
+            rows = getRejectedRows();
+            rejectedCount = this.rejectedCount;
+        }
+        PrintWriter output = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8)));
+
+        try {
+            output.println("record,field,reason");
+            for (RejectedRow row : rows) {
+                output.println(String.format("%d,%s,\"%s\"", row.recordNumber, row.field, row.reason.replace("\"", "\"\"")));
+            }
+            if (rejectedCount > rows.size()) {
+                output.println(String.format(",,\"%d more rows rejected, not listed\"", rejectedCount - rows.size()));
+            }
+        } finally {
+            output.close();
+        }
+
+        if (output.checkError()) {
+            throw new IOException(String.format("Unable to write rejected rows to %s", path));
+        }
+    }
+
+    /**
+     * A row that was skipped, and why
+     */
+    public static class RejectedRow {
+        private final long recordNumber;
+        private final String field;
+        private final String reason;
+
+        RejectedRow(long recordNumber, String field, String reason) {
+            this.recordNumber = recordNumber;
+            this.field = field;
+            this.reason = reason;
+        }
+
+        public long getRecordNumber() {
+            return recordNumber;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("record %d, %s: %s", recordNumber, field, reason);
+        }
+    }
+}
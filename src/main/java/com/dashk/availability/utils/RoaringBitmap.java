@@ -0,0 +1,647 @@
+package com.dashk.availability.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntPredicate;
+
+/**
+ * Compressed bitmap of non-negative ints, laid out the way Roaring bitmaps are.
+ *
+ * Values are partitioned by their high 16 bits into containers. Each container holds the low 16 bits either as a
+ * sorted array (sparse, up to 4096 values) or as a 65536-bit bitmap (dense).
+ * e.g. { 1, 2, 70000 } => [ key 0 -> array [ 1, 2 ], key 1 -> array [ 4464 ] ]
+ */
+public class RoaringBitmap {
+    private static final int MAX_ARRAY_CONTAINER_SIZE = 4096;
+    private static final int BITMAP_CONTAINER_WORDS = (1 << 16) / Long.SIZE;
+    private static final char ARRAY_CONTAINER_TYPE = 0;
+    private static final char BITMAP_CONTAINER_TYPE = 1;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RoaringBitmap() {
+        this(0, new char[4], new Container[4]);
+    }
+
+    private RoaringBitmap(int size, char[] keys, Container[] containers) {
+        this.size = size;
+        this.keys = keys;
+        this.containers = containers;
+    }
+
+    /**
+     * Adds given value. Adding values in ascending order is the fast path.
+     *
+     * @param value
+     */
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(String.format("Value must not be negative, %d", value));
+        }
+
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+
+        int index;
+        if (size > 0 && keys[size - 1] == key) {
+            index = size - 1;
+        } else {
+            index = Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+
+        containers[index] = containers[index].add(low);
+    }
+
+    /**
+     * Returns true if given value is in the bitmap
+     *
+     * @param value
+     * @return
+     */
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in the bitmap
+     *
+     * @return
+     */
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; ++i) {
+            cardinality += containers[i].cardinality;
+        }
+
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a new bitmap with values present in both bitmaps
+     *
+     * @param other
+     * @return
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        int capacity = Math.max(1, Math.min(this.size, other.size));
+        RoaringBitmap output = new RoaringBitmap(0, new char[capacity], new Container[capacity]);
+
+        int i = 0, j = 0;
+        while (i < this.size && j < other.size) {
+            if (this.keys[i] < other.keys[j]) {
+                ++i;
+            } else if (this.keys[i] > other.keys[j]) {
+                ++j;
+            } else {
+                Container container = this.containers[i].and(other.containers[j]);
+                if (container.cardinality > 0) {
+                    output.insertContainer(output.size, this.keys[i], container);
+                }
+                ++i;
+                ++j;
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Visits values present in every given bitmap, in ascending order, until the visitor returns false. Containers
+     * are intersected one key at a time into scratch space, so nothing is allocated per container, unlike chaining
+     * and(), and a visitor that stops early skips the remaining keys altogether.
+     *
+     * @param bitmaps Bitmaps to intersect, ideally sorted by ascending cardinality
+     * @param visitor Returns false to stop
+     */
+    public static void forEachInAll(RoaringBitmap[] bitmaps, IntPredicate visitor) {
+        if (bitmaps.length == 0) {
+            return;
+        }
+
+        Intersection intersection = new Intersection(bitmaps.length);
+        RoaringBitmap first = bitmaps[0];
+
+        for (int i = 0; i < first.size; ++i) {
+            int high = first.keys[i] << 16;
+            if (!intersection.findContainers(bitmaps, i)) {
+                continue;
+            }
+
+            if (intersection.isProbing()) {
+                ArrayContainer array = (ArrayContainer) intersection.containers[intersection.driver];
+                for (int j = 0; j < array.cardinality; ++j) {
+                    char value = array.values[j];
+                    if (intersection.containsInOthers(value) && !visitor.test(high | value)) {
+                        return;
+                    }
+                }
+            } else if (intersection.and()) {
+                long[] words = intersection.words;
+                for (int word = 0; word < BITMAP_CONTAINER_WORDS; ++word) {
+                    for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                        if (!visitor.test(high | (word << 6) + Long.numberOfTrailingZeros(bits))) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values present in every given bitmap, without materializing them
+     *
+     * @param bitmaps Bitmaps to intersect, ideally sorted by ascending cardinality
+     * @return
+     */
+    public static int andCardinality(RoaringBitmap[] bitmaps) {
+        if (bitmaps.length == 0) {
+            return 0;
+        }
+
+        Intersection intersection = new Intersection(bitmaps.length);
+        RoaringBitmap first = bitmaps[0];
+        int cardinality = 0;
+
+        for (int i = 0; i < first.size; ++i) {
+            if (!intersection.findContainers(bitmaps, i)) {
+                continue;
+            }
+
+            if (intersection.isProbing()) {
+                ArrayContainer array = (ArrayContainer) intersection.containers[intersection.driver];
+                for (int j = 0; j < array.cardinality; ++j) {
+                    if (intersection.containsInOthers(array.values[j])) {
+                        ++cardinality;
+                    }
+                }
+            } else if (intersection.and()) {
+                for (long word : intersection.words) {
+                    cardinality += Long.bitCount(word);
+                }
+            }
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * Iterates over values in ascending order
+     *
+     * @return
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int containerIndex = 0;
+            private int position = 0;
+            private int next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+
+                int value = next;
+                next = advance();
+                return value;
+            }
+
+            private int advance() {
+                while (containerIndex < size) {
+                    int low = containers[containerIndex].nextValue(position);
+                    if (low >= 0) {
+                        position = low + 1;
+                        return (keys[containerIndex] << 16) | low;
+                    }
+
+                    ++containerIndex;
+                    position = 0;
+                }
+
+                return -1;
+            }
+        };
+    }
+
+    /**
+     * Returns all values in ascending order
+     *
+     * @return
+     */
+    public int[] toArray() {
+        int[] output = new int[getCardinality()];
+        PrimitiveIterator.OfInt iterator = iterator();
+
+        for (int i = 0; i < output.length; ++i) {
+            output[i] = iterator.nextInt();
+        }
+
+        return output;
+    }
+
+    /**
+     * Writes the bitmap as is, container by container, so readFrom can restore it with bulk copies.
+     *
+     * Layout: int container count, then per container: char key, char type, int cardinality, followed by either
+     * cardinality chars (array) or BITMAP_CONTAINER_WORDS longs (bitmap).
+     *
+     * @param output
+     * @throws IOException
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(size);
+
+        for (int i = 0; i < size; ++i) {
+            Container container = containers[i];
+            output.writeChar(keys[i]);
+            output.writeChar(container instanceof ArrayContainer ? ARRAY_CONTAINER_TYPE : BITMAP_CONTAINER_TYPE);
+            output.writeInt(container.cardinality);
+
+            if (container instanceof ArrayContainer) {
+                char[] values = ((ArrayContainer) container).values;
+                for (int j = 0; j < container.cardinality; ++j) {
+                    output.writeChar(values[j]);
+                }
+            } else {
+                for (long word : ((BitmapContainer) container).words) {
+                    output.writeLong(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a bitmap written by writeTo, starting at the buffer's position. The position is moved past the bitmap.
+     *
+     * @param buffer
+     * @return
+     * @throws IllegalArgumentException if the buffer does not hold a valid bitmap
+     */
+    public static RoaringBitmap readFrom(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        RoaringBitmap output = new RoaringBitmap(0, new char[Math.max(1, size)], new Container[Math.max(1, size)]);
+
+        for (int i = 0; i < size; ++i) {
+            char key = buffer.getChar();
+            char type = buffer.getChar();
+            int cardinality = buffer.getInt();
+
+            Container container;
+            if (type == ARRAY_CONTAINER_TYPE && cardinality <= MAX_ARRAY_CONTAINER_SIZE) {
+                char[] values = new char[cardinality];
+                buffer.asCharBuffer().get(values);
+                buffer.position(buffer.position() + cardinality * Character.BYTES);
+                container = new ArrayContainer(values, cardinality);
+            } else if (type == BITMAP_CONTAINER_TYPE) {
+                BitmapContainer bitmap = new BitmapContainer();
+                buffer.asLongBuffer().get(bitmap.words);
+                buffer.position(buffer.position() + BITMAP_CONTAINER_WORDS * Long.BYTES);
+                bitmap.cardinality = cardinality;
+                container = bitmap;
+            } else {
+                throw new IllegalArgumentException(String.format("Invalid container %d of type %d with %d values", i, (int) type, cardinality));
+            }
+
+            output.insertContainer(output.size, key, container);
+        }
+
+        return output;
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        ++size;
+    }
+
+    /**
+     * Scratch space to intersect the containers of several bitmaps, one key at a time (See forEachInAll)
+     */
+    private static class Intersection {
+        // Below this many values, probing the other containers for each value of the smallest array beats ANDing
+        // whole containers
+        private static final int MAX_PROBED_VALUES = 256;
+
+        final Container[] containers;
+        final long[] words = new long[BITMAP_CONTAINER_WORDS];
+        private final long[] scratch = new long[BITMAP_CONTAINER_WORDS];
+        int driver;
+
+        Intersection(int numBitmaps) {
+            containers = new Container[numBitmaps];
+        }
+
+        /**
+         * Finds each bitmap's container for the key at given index of the first bitmap, and picks the smallest array
+         * container (if any) as the driver
+         *
+         * @return false if some bitmap has no container for the key
+         */
+        boolean findContainers(RoaringBitmap[] bitmaps, int firstIndex) {
+            char key = bitmaps[0].keys[firstIndex];
+            containers[0] = bitmaps[0].containers[firstIndex];
+            driver = 0;
+
+            for (int i = 1; i < bitmaps.length; ++i) {
+                RoaringBitmap bitmap = bitmaps[i];
+                int index = Arrays.binarySearch(bitmap.keys, 0, bitmap.size, key);
+                if (index < 0) {
+                    return false;
+                }
+
+                containers[i] = bitmap.containers[index];
+                Container best = containers[driver];
+                if (containers[i] instanceof ArrayContainer
+                        && (!(best instanceof ArrayContainer) || containers[i].cardinality < best.cardinality)) {
+                    driver = i;
+                }
+            }
+
+            return true;
+        }
+
+        boolean isProbing() {
+            return containers[driver] instanceof ArrayContainer && containers[driver].cardinality <= MAX_PROBED_VALUES;
+        }
+
+        boolean containsInOthers(char value) {
+            for (int i = 0; i < containers.length; ++i) {
+                if (i != driver && !containers[i].contains(value)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * ANDs every container into words
+         *
+         * @return false if the result is empty
+         */
+        boolean and() {
+            load(containers[driver], words);
+
+            for (int i = 0; i < containers.length; ++i) {
+                if (i == driver) {
+                    continue;
+                }
+
+                long any = 0;
+                if (containers[i] instanceof BitmapContainer) {
+                    long[] other = ((BitmapContainer) containers[i]).words;
+                    for (int word = 0; word < BITMAP_CONTAINER_WORDS; ++word) {
+                        any |= (words[word] &= other[word]);
+                    }
+                } else {
+                    load(containers[i], scratch);
+                    for (int word = 0; word < BITMAP_CONTAINER_WORDS; ++word) {
+                        any |= (words[word] &= scratch[word]);
+                    }
+                }
+
+                if (any == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static void load(Container container, long[] target) {
+            if (container instanceof BitmapContainer) {
+                System.arraycopy(((BitmapContainer) container).words, 0, target, 0, BITMAP_CONTAINER_WORDS);
+                return;
+            }
+
+            ArrayContainer array = (ArrayContainer) container;
+            Arrays.fill(target, 0);
+            for (int i = 0; i < array.cardinality; ++i) {
+                target[array.values[i] >>> 6] |= 1L << array.values[i];
+            }
+        }
+    }
+
+    /**
+     * Holds the low 16 bits of values sharing the same high 16 bits
+     */
+    private static abstract class Container {
+        int cardinality;
+
+        /**
+         * Adds given value, and returns the container to keep (It may convert itself into another kind)
+         */
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        /**
+         * Returns the smallest value >= from, or -1 if there is none
+         */
+        abstract int nextValue(int from);
+    }
+
+    /**
+     * Sparse container: sorted array of values
+     */
+    private static class ArrayContainer extends Container {
+        char[] values;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int index;
+            if (cardinality == 0 || values[cardinality - 1] < value) {
+                index = cardinality;
+            } else {
+                index = Arrays.binarySearch(values, 0, cardinality, value);
+                if (index >= 0) {
+                    return this;
+                }
+                index = -index - 1;
+            }
+
+            if (cardinality == MAX_ARRAY_CONTAINER_SIZE) {
+                return toBitmapContainer().add(value);
+            }
+
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(4, cardinality * 2), MAX_ARRAY_CONTAINER_SIZE));
+            }
+
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            ++cardinality;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] output = new char[Math.min(cardinality, other.cardinality)];
+            int outputSize = 0;
+
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0, j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        ++i;
+                    } else if (values[i] > array.values[j]) {
+                        ++j;
+                    } else {
+                        output[outputSize++] = values[i];
+                        ++i;
+                        ++j;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; ++i) {
+                    if (other.contains(values[i])) {
+                        output[outputSize++] = values[i];
+                    }
+                }
+            }
+
+            return new ArrayContainer(output, outputSize);
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from >= (1 << 16)) {
+                return -1;
+            }
+
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+
+            return index < cardinality ? values[index] : -1;
+        }
+
+        private BitmapContainer toBitmapContainer() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; ++i) {
+                bitmap.add(values[i]);
+            }
+
+            return bitmap;
+        }
+    }
+
+    /**
+     * Dense container: 65536 bits
+     */
+    private static class BitmapContainer extends Container {
+        final long[] words = new long[BITMAP_CONTAINER_WORDS];
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                ++cardinality;
+            }
+
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+
+            BitmapContainer bitmap = (BitmapContainer) other;
+            BitmapContainer output = new BitmapContainer();
+            for (int i = 0; i < BITMAP_CONTAINER_WORDS; ++i) {
+                output.words[i] = words[i] & bitmap.words[i];
+                output.cardinality += Long.bitCount(output.words[i]);
+            }
+
+            if (output.cardinality > MAX_ARRAY_CONTAINER_SIZE) {
+                return output;
+            }
+
+            // Sparse enough to go back to an array
+            char[] values = new char[output.cardinality];
+            int value = output.nextValue(0);
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = (char) value;
+                value = output.nextValue(value + 1);
+            }
+
+            return new ArrayContainer(values, values.length);
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from >= (1 << 16)) {
+                return -1;
+            }
+
+            int wordIndex = from >>> 6;
+            long word = words[wordIndex] & (-1L << from);
+
+            while (true) {
+                if (word != 0) {
+                    return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++wordIndex == BITMAP_CONTAINER_WORDS) {
+                    return -1;
+                }
+                word = words[wordIndex];
+            }
+        }
+    }
+}
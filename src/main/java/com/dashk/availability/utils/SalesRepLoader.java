@@ -0,0 +1,325 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.AvailabilityRunner;
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.IntervalAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SlotGrid;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Loads sales reps from an availability data file
+ */
+public class SalesRepLoader {
+    private static final Logger logger = LogManager.getLogger();
+    static final String MISSING_FIELD = "Missing field";
+
+    /**
+     * Streams given data file into an availability index. Each row is parsed, merged & indexed as it is read, so
+     * raw records are never held in memory all at once.
+     *
+     * @param dataFilePath
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public static AvailabilityIndex load(String dataFilePath) throws IOException, AvailabilityException {
+        return load(dataFilePath, (RejectedRowReport) null);
+    }
+
+    /**
+     * Same as load(dataFilePath), but rows that cannot be converted are skipped & recorded in given report instead of
+     * failing the load
+     *
+     * @param dataFilePath
+     * @param rejects null to fail on the first invalid row
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException if the CSV itself is malformed, or the report's error rate is exceeded
+     */
+    public static AvailabilityIndex load(String dataFilePath, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        AvailabilityIndex.Builder builder = new AvailabilityIndex.Builder();
+        AvailabilityPatterns patterns = new AvailabilityPatterns();
+        RowConverter converter = new RowConverter(patterns);
+        PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+        logger.debug("Read content from {}", dataFilePath);
+
+        MappedCsvReader reader = new MappedCsvReader(dataFilePath);
+        try {
+            while (true) {
+                timer.start();
+                if (!reader.nextRecord()) {
+                    break;
+                }
+                timer.stop(PipelineMetrics.Stage.READ, 1);
+
+                SalesDevelopmentRepresentative salesRep = converter.convert(reader, rejects);
+                if (salesRep == null) {
+                    continue;
+                }
+
+                timer.start();
+                builder.add(salesRep);
+                timer.stop(PipelineMetrics.Stage.INDEX, 1);
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (rejects != null) {
+            rejects.finish(reader.getRecordNumber());
+        }
+
+        logger.info("Loaded {} distinct availability patterns, {} rows reused one", patterns.size(), patterns.getHitCount());
+        return builder.build();
+    }
+
+    /**
+     * Streams the reps of given shard out of given data file into an index. Rows of other shards are skipped before
+     * their availability is parsed, so each shard only pays for its own reps.
+     *
+     * @param dataFilePath
+     * @param shard
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public static ShardIndex load(String dataFilePath, ShardSpec shard) throws IOException, AvailabilityException {
+        AvailabilityIndex.Builder builder = new AvailabilityIndex.Builder();
+        RowConverter converter = new RowConverter();
+        int[] rowNumbers = new int[16];
+        logger.debug("Read shard {} of {}", shard, dataFilePath);
+
+        MappedCsvReader reader = new MappedCsvReader(dataFilePath);
+        try {
+            for (int rowNumber = 0; reader.nextRecord(); ++rowNumber) {
+                if (reader.getFieldCount() <= AvailabilityRunner.AVAILABILITY_CSV_INDEX) {
+                    String field = reader.getFieldCount() <= AvailabilityRunner.EMAIL_CSV_INDEX ? RejectedRowReport.EMAIL_FIELD : RejectedRowReport.AVAILABILITY_FIELD;
+                    throw invalidRecord(reader.getRecordNumber(), field, MISSING_FIELD);
+                }
+
+                String email = reader.getField(AvailabilityRunner.EMAIL_CSV_INDEX).toString();
+                if (!shard.contains(email)) {
+                    continue;
+                }
+
+                SalesDevelopmentRepresentative salesRep;
+                try {
+                    salesRep = converter.convert(email, reader.getField(AvailabilityRunner.AVAILABILITY_CSV_INDEX));
+                } catch (IllegalArgumentException e) {
+                    throw invalidRecord(reader.getRecordNumber(), RejectedRowReport.AVAILABILITY_FIELD, e.getMessage());
+                }
+
+                int id = builder.add(salesRep);
+                if (id == rowNumbers.length) {
+                    rowNumbers = Arrays.copyOf(rowNumbers, rowNumbers.length * 2);
+                }
+                rowNumbers[id] = rowNumber;
+            }
+        } finally {
+            reader.close();
+        }
+
+        AvailabilityIndex index = builder.build();
+        return new ShardIndex(shard, index, Arrays.copyOf(rowNumbers, index.size()));
+    }
+
+    /**
+     * Loads given data file, scheduled on given grid, into an interval index. Availability strings are parsed with the
+     * grid's days & minutes.
+     *
+     * @param dataFilePath
+     * @param grid
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException
+     */
+    public static IntervalAvailabilityIndex load(String dataFilePath, SlotGrid grid) throws IOException, AvailabilityException {
+        return load(dataFilePath, grid, null);
+    }
+
+    /**
+     * Same as load(dataFilePath, grid), but rows that cannot be converted are skipped & recorded in given report instead
+     * of failing the load
+     *
+     * @param dataFilePath
+     * @param grid
+     * @param rejects null to fail on the first invalid row
+     * @return
+     * @throws IOException
+     * @throws AvailabilityException if the CSV itself is malformed, or the report's error rate is exceeded
+     */
+    public static IntervalAvailabilityIndex load(String dataFilePath, SlotGrid grid, RejectedRowReport rejects) throws IOException, AvailabilityException {
+        IntervalAvailabilityIndex.Builder builder = new IntervalAvailabilityIndex.Builder(grid);
+        FastTimeRangeParser parser = new FastTimeRangeParser(grid);
+        IntervalAvailability.Builder intervals = new IntervalAvailability.Builder();
+        logger.debug("Read content from {} on {}", dataFilePath, grid);
+
+        MappedCsvReader reader = new MappedCsvReader(dataFilePath);
+        try {
+            while (reader.nextRecord()) {
+                if (reader.getFieldCount() <= AvailabilityRunner.AVAILABILITY_CSV_INDEX) {
+                    String field = reader.getFieldCount() <= AvailabilityRunner.EMAIL_CSV_INDEX ? RejectedRowReport.EMAIL_FIELD : RejectedRowReport.AVAILABILITY_FIELD;
+                    if (rejects == null) {
+                        throw invalidRecord(reader.getRecordNumber(), field, MISSING_FIELD);
+                    }
+
+                    rejects.reject(reader.getRecordNumber(), field, MISSING_FIELD);
+                    continue;
+                }
+
+                try {
+                    parser.parseInto(reader.getField(AvailabilityRunner.AVAILABILITY_CSV_INDEX), intervals);
+                } catch (IllegalArgumentException e) {
+                    if (rejects == null) {
+                        throw invalidRecord(reader.getRecordNumber(), RejectedRowReport.AVAILABILITY_FIELD, e.getMessage());
+                    }
+
+                    rejects.reject(reader.getRecordNumber(), RejectedRowReport.AVAILABILITY_FIELD, e.getMessage());
+                    // Drop whatever the row added before it failed
+                    intervals = new IntervalAvailability.Builder();
+                    continue;
+                }
+                builder.add(reader.getField(AvailabilityRunner.EMAIL_CSV_INDEX).toString(), intervals.build());
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (rejects != null) {
+            rejects.finish(reader.getRecordNumber());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the error a strict load fails with on given record, the same whichever way the file is loaded
+     *
+     * @param recordNumber 1-based, over the whole file
+     * @param field See RejectedRowReport.EMAIL_FIELD & AVAILABILITY_FIELD
+     * @param reason
+     * @return
+     */
+    static AvailabilityException invalidRecord(long recordNumber, String field, String reason) {
+        return new AvailabilityException(String.format("Record %d has an invalid %s: %s", recordNumber, field, reason != null ? reason : "Invalid value"));
+    }
+
+    /**
+     * Parses & consolidates given availability string into a sales rep
+     *
+     * @param email
+     * @param rawAvailability
+     * @return
+     * @throws AvailabilityException
+     */
+    public static SalesDevelopmentRepresentative toSalesRep(String email, CharSequence rawAvailability) throws AvailabilityException {
+        return new RowConverter().convert(email, rawAvailability);
+    }
+
+    /**
+     * Converts rows into sales reps, reusing its parser & scratch space between rows. Availability strings seen before
+     * are not parsed again (See AvailabilityPatterns).
+     *
+     * @note Not thread safe. Use one converter per loading thread, sharing one AvailabilityPatterns if needed.
+     */
+    static class RowConverter {
+        private final AvailabilityPatterns patterns;
+        private final AvailabilityPatterns.Key key = new AvailabilityPatterns.Key();
+        private final FastTimeRangeParser parser = new FastTimeRangeParser();
+        private final long[] words = new long[PackedAvailability.WORD_COUNT];
+        private final PipelineMetrics.StageTimer timer = PipelineMetrics.getInstance().timer();
+
+        RowConverter() {
+            this(new AvailabilityPatterns());
+        }
+
+        RowConverter(AvailabilityPatterns patterns) {
+            this.patterns = patterns;
+        }
+
+        /**
+         * Converts the current record of given reader
+         *
+         * @param reader
+         * @return
+         * @throws AvailabilityException if the record cannot be converted, with its record number (See invalidRecord)
+         */
+        SalesDevelopmentRepresentative convert(MappedCsvReader reader) throws AvailabilityException {
+            if (reader.getFieldCount() <= AvailabilityRunner.AVAILABILITY_CSV_INDEX) {
+                String field = reader.getFieldCount() <= AvailabilityRunner.EMAIL_CSV_INDEX ? RejectedRowReport.EMAIL_FIELD : RejectedRowReport.AVAILABILITY_FIELD;
+                throw invalidRecord(reader.getRecordNumber(), field, MISSING_FIELD);
+            }
+
+            timer.start();
+            String email = reader.getField(AvailabilityRunner.EMAIL_CSV_INDEX).toString();
+            timer.stop(PipelineMetrics.Stage.READ, 0);
+
+            try {
+                return convert(email, reader.getField(AvailabilityRunner.AVAILABILITY_CSV_INDEX));
+            } catch (IllegalArgumentException e) {
+                throw invalidRecord(reader.getRecordNumber(), RejectedRowReport.AVAILABILITY_FIELD, e.getMessage());
+            }
+        }
+
+        /**
+         * Converts the current record of given reader, or records why it cannot be in given report
+         *
+         * @param reader
+         * @param rejects null to throw instead
+         * @return null if the record was rejected
+         * @throws AvailabilityException
+         */
+        SalesDevelopmentRepresentative convert(MappedCsvReader reader, RejectedRowReport rejects) throws AvailabilityException {
+            if (rejects == null) {
+                return convert(reader);
+            }
+
+            if (reader.getFieldCount() <= AvailabilityRunner.AVAILABILITY_CSV_INDEX) {
+                String field = reader.getFieldCount() <= AvailabilityRunner.EMAIL_CSV_INDEX ? RejectedRowReport.EMAIL_FIELD : RejectedRowReport.AVAILABILITY_FIELD;
+                rejects.reject(reader.getRecordNumber(), field, MISSING_FIELD);
+                return null;
+            }
+
+            String email = reader.getField(AvailabilityRunner.EMAIL_CSV_INDEX).toString();
+            try {
+                return convert(email, reader.getField(AvailabilityRunner.AVAILABILITY_CSV_INDEX));
+            } catch (IllegalArgumentException e) {
+                // Unknown day of week, invalid time, empty range, ...
+                rejects.reject(reader.getRecordNumber(), RejectedRowReport.AVAILABILITY_FIELD, e.getMessage());
+                return null;
+            }
+        }
+
+        SalesDevelopmentRepresentative convert(String email, CharSequence rawAvailability) {
+            logger.debug("Convert {}, {}", email, rawAvailability);
+
+            timer.start();
+            // Looked up straight from the field's bytes, so a pattern seen before is never decoded
+            key.set(rawAvailability);
+            PackedAvailability availability = patterns.get(key);
+            if (availability != null) {
+                timer.stop(PipelineMetrics.Stage.PARSE, 1);
+                return new SalesDevelopmentRepresentative(email, availability);
+            }
+
+            Arrays.fill(words, 0);
+            parser.parseInto(rawAvailability, words);
+            timer.stop(PipelineMetrics.Stage.PARSE, 1);
+
+            // Parsing straight into a packed week already merged overlapping ranges, so all that is left is to
+            // freeze the result
+            timer.start();
+            availability = patterns.intern(key, PackedAvailability.fromWords(words));
+            timer.stop(PipelineMetrics.Stage.MERGE, 1);
+
+            logger.debug("Add sales rep {}", email);
+            return new SalesDevelopmentRepresentative(email, availability);
+        }
+    }
+}
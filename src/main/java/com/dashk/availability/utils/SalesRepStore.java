@@ -0,0 +1,225 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Columnar, read-only list of sales reps, identified by their position (id).
+ *
+ * Columns:
+ *   emailOffsets => int[size + 1], rep i's email is emails[emailOffsets[i], emailOffsets[i + 1])
+ *   emails       => UTF-8 bytes of every email, back to back
+ *   packedWeeks  => long[size * WORD_COUNT], rep i's packed week starts at i * WORD_COUNT
+ *
+ * A rep costs its email bytes, one int & WORD_COUNT longs, with no object per rep, so the store holds millions of reps
+ * in a handful of arrays the GC never has to trace. SalesDevelopmentRepresentative objects are only created by get(),
+ * i.e. for the reps a search returns. Columns are buffers, so they live on the heap when built (See Builder), or in a
+ * memory-mapped file when loaded from a snapshot (See AvailabilitySnapshot).
+ *
+ * Safe to read from several threads at once, since columns are only read at absolute positions.
+ */
+public class SalesRepStore extends AbstractList<SalesDevelopmentRepresentative> implements RandomAccess {
+    private final IntBuffer emailOffsets;
+    private final ByteBuffer emails;
+    private final LongBuffer packedWeeks;
+    private final int size;
+
+    /**
+     * Constructor
+     *
+     * @param emailOffsets
+     * @param emails
+     * @param packedWeeks
+     */
+    SalesRepStore(IntBuffer emailOffsets, ByteBuffer emails, LongBuffer packedWeeks) {
+        this.emailOffsets = emailOffsets;
+        this.emails = emails;
+        this.packedWeeks = packedWeeks;
+        this.size = emailOffsets.limit() - 1;
+    }
+
+    /**
+     * Creates a view of the rep with given id. Each call creates a new one.
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public SalesDevelopmentRepresentative get(int id) {
+        return new SalesDevelopmentRepresentative(getEmail(id), getPackedAvailability(id));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodes the email of the rep with given id
+     *
+     * @param id
+     * @return
+     */
+    public String getEmail(int id) {
+        checkId(id);
+
+        int start = emailOffsets.get(id);
+        int length = emailOffsets.get(id + 1) - start;
+        if (emails.hasArray()) {
+            return new String(emails.array(), emails.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = emails.get(start + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the packed week of the rep with given id
+     *
+     * @param id
+     * @return
+     */
+    public PackedAvailability getPackedAvailability(int id) {
+        checkId(id);
+
+        long[] words = new long[PackedAvailability.WORD_COUNT];
+        for (int word = 0; word < words.length; ++word) {
+            words[word] = packedWeeks.get(id * PackedAvailability.WORD_COUNT + word);
+        }
+
+        return PackedAvailability.fromWords(words);
+    }
+
+    /**
+     * Returns the packed weeks of every rep, rep after rep (See class description)
+     *
+     * @return
+     */
+    LongBuffer getPackedWeeks() {
+        return packedWeeks;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(String.format("Sales rep %d is requested, but there are %d", id, size));
+        }
+    }
+
+    /**
+     * Appends reps to growing heap columns
+     *
+     * @note Not thread safe
+     */
+    public static class Builder {
+        private int[] emailOffsets = new int[16];
+        private byte[] emails = new byte[256];
+        private long[] packedWeeks = new long[PackedAvailability.WORD_COUNT * 16];
+        private int size;
+
+        /**
+         * Appends a rep, and returns its id
+         *
+         * @param email
+         * @param availability
+         * @return
+         */
+        public int add(String email, PackedAvailability availability) {
+            byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+            int offset = reserve(bytes.length);
+            System.arraycopy(bytes, 0, emails, offset, bytes.length);
+
+            int wordOffset = size * PackedAvailability.WORD_COUNT;
+            for (int word = 0; word < PackedAvailability.WORD_COUNT; ++word) {
+                packedWeeks[wordOffset + word] = availability.getWord(word);
+            }
+
+            return size++;
+        }
+
+        /**
+         * Appends the rep with given id of another builder, without decoding it
+         *
+         * @param other
+         * @param id
+         * @return
+         */
+        public int add(Builder other, int id) {
+            int start = other.emailOffsets[id];
+            int length = other.emailOffsets[id + 1] - start;
+            int offset = reserve(length);
+            System.arraycopy(other.emails, start, emails, offset, length);
+            System.arraycopy(other.packedWeeks, id * PackedAvailability.WORD_COUNT,
+                    packedWeeks, size * PackedAvailability.WORD_COUNT, PackedAvailability.WORD_COUNT);
+
+            return size++;
+        }
+
+        /**
+         * Returns the number of reps added so far
+         *
+         * @return
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns a word of the packed week of the rep with given id
+         *
+         * @param id
+         * @param word
+         * @return
+         */
+        public long getPackedWeekWord(int id, int word) {
+            return packedWeeks[id * PackedAvailability.WORD_COUNT + word];
+        }
+
+        /**
+         * Grows the columns for one more rep with given email length, and returns where its email goes
+         */
+        private int reserve(int emailLength) {
+            if (size + 2 > emailOffsets.length) {
+                emailOffsets = Arrays.copyOf(emailOffsets, emailOffsets.length * 2);
+            }
+            if ((size + 1) * PackedAvailability.WORD_COUNT > packedWeeks.length) {
+                packedWeeks = Arrays.copyOf(packedWeeks, packedWeeks.length * 2);
+            }
+
+            int offset = emailOffsets[size];
+            if ((long) offset + emailLength > Integer.MAX_VALUE) {
+                throw new IllegalStateException(String.format("Emails of %d reps exceed %d bytes", size + 1, Integer.MAX_VALUE));
+            }
+            if (offset + emailLength > emails.length) {
+                emails = Arrays.copyOf(emails, (int) Math.min(Integer.MAX_VALUE, Math.max((long) emails.length * 2, (long) offset + emailLength)));
+            }
+
+            emailOffsets[size + 1] = offset + emailLength;
+            return offset;
+        }
+
+        /**
+         * Returns a store over the reps added so far, in trimmed copies of the columns
+         *
+         * @return
+         */
+        public SalesRepStore build() {
+            return new SalesRepStore(
+                    IntBuffer.wrap(Arrays.copyOf(emailOffsets, size + 1)),
+                    ByteBuffer.wrap(Arrays.copyOf(emails, emailOffsets[size])),
+                    LongBuffer.wrap(Arrays.copyOf(packedWeeks, size * PackedAvailability.WORD_COUNT))
+            );
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least recently used cache of search results, shared between threads.
+ *
+ * Results are keyed by the packed query, so searches that are written differently but cover the same slots
+ * (e.g. "Mon 9:00 am - 10:00 am, Mon 9:30 am - 11:00 am" and "Mon 9:00 am - 11:00 am") share an entry. Keys also carry
+ * the index version (See AvailabilityIndex.getVersion), so results of an older index are never returned for a newer
+ * one. Once a newer index is searched, every older entry is dropped.
+ *
+ * The cache is bounded by both its number of entries & the total number of reps across cached results. Results are
+ * kept as the ids of their reps (4 bytes each), and reps are only created as a result is read, the same way the index
+ * itself creates them (See AvailabilityIndex.getSalesRep).
+ */
+public class SearchResultCache {
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    // About 4 MB of ids
+    public static final long DEFAULT_MAX_REPS = 1000000;
+
+    private final int maxEntries;
+    private final long maxReps;
+    private final LinkedHashMap<Key, int[]> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long numReps;
+    private long latestVersion;
+
+    public SearchResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_REPS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxEntries Maximum number of cached results. 0 disables caching.
+     * @param maxReps Maximum number of reps across cached results
+     */
+    public SearchResultCache(int maxEntries, long maxReps) {
+        this.maxEntries = maxEntries;
+        this.maxReps = maxReps;
+        this.entries = new LinkedHashMap<Key, int[]>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns sales reps who are available in every slot of given time slots, from the cache if possible. Otherwise,
+     * searches given index & caches the result.
+     *
+     * @param index
+     * @param timeSlots
+     * @return Read-only list of reps, in the order they were indexed. Each read of an element creates a new view of
+     *         the rep.
+     */
+    public List<SalesDevelopmentRepresentative> find(AvailabilityIndex index, PackedAvailability timeSlots) {
+        Key key = new Key(index.getVersion(), timeSlots);
+
+        int[] ids = get(key);
+        if (ids != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            ids = index.findFirstIds(timeSlots, Integer.MAX_VALUE);
+            put(key, ids);
+        }
+
+        return new SalesRepList(index, ids);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of cached results
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        numReps = 0;
+    }
+
+    private synchronized int[] get(Key key) {
+        if (key.version > latestVersion) {
+            // Data changed, nothing cached so far can be returned again
+            entries.clear();
+            numReps = 0;
+            latestVersion = key.version;
+        }
+
+        return entries.get(key);
+    }
+
+    private synchronized void put(Key key, int[] ids) {
+        // Results of an index that was replaced while searching it are not worth keeping
+        if (key.version < latestVersion || ids.length > maxReps) {
+            return;
+        }
+
+        int[] previous = entries.put(key, ids);
+        numReps += ids.length - (previous != null ? previous.length : 0);
+
+        Iterator<Map.Entry<Key, int[]>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || numReps > maxReps) && iterator.hasNext()) {
+            numReps -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Read-only view of the reps with given ids in given index
+     */
+    private static class SalesRepList extends AbstractList<SalesDevelopmentRepresentative> implements RandomAccess {
+        private final AvailabilityIndex index;
+        private final int[] ids;
+
+        SalesRepList(AvailabilityIndex index, int[] ids) {
+            this.index = index;
+            this.ids = ids;
+        }
+
+        @Override
+        public SalesDevelopmentRepresentative get(int i) {
+            return index.getSalesRep(ids[i]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    private static class Key {
+        final long version;
+        final PackedAvailability timeSlots;
+
+        Key(long version, PackedAvailability timeSlots) {
+            this.version = version;
+            this.timeSlots = timeSlots;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return version == other.version && timeSlots.equals(other.timeSlots);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(version) + timeSlots.hashCode();
+        }
+    }
+}
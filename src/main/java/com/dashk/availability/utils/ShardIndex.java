@@ -0,0 +1,44 @@
+package com.dashk.availability.utils;
+
+/**
+ * Index over one shard of a data file (See ShardSpec), along with where each of its reps sits in the whole file.
+ *
+ * Rows are numbered from 0 over every record of the file, so results of different shards can be merged back into file
+ * order (See ShardCoordinator).
+ */
+public class ShardIndex {
+    private final ShardSpec shard;
+    private final AvailabilityIndex index;
+    private final int[] rowNumbers;
+
+    /**
+     * Constructor
+     *
+     * @param shard
+     * @param index
+     * @param rowNumbers Row number of each rep in the index, by id. Increasing.
+     */
+    ShardIndex(ShardSpec shard, AvailabilityIndex index, int[] rowNumbers) {
+        this.shard = shard;
+        this.index = index;
+        this.rowNumbers = rowNumbers;
+    }
+
+    public ShardSpec getShard() {
+        return shard;
+    }
+
+    public AvailabilityIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the row number of the rep with given id
+     *
+     * @param id
+     * @return
+     */
+    public int getRowNumber(int id) {
+        return rowNumbers[id];
+    }
+}
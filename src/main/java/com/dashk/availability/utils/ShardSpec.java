@@ -0,0 +1,81 @@
+package com.dashk.availability.utils;
+
+/**
+ * One shard out of a fixed number, with reps assigned to shards by a hash of their email.
+ *
+ * String.hashCode is specified by the JDK, so every process agrees on which shard a rep belongs to.
+ * e.g. "1/4" => the second of 4 shards, which holds the reps where floorMod(email.hashCode(), 4) == 1
+ */
+public class ShardSpec {
+    private static final char SEPARATOR = '/';
+
+    private final int index;
+    private final int count;
+
+    /**
+     * Constructor
+     *
+     * @param index 0 ... count - 1
+     * @param count
+     */
+    public ShardSpec(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException(String.format("Shard %d of %d is invalid", index, count));
+        }
+
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Parses "<index>/<count>", e.g. "1/4"
+     *
+     * @param spec
+     * @return
+     */
+    public static ShardSpec parse(String spec) {
+        int separatorIndex = spec.indexOf(SEPARATOR);
+        if (separatorIndex < 0) {
+            throw new IllegalArgumentException(String.format("Shard is invalid, %s. It must be <index>/<count>", spec));
+        }
+
+        return new ShardSpec(
+                Integer.parseInt(spec.substring(0, separatorIndex).trim()),
+                Integer.parseInt(spec.substring(separatorIndex + 1).trim())
+        );
+    }
+
+    /**
+     * Returns the shard given email belongs to, out of given number of shards
+     *
+     * @param email
+     * @param count
+     * @return
+     */
+    public static int getShardIndex(String email, int count) {
+        return Math.floorMod(email.hashCode(), count);
+    }
+
+    /**
+     * Returns true if the rep with given email belongs to this shard
+     *
+     * @param email
+     * @return
+     */
+    public boolean contains(String email) {
+        return getShardIndex(email, count) == index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d%c%d", index, SEPARATOR, count);
+    }
+}
@@ -0,0 +1,256 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.AvailabilityConstants;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates realistic, reproducible availability data & search strings in the format TimeRangeParser accepts.
+ *
+ * A share of the reps (clusteredRatio) follows one of a handful of popular schedules (e.g. Mon-Fri 9:00 am - 5:00 pm),
+ * picked with a Zipf-like skew. The rest get random ranges whose start times lean towards business hours, and whose
+ * day span (Mon = 1 day, ..., Mon-Fri = 5 days) is drawn from daySpanWeights.
+ */
+public class SyntheticAvailabilityGenerator {
+    private static final int BUSINESS_HOURS_MEAN_SLOT = 20;     // 10:00 am
+    private static final double BUSINESS_HOURS_SLOT_DEVIATION = 5;
+    private static final double BUSINESS_HOURS_PROBABILITY = 0.8;
+    private static final int MEAN_DURATION_SLOTS = 8;           // 4 hours
+    private static final int HALF_PAST_MIDNIGHT_SLOT = 1;
+
+    private static final int[][] POPULAR_SCHEDULES = {
+            // { first day, last day, start slot, end slot }
+            { 0, 4, 18, 34 },   // Mon-Fri 9:00 am - 5:00 pm
+            { 0, 4, 16, 32 },   // Mon-Fri 8:00 am - 4:00 pm
+            { 0, 4, 20, 36 },   // Mon-Fri 10:00 am - 6:00 pm
+            { 0, 3, 18, 34 },   // Mon-Thu 9:00 am - 5:00 pm
+            { 1, 4, 18, 34 },   // Tue-Fri 9:00 am - 5:00 pm
+            { 0, 4, 14, 30 },   // Mon-Fri 7:00 am - 3:00 pm
+            { 0, 4, 24, 40 },   // Mon-Fri 12:00 pm - 8:00 pm
+            { 0, 2, 18, 26 },   // Mon-Wed 9:00 am - 1:00 pm
+            { 2, 4, 26, 34 },   // Wed-Fri 1:00 pm - 5:00 pm
+            { 0, 4, 0, 48 },    // Mon-Fri 12:00 am - 12:00 am
+    };
+
+    private final Random random;
+    private final int maxRangesPerRep;
+    private final double[] daySpanWeights;
+    private final double clusteredRatio;
+    private final double[] scheduleWeights;
+
+    /**
+     * Constructor
+     *
+     * @param seed Same seed, same data
+     * @param maxRangesPerRep Random reps get 1 ... maxRangesPerRep ranges
+     * @param daySpanWeights Relative weight of each day span, index 0 being a single day
+     * @param clusteredRatio Share of reps (0 ... 1) that follow a popular schedule
+     */
+    public SyntheticAvailabilityGenerator(long seed, int maxRangesPerRep, double[] daySpanWeights, double clusteredRatio) {
+        if (maxRangesPerRep < 1) {
+            throw new IllegalArgumentException(String.format("Ranges per rep must be at least 1, %d", maxRangesPerRep));
+        }
+        if (daySpanWeights.length != AvailabilityConstants.NUMBER_OF_DAYS) {
+            throw new IllegalArgumentException(String.format("Expected %d day span weights, but got %d", AvailabilityConstants.NUMBER_OF_DAYS, daySpanWeights.length));
+        }
+
+        this.random = new Random(seed);
+        this.maxRangesPerRep = maxRangesPerRep;
+        this.daySpanWeights = daySpanWeights;
+        this.clusteredRatio = clusteredRatio;
+
+        // Zipf-like: the k-th most popular schedule is k times less likely than the first one
+        this.scheduleWeights = new double[POPULAR_SCHEDULES.length];
+        for (int i = 0; i < scheduleWeights.length; ++i) {
+            scheduleWeights[i] = 1.0 / (i + 1);
+        }
+    }
+
+    /**
+     * Writes a CSV file with given number of reps, e.g. "rep0@example.com","Mon-Fri 9:00 am - 5:00 pm"
+     *
+     * @param path
+     * @param numReps
+     * @throws IOException
+     */
+    public void writeCsv(String path, long numReps) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8), 1 << 16);
+
+        try {
+            for (long i = 0; i < numReps; ++i) {
+                writer.write('"');
+                writer.write(String.format("rep%d@example.com", i));
+                writer.write("\",\"");
+                writer.write(nextAvailability());
+                writer.write("\"\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns the availability string of the next rep
+     *
+     * @return
+     */
+    public String nextAvailability() {
+        StringBuilder builder = new StringBuilder();
+
+        if (random.nextDouble() < clusteredRatio) {
+            int[] schedule = POPULAR_SCHEDULES[pickWeighted(scheduleWeights)];
+            appendRange(builder, schedule[0], schedule[1], schedule[2], schedule[3]);
+            return builder.toString();
+        }
+
+        int numRanges = 1 + random.nextInt(maxRangesPerRep);
+        for (int i = 0; i < numRanges; ++i) {
+            int daySpan = 1 + pickWeighted(daySpanWeights);
+            int firstDay = random.nextInt(AvailabilityConstants.NUMBER_OF_DAYS - daySpan + 1);
+
+            int startSlot = nextStartSlot();
+            int endSlot = nextEndSlot(startSlot);
+
+            if (i > 0) {
+                builder.append(", ");
+            }
+            appendRange(builder, firstDay, firstDay + daySpan - 1, startSlot, endSlot);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns a search string covering numSlots consecutive slots. Like availability, searches lean towards business
+     * hours. Runs that go past midnight continue on the next day as another range.
+     *
+     * @param numSlots 1 ... NUMBER_OF_DAYS * NUMBER_OF_SLOTS_PER_DAY
+     * @return
+     */
+    public String nextQuery(int numSlots) {
+        int totalSlots = AvailabilityConstants.NUMBER_OF_DAYS * AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY;
+        int dayOfWeek = random.nextInt(AvailabilityConstants.NUMBER_OF_DAYS);
+        int firstSlot = Math.min(totalSlots - numSlots, dayOfWeek * AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY + nextStartSlot());
+        if (firstSlot % AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY == HALF_PAST_MIDNIGHT_SLOT) {
+            --firstSlot;
+        }
+        StringBuilder builder = new StringBuilder();
+
+        int slot = firstSlot;
+        while (slot < firstSlot + numSlots) {
+            int day = slot / AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY;
+            int startSlot = slot % AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY;
+            int endSlot = Math.min(AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY, startSlot + (firstSlot + numSlots - slot));
+
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            appendRange(builder, day, day, startSlot, endSlot);
+            slot += endSlot - startSlot;
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns given slot as a time string, e.g. 19 => "9:30 am", 48 => "12:00 am"
+     *
+     * @param slot 0 ... NUMBER_OF_SLOTS_PER_DAY
+     * @return
+     */
+    public static String formatTime(int slot) {
+        return TimeSlotConverter.formatTimeSlot(slot);
+    }
+
+    private void appendRange(StringBuilder builder, int firstDay, int lastDay, int startSlot, int endSlot) {
+        // "12:30 am" can't be written (See nextStartSlot), so a range ending at 12:30 am runs until 1:00 am instead
+        if (endSlot == HALF_PAST_MIDNIGHT_SLOT) {
+            endSlot = HALF_PAST_MIDNIGHT_SLOT + 1;
+        }
+
+        builder.append(DayOfWeekConverter.convert(firstDay));
+        if (lastDay != firstDay) {
+            builder.append('-').append(DayOfWeekConverter.convert(lastDay));
+        }
+
+        builder.append(' ').append(formatTime(startSlot)).append(" - ").append(formatTime(endSlot));
+    }
+
+    /**
+     * Picks a start slot, leaning towards business hours.
+     *
+     * @note 12:30 am is never picked, since TimeParser reads "12:30 am" as 12:30 pm
+     * @return
+     */
+    private int nextStartSlot() {
+        int lastStartSlot = AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY - 1;
+        int slot;
+
+        do {
+            if (random.nextDouble() < BUSINESS_HOURS_PROBABILITY) {
+                slot = (int) Math.round(BUSINESS_HOURS_MEAN_SLOT + random.nextGaussian() * BUSINESS_HOURS_SLOT_DEVIATION);
+                slot = Math.max(0, Math.min(lastStartSlot, slot));
+            } else {
+                slot = random.nextInt(lastStartSlot + 1);
+            }
+        } while (slot == HALF_PAST_MIDNIGHT_SLOT);
+
+        return slot;
+    }
+
+    /**
+     * Picks an end slot after given start slot, with durations averaging MEAN_DURATION_SLOTS
+     *
+     * @param startSlot
+     * @return
+     */
+    private int nextEndSlot(int startSlot) {
+        int duration = 1 + (int) Math.round(Math.abs(random.nextGaussian()) * MEAN_DURATION_SLOTS);
+        return Math.min(AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY, startSlot + duration);
+    }
+
+    private int pickWeighted(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; ++i) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+
+        return weights.length - 1;
+    }
+
+    /**
+     * Parses comma separated weights, e.g. "40,20,15,10,15"
+     *
+     * @param weights
+     * @return
+     */
+    public static double[] parseWeights(String weights) {
+        List<Double> values = new ArrayList<Double>();
+        for (String weight : weights.split(",")) {
+            values.add(Double.parseDouble(weight.trim()));
+        }
+
+        double[] output = new double[values.size()];
+        for (int i = 0; i < output.length; ++i) {
+            output[i] = values.get(i);
+        }
+
+        return output;
+    }
+}
@@ -1,5 +1,6 @@
 package com.dashk.availability.utils;
 
+import com.dashk.availability.models.SlotGrid;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -19,7 +20,19 @@ public class TimeParser {
      * @return
      */
     public static int convertToNumericTime(String time) {
-        logger.debug("Converting " + time + " to military time");
+        return convertToNumericTime(time, SlotGrid.DEFAULT);
+    }
+
+    /**
+     * Same as convertToNumericTime(String), but accepts any minute on given grid's slot boundaries.
+     * e.g. 15 minutes slots: "10:15 am" returns 1015, "10:20 am" is invalid
+     *
+     * @param time
+     * @param grid
+     * @return
+     */
+    public static int convertToNumericTime(String time, SlotGrid grid) {
+        logger.debug("Converting {} to military time", time);
 
         // Extract "10:00" or "1:00"
         String hourAndMinutesOnly = time.substring(0, time.indexOf(SEPARATOR));
@@ -29,7 +42,7 @@ public class TimeParser {
         int timeInNumber = Integer.parseInt(hourAndMinutesOnly.replace(HOUR_MINUTE_SEPARATOR, ""));
         String timeOfDay = time.substring(time.indexOf(SEPARATOR) + 1).trim();
 
-        validateTime(timeInNumber, timeOfDay, time);
+        validateTime(timeInNumber, timeOfDay, time, grid);
 
         if (timeInNumber < 1200 && timeOfDay.equals("pm")) {
             timeInNumber += 1200;
@@ -46,18 +59,19 @@ public class TimeParser {
      * @param time
      * @param timeOfDay
      * @param originalTimeInput
+     * @param grid
      */
-    private static void validateTime(int time, String timeOfDay, String originalTimeInput) {
+    private static void validateTime(int time, String timeOfDay, String originalTimeInput, SlotGrid grid) {
         // Make sure time is "in range"
         // @NOTE(dashk): 0000 is considered invalid time
-        if (time < 100 || time > 1230) {
+        if (time < 100 || time > getLastTime(grid)) {
             throw new IllegalArgumentException(String.format("Time is invalid, %s", originalTimeInput));
         }
 
         // Make sure the "minutes" portion is valid
         int minute = (time % 100);
-        if (minute != 00 && minute != 30) {
-            throw new IllegalArgumentException(String.format("Minute is invalid, %s. It must be either 00 or 30", originalTimeInput));
+        if (!grid.isValidMinute(minute)) {
+            throw new IllegalArgumentException(String.format("Minute is invalid, %s. It must be %s", originalTimeInput, grid.describeValidMinutes()));
         }
 
         // Make sure time of day is valid
@@ -65,4 +79,15 @@ public class TimeParser {
             throw new IllegalArgumentException(String.format("Time of day is invalid, %s. It must be either am or pm", originalTimeInput));
         }
     }
+
+    /**
+     * Returns the latest numeric time before conversion to 24 hours, i.e. the last slot of the 12 o'clock hour
+     * e.g. 30 minutes slots => 1230, 15 minutes slots => 1245
+     *
+     * @param grid
+     * @return
+     */
+    static int getLastTime(SlotGrid grid) {
+        return 1200 + 60 - grid.getMinutesPerSlot();
+    }
 }
@@ -1,6 +1,7 @@
 package com.dashk.availability.utils;
 
 import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.SlotGrid;
 import com.dashk.availability.models.TimeRange;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -23,15 +24,28 @@ public class TimeRangeParser {
      * @throws AvailabilityException
      */
     public static List<TimeRange> parse(String rawAvailabilityString) throws AvailabilityException {
+        return parse(rawAvailabilityString, SlotGrid.DEFAULT);
+    }
+
+    /**
+     * Returns a list of time ranges based on given availability string, accepting the days & minutes of given grid
+     * (e.g. "Sat 10:15 am - 11:45 am" on 7 days of 15 minutes slots)
+     *
+     * @param rawAvailabilityString
+     * @param grid
+     * @return
+     * @throws AvailabilityException
+     */
+    public static List<TimeRange> parse(String rawAvailabilityString, SlotGrid grid) throws AvailabilityException {
         List<TimeRange> availability = new ArrayList<TimeRange>();
 
         for (String range : rawAvailabilityString.split(TIME_RANGE_SEPARATOR)) {
             String formattedRange = range.trim();
-            logger.debug(String.format("Converting %s", formattedRange));
-            int startSlot = parseStartSlot(formattedRange);
-            int endSlot = parseEndSlot(formattedRange);
+            logger.debug("Converting {}", formattedRange);
+            int startSlot = parseStartSlot(formattedRange, grid);
+            int endSlot = parseEndSlot(formattedRange, grid);
 
-            for (int dayOfWeek : parseDays(formattedRange)) {
+            for (int dayOfWeek : parseDays(formattedRange, grid)) {
                 availability.add(new TimeRange(dayOfWeek, startSlot, endSlot));
             }
         }
@@ -45,9 +59,10 @@ public class TimeRangeParser {
      * @note This is not necessarily military time, as if end slot is set to 12a, we'll return 2400, which is not
      * a valid military time value.
      * @param range
+     * @param grid
      * @return
      */
-    private static int parseEndSlot(String range) {
+    private static int parseEndSlot(String range, SlotGrid grid) {
 
         // Extract "10:00 am - 1:30 pm"
         String timeComponent = getTimeComponent(range);
@@ -56,7 +71,7 @@ public class TimeRangeParser {
         String endTimeComponent = getEndTimeComponent(timeComponent);
 
         // Converts "1:00 pm" to 1330
-        int time = TimeParser.convertToNumericTime(endTimeComponent);
+        int time = TimeParser.convertToNumericTime(endTimeComponent, grid);
 
         //
         if (time == 0) {
@@ -69,9 +84,10 @@ public class TimeRangeParser {
     /**
      * Given "Mon-Tue 10:00 am - 12:00 pm", returns the military time that represents 10:00am
      * @param range
+     * @param grid
      * @return
      */
-    private static int parseStartSlot(String range) {
+    private static int parseStartSlot(String range, SlotGrid grid) {
         // Extract "10:00 am - 12:00 pm"
         String timeComponent = getTimeComponent(range);
 
@@ -79,7 +95,7 @@ public class TimeRangeParser {
         String startTimeComponent = getStartTimeComponent(timeComponent);
 
         // Converts "10:00 am" to 1000
-        return TimeParser.convertToNumericTime(startTimeComponent);
+        return TimeParser.convertToNumericTime(startTimeComponent, grid);
     }
 
     /**
@@ -116,10 +132,11 @@ public class TimeRangeParser {
      * In this case, it will be [ 0, 1, 2, 3 ].
      *
      * @param range
+     * @param grid
      * @return
      * @throws AvailabilityException
      */
-    private static int[] parseDays(String range) throws AvailabilityException {
+    private static int[] parseDays(String range, SlotGrid grid) throws AvailabilityException {
         String dayOfWeekInString = range.substring(0, range.indexOf(' '));
 
         // Detect if it has multiple days, say Mon-Thu
@@ -131,13 +148,13 @@ public class TimeRangeParser {
             String lastDayInString = dayOfWeekInString.substring(dayOfWeekInString.indexOf('-') + 1).trim();
 
             // Convert them to index (0, 3)
-            int firstDay = DayOfWeekConverter.convert(firstDayInString);
-            int lastDay = DayOfWeekConverter.convert(lastDayInString);
+            int firstDay = DayOfWeekConverter.convert(firstDayInString, grid.getNumberOfDays());
+            int lastDay = DayOfWeekConverter.convert(lastDayInString, grid.getNumberOfDays());
 
             return generateDaysInWeekArray(firstDay, lastDay);
         } else {
             // Single day
-            return new int[] { DayOfWeekConverter.convert(dayOfWeekInString) };
+            return new int[] { DayOfWeekConverter.convert(dayOfWeekInString, grid.getNumberOfDays()) };
         }
     }
 
@@ -0,0 +1,65 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.AvailabilityConstants;
+import com.dashk.availability.models.TimeRange;
+
+/**
+ * Converts numeric time (0...2400) to/from time slot index (0...47)
+ */
+public class TimeSlotConverter {
+    /**
+     * Given a time slot index (See time slot array), returns its corresponding time.
+     * e.g. 0 => 0, 3 => 130, 48 => 2400
+     *
+     * @param index
+     * @return
+     */
+    public static int getTimeByTimeSlotIndex(int index) {
+        int hour = (index / 2) * 100;
+        boolean isHalfHour = ((index % 2) == 1);
+        return hour + (isHalfHour ? 30 : 0);
+    }
+
+    /**
+     * Given a start time (0...2400), returns the corresponding index on the time slot array.
+     * e.g. 0 => 0, 130 => 3, 2400 => 48
+     *
+     * @param time
+     * @return
+     */
+    public static int getTimeSlotIndexByTime(int time) {
+        int hour = (time / 100);
+        boolean isHalfHour = ((time % 100) == 30);
+        return (hour * 2) + (isHalfHour ? 1 : 0);
+    }
+
+    /**
+     * Given a time slot index, returns its time as written in availability strings.
+     * e.g. 19 => "9:30 am", 26 => "1:00 pm", 48 => "12:00 am"
+     *
+     * @param index
+     * @return
+     */
+    public static String formatTimeSlot(int index) {
+        int time = getTimeByTimeSlotIndex(index % AvailabilityConstants.NUMBER_OF_SLOTS_PER_DAY);
+        int hour = time / 100;
+        int displayHour = (hour % 12 == 0) ? 12 : hour % 12;
+
+        return String.format("%d:%02d %s", displayHour, time % 100, hour < 12 ? "am" : "pm");
+    }
+
+    /**
+     * Given a time range, returns it as written in availability strings.
+     * e.g. Mon 1000 to 1330 => "Mon 10:00 am - 1:30 pm"
+     *
+     * @param timeRange
+     * @return
+     */
+    public static String formatTimeRange(TimeRange timeRange) {
+        return String.format("%s %s - %s",
+                DayOfWeekConverter.convert(timeRange.getDayOfWeek()),
+                formatTimeSlot(getTimeSlotIndexByTime(timeRange.getStartTime())),
+                formatTimeSlot(getTimeSlotIndexByTime(timeRange.getEndTime()))
+        );
+    }
+}
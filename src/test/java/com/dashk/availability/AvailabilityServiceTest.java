@@ -0,0 +1,241 @@
+package com.dashk.availability;
+
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.FastTimeRangeParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the service on an executor that only runs tasks when told to, so every step of a search or stream is observed
+ */
+public class AvailabilityServiceTest {
+    private static final int NUM_REPS = 3000;
+    private static final String SEARCH_TIME = "Mon 10:00 am - 11:00 am";
+
+    private AvailabilityIndex index;
+    private ManualExecutor executor;
+
+    @Before
+    public void setUp() {
+        List<SalesDevelopmentRepresentative> salesReps = new ArrayList<SalesDevelopmentRepresentative>(NUM_REPS);
+        for (int i = 0; i < NUM_REPS; ++i) {
+            String availability = i % 10 == 0 ? "Tue 9:00 am - 5:00 pm" : "Mon 9:00 am - 5:00 pm";
+            salesReps.add(new SalesDevelopmentRepresentative(String.format("rep%d@example.com", i), FastTimeRangeParser.parse(availability)));
+        }
+
+        index = AvailabilityIndex.build(salesReps);
+        executor = new ManualExecutor();
+    }
+
+    @Test
+    public void deliversNoMoreThanRequested() {
+        AvailabilityService service = new AvailabilityService(index, null, executor, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        List<SalesDevelopmentRepresentative> expected = index.find(FastTimeRangeParser.parse(SEARCH_TIME));
+
+        service.stream(SEARCH_TIME, subscriber);
+        executor.runAll();
+        assertEquals(0, subscriber.salesReps.size());
+        assertEquals(1, service.getInFlight());
+
+        subscriber.subscription.request(5);
+        executor.runAll();
+        assertEquals(5, subscriber.salesReps.size());
+
+        // More than one turn's batch
+        subscriber.subscription.request(2000);
+        subscriber.subscription.request(1);
+        executor.runAll();
+        assertEquals(2006, subscriber.salesReps.size());
+        assertFalse(subscriber.isComplete);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        assertEquals(expected.size(), subscriber.salesReps.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getEmail(), subscriber.salesReps.get(i).getEmail());
+        }
+        assertTrue(subscriber.isComplete);
+        assertNull(subscriber.error);
+        assertEquals(0, service.getInFlight());
+    }
+
+    @Test
+    public void failsOnNonPositiveRequest() {
+        AvailabilityService service = new AvailabilityService(index, null, executor, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        service.stream(SEARCH_TIME, subscriber);
+        subscriber.subscription.request(0);
+        executor.runAll();
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, subscriber.salesReps.size());
+        assertFalse(subscriber.isComplete);
+        assertEquals(0, service.getInFlight());
+    }
+
+    @Test
+    public void cancelReleasesSlot() {
+        AvailabilityService service = new AvailabilityService(index, null, executor, 1);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        service.stream(SEARCH_TIME, subscriber);
+        subscriber.subscription.request(5);
+        executor.runAll();
+        assertEquals(5, subscriber.salesReps.size());
+
+        subscriber.subscription.cancel();
+        assertEquals(0, service.getInFlight());
+
+        // Cancelling twice, or asking for more afterwards, neither delivers nor releases again
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+        executor.runAll();
+        assertEquals(5, subscriber.salesReps.size());
+        assertFalse(subscriber.isComplete);
+        assertNull(subscriber.error);
+        assertEquals(0, service.getInFlight());
+
+        // The slot can be taken again
+        CompletableFuture<Integer> count = service.count(SEARCH_TIME);
+        executor.runAll();
+        assertEquals(NUM_REPS - NUM_REPS / 10, (int) count.join());
+    }
+
+    @Test
+    public void rejectsPastMaxInFlight() {
+        AvailabilityService service = new AvailabilityService(index, null, executor, 2);
+
+        CompletableFuture<List<SalesDevelopmentRepresentative>> first = service.find(SEARCH_TIME);
+        RecordingSubscriber stream = new RecordingSubscriber();
+        service.stream(SEARCH_TIME, stream);
+        assertEquals(2, service.getInFlight());
+
+        assertRejected(service.findFirst(SEARCH_TIME, 1));
+        RecordingSubscriber rejected = new RecordingSubscriber();
+        service.stream(SEARCH_TIME, rejected);
+        assertTrue(rejected.error instanceof RejectedExecutionException);
+        assertEquals(2, service.getInFlight());
+
+        executor.runAll();
+        stream.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+
+        assertEquals(NUM_REPS - NUM_REPS / 10, first.join().size());
+        assertTrue(stream.isComplete);
+        assertEquals(0, service.getInFlight());
+    }
+
+    @Test
+    public void executorRejectionReleasesSlot() {
+        Executor shutDown = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("Shut down");
+            }
+        };
+        AvailabilityService service = new AvailabilityService(index, null, shutDown, 1);
+
+        assertRejected(service.count(SEARCH_TIME));
+        assertEquals(0, service.getInFlight());
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        service.stream(SEARCH_TIME, subscriber);
+        assertTrue(subscriber.error instanceof RejectedExecutionException);
+        assertEquals(0, service.getInFlight());
+    }
+
+    @Test
+    public void failsOnInvalidSearchTime() throws InterruptedException {
+        AvailabilityService service = new AvailabilityService(index, null, executor, 2);
+
+        CompletableFuture<List<SalesDevelopmentRepresentative>> found = service.find("Someday 10:00 am - 11:00 am");
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        service.stream("Mon 10:00 am", subscriber);
+        subscriber.subscription.request(1);
+        executor.runAll();
+
+        try {
+            found.get();
+            fail("Found reps for an invalid search time");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, service.getInFlight());
+    }
+
+    private static void assertRejected(CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * Queues tasks until runAll, including those queued while running
+     */
+    private static class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    private static class RecordingSubscriber implements AvailabilityService.ResultSubscriber {
+        private final List<SalesDevelopmentRepresentative> salesReps = new ArrayList<SalesDevelopmentRepresentative>();
+        private AvailabilityService.Subscription subscription;
+        private Throwable error;
+        private boolean isComplete;
+
+        @Override
+        public void onSubscribe(AvailabilityService.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(SalesDevelopmentRepresentative salesRep) {
+            salesReps.add(salesRep);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            assertNull("Stream failed twice", this.error);
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            assertFalse("Stream completed twice", isComplete);
+            isComplete = true;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.dashk.availability;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import com.dashk.availability.utils.AvailabilityIndex;
+import com.dashk.availability.utils.SalesRepLoader;
+import com.dashk.availability.utils.ShardSpec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardCoordinatorTest {
+    private static final int NUM_SHARDS = 3;
+    private static final String SEARCH_TIME = "Mon 10:00 am - 11:00 am";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File dataFile;
+    private final List<ShardWorker> workers = new ArrayList<ShardWorker>();
+    private ShardCoordinator coordinator;
+
+    @Before
+    public void setUp() throws IOException, AvailabilityException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 60; ++i) {
+            String availability = i % 3 == 0 ? "Tue 10:00 am - 11:00 am" : "Mon 9:00 am - 12:00 pm";
+            content.append(String.format("rep%d@example.com,%s\n", i, availability));
+            if (i == 10) {
+                // A quoted email holding a new line, a tab, a comma & escaped quotes
+                content.append("\"rep\n\t,\"\"x\"\"@e.com\",Mon 10:00 am - 11:00 am\r\n");
+            }
+        }
+
+        dataFile = folder.newFile("reps.csv");
+        Files.write(dataFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<URI> uris = new ArrayList<URI>();
+        for (int shard = 0; shard < NUM_SHARDS; ++shard) {
+            ShardWorker worker = new ShardWorker(SalesRepLoader.load(dataFile.getPath(), new ShardSpec(shard, NUM_SHARDS)));
+            worker.start(0, 2);
+            workers.add(worker);
+            uris.add(URI.create(String.format("http://%s:%d", InetAddress.getLoopbackAddress().getHostAddress(), worker.getPort())));
+        }
+
+        coordinator = new ShardCoordinator(uris, 10000);
+    }
+
+    @After
+    public void tearDown() {
+        coordinator.close();
+        for (ShardWorker worker : workers) {
+            worker.stop();
+        }
+    }
+
+    @Test
+    public void mergesInFileOrder() throws IOException, AvailabilityException {
+        List<String> expected = findInOneProcess(Integer.MAX_VALUE);
+
+        assertEquals(41, expected.size());
+        assertTrue(expected.contains("rep\n\t,\"x\"@e.com"));
+        assertEquals(expected, coordinator.find(SEARCH_TIME, Integer.MAX_VALUE));
+        assertEquals(expected.size(), coordinator.count(SEARCH_TIME));
+
+        for (int limit : new int[] {1, 3, 9, 40}) {
+            assertEquals(findInOneProcess(limit), coordinator.find(SEARCH_TIME, limit));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedResponses() throws IOException {
+        // Fewer reps than counted, no count line, a line without a row number, rows out of order, an invalid count
+        String[] bodies = {"2\n1\ta%40x.com\n", "1\ta%40x.com\n", "1\na%40x.com\n", "2\n5\ta\n3\tb\n", "x\n"};
+
+        for (String body : bodies) {
+            HttpServer server = startStub(body);
+            ShardCoordinator stubCoordinator = new ShardCoordinator(Collections.singletonList(URI.create(String.format("http://%s:%d",
+                    InetAddress.getLoopbackAddress().getHostAddress(), server.getAddress().getPort()))), 10000);
+
+            try {
+                stubCoordinator.find(SEARCH_TIME, Integer.MAX_VALUE);
+                fail(String.format("Response is accepted, %s", body));
+            } catch (AvailabilityException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("malformed"));
+            } finally {
+                stubCoordinator.close();
+                server.stop(0);
+            }
+        }
+    }
+
+    private static HttpServer startStub(final String body) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(ShardWorker.SHARD_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                AvailabilityServer.respond(exchange, 200, body);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        return server;
+    }
+
+    private List<String> findInOneProcess(int limit) throws IOException, AvailabilityException {
+        AvailabilityIndex index = SalesRepLoader.load(dataFile.getPath());
+        List<String> output = new ArrayList<String>();
+        for (SalesDevelopmentRepresentative salesRep : AvailabilityRunner.findAvailableSalesRep(index, SEARCH_TIME, limit)) {
+            output.add(salesRep.getEmail());
+        }
+
+        return output;
+    }
+}
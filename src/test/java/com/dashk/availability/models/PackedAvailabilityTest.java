@@ -0,0 +1,148 @@
+package com.dashk.availability.models;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks PackedAvailability's set algebra against a BitSet holding the same slots
+ */
+public class PackedAvailabilityTest {
+    private static final int LAST_SLOT = PackedAvailability.TOTAL_SLOTS - 1;
+    private static final int NUM_ROUNDS = 2000;
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(42);
+
+        for (int round = 0; round < NUM_ROUNDS; ++round) {
+            BitSet a = randomSlots(random);
+            BitSet b = randomSlots(random);
+            PackedAvailability packedA = toPacked(a);
+            PackedAvailability packedB = toPacked(b);
+
+            assertMatches(a, packedA);
+
+            BitSet union = (BitSet) a.clone();
+            union.or(b);
+            assertMatches(union, packedA.union(packedB));
+
+            BitSet intersection = (BitSet) a.clone();
+            intersection.and(b);
+            assertMatches(intersection, packedA.intersect(packedB));
+
+            BitSet difference = (BitSet) a.clone();
+            difference.andNot(b);
+            assertMatches(difference, packedA.difference(packedB));
+
+            BitSet complement = (BitSet) a.clone();
+            complement.flip(0, PackedAvailability.TOTAL_SLOTS);
+            assertMatches(complement, packedA.complement());
+            assertEquals(packedA, packedA.complement().complement());
+
+            assertEquals(a.intersects(b), packedA.intersects(packedB));
+            assertEquals(difference(b, a).isEmpty(), packedA.encloses(packedB));
+            assertEquals(packedA.equals(packedB), a.equals(b));
+        }
+    }
+
+    @Test
+    public void staysWithinTheWeek() {
+        assertEquals(PackedAvailability.TOTAL_SLOTS, PackedAvailability.FULL.cardinality());
+        assertEquals(0, PackedAvailability.FULL.getWord(PackedAvailability.WORD_COUNT - 1) >>> (LAST_SLOT % Long.SIZE) >>> 1);
+        assertEquals(PackedAvailability.FULL, PackedAvailability.EMPTY.complement());
+        assertEquals(PackedAvailability.EMPTY, PackedAvailability.FULL.complement());
+
+        assertEquals(LAST_SLOT, PackedAvailability.FULL.nextSetSlot(LAST_SLOT));
+        assertEquals(-1, PackedAvailability.FULL.nextSetSlot(PackedAvailability.TOTAL_SLOTS));
+        assertEquals(PackedAvailability.TOTAL_SLOTS, PackedAvailability.FULL.nextClearSlot(0));
+        assertEquals(PackedAvailability.TOTAL_SLOTS, PackedAvailability.FULL.nextClearSlot(LAST_SLOT));
+        assertEquals(PackedAvailability.TOTAL_SLOTS, PackedAvailability.FULL.nextClearSlot(PackedAvailability.TOTAL_SLOTS));
+        assertEquals(LAST_SLOT, PackedAvailability.EMPTY.nextClearSlot(LAST_SLOT));
+        assertEquals(-1, PackedAvailability.EMPTY.nextSetSlot(0));
+
+        BitSet lastSlot = new BitSet();
+        lastSlot.set(LAST_SLOT);
+        assertMatches(lastSlot, toPacked(lastSlot));
+        assertMatches(lastSlot, PackedAvailability.FULL.difference(toPacked(lastSlot).complement()));
+        assertTrue(PackedAvailability.FULL.encloses(toPacked(lastSlot)));
+    }
+
+    /**
+     * Slots that are empty, full, or set at some density, often including the first & last slot of the week
+     *
+     * @param random
+     * @return
+     */
+    private static BitSet randomSlots(Random random) {
+        BitSet output = new BitSet(PackedAvailability.TOTAL_SLOTS);
+
+        switch (random.nextInt(8)) {
+            case 0:
+                return output;
+            case 1:
+                output.set(0, PackedAvailability.TOTAL_SLOTS);
+                return output;
+            default:
+                break;
+        }
+
+        double density = random.nextDouble();
+        for (int slot = 0; slot < PackedAvailability.TOTAL_SLOTS; ++slot) {
+            if (random.nextDouble() < density) {
+                output.set(slot);
+            }
+        }
+
+        if (random.nextBoolean()) {
+            output.set(LAST_SLOT, random.nextBoolean());
+            output.set(0, random.nextBoolean());
+        }
+
+        return output;
+    }
+
+    private static PackedAvailability toPacked(BitSet slots) {
+        long[] words = new long[PackedAvailability.WORD_COUNT];
+        long[] setWords = slots.toLongArray();
+        System.arraycopy(setWords, 0, words, 0, setWords.length);
+
+        return PackedAvailability.fromWords(words);
+    }
+
+    private static BitSet difference(BitSet a, BitSet b) {
+        BitSet output = (BitSet) a.clone();
+        output.andNot(b);
+
+        return output;
+    }
+
+    private static void assertMatches(BitSet expected, PackedAvailability actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(toPacked(expected), actual);
+        assertEquals(toPacked(expected).hashCode(), actual.hashCode());
+
+        // Nothing past the last slot, even in the unused bits of the last word
+        long lastWord = actual.getWord(PackedAvailability.WORD_COUNT - 1);
+        assertEquals(0, lastWord >>> (LAST_SLOT % Long.SIZE) >>> 1);
+
+        for (int slot = 0; slot < PackedAvailability.TOTAL_SLOTS; ++slot) {
+            assertEquals(expected.get(slot), actual.isSet(slot));
+            assertEquals(expected.get(slot), actual.contains(slot));
+        }
+
+        for (int from = 0; from <= PackedAvailability.TOTAL_SLOTS; ++from) {
+            int expectedSet = expected.nextSetBit(from);
+            assertEquals(String.valueOf(from), expectedSet, actual.nextSetSlot(from));
+            assertEquals(String.valueOf(from), Math.min(expected.nextClearBit(from), PackedAvailability.TOTAL_SLOTS), actual.nextClearSlot(from));
+        }
+
+        // Every slot lies within one of the ranges, and the ranges cover nothing else
+        assertEquals(actual, PackedAvailability.fromTimeRanges(actual.toTimeRanges()));
+    }
+}
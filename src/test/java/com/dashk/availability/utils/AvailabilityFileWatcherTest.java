@@ -0,0 +1,169 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Reloads by hand rather than on file events, so every version of the file is seen
+ */
+public class AvailabilityFileWatcherTest {
+    private static final String MONDAY = "Mon 9:00 am - 5:00 pm";
+    private static final String TUESDAY = "Tue 9:00 am - 5:00 pm";
+    private static final PackedAvailability MONDAY_SEARCH = FastTimeRangeParser.parse("Mon 10:00 am - 11:00 am");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File dataFile;
+    private AvailabilityFileWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException, AvailabilityException {
+        dataFile = folder.newFile("reps.csv");
+        write("a@example.com," + MONDAY, "b@example.com," + MONDAY, "c@example.com," + TUESDAY);
+        watcher = new AvailabilityFileWatcher(dataFile.getPath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    public void followsAddsChangesRemovesAndMoves() throws IOException, AvailabilityException {
+        assertReps("a@example.com", "b@example.com", "c@example.com");
+        assertFound("a@example.com", "b@example.com");
+
+        write("a@example.com," + MONDAY, "b@example.com," + MONDAY, "c@example.com," + TUESDAY);
+        AvailabilityIndex unchanged = watcher.get();
+        assertFalse(watcher.reload());
+        assertSame(unchanged, watcher.get());
+
+        // Added
+        write("a@example.com," + MONDAY, "b@example.com," + MONDAY, "c@example.com," + TUESDAY, "d@example.com," + MONDAY);
+        assertTrue(watcher.reload());
+        assertReps("a@example.com", "b@example.com", "c@example.com", "d@example.com");
+        assertFound("a@example.com", "b@example.com", "d@example.com");
+
+        // Changed, while b is only quoted now, which leaves its availability as is
+        write("a@example.com," + TUESDAY, "b@example.com,\"" + MONDAY + "\"", "c@example.com," + MONDAY, "d@example.com," + MONDAY);
+        assertTrue(watcher.reload());
+        assertReps("a@example.com", "b@example.com", "c@example.com", "d@example.com");
+        assertFound("b@example.com", "c@example.com", "d@example.com");
+
+        // Removed
+        write("a@example.com," + TUESDAY, "c@example.com," + MONDAY, "d@example.com," + MONDAY);
+        assertTrue(watcher.reload());
+        assertReps("a@example.com", "c@example.com", "d@example.com");
+        assertFound("c@example.com", "d@example.com");
+
+        // Moved, nothing else
+        write("d@example.com," + MONDAY, "a@example.com," + TUESDAY, "c@example.com," + MONDAY);
+        assertTrue(watcher.reload());
+        assertReps("d@example.com", "a@example.com", "c@example.com");
+        assertFound("d@example.com", "c@example.com");
+
+        // Removed & added as many, so the size stays the same
+        write("d@example.com," + MONDAY, "e@example.com," + TUESDAY, "c@example.com," + MONDAY);
+        assertTrue(watcher.reload());
+        assertReps("d@example.com", "e@example.com", "c@example.com");
+        assertFound("d@example.com", "c@example.com");
+    }
+
+    @Test
+    public void searchesInFlightKeepTheirVersion() throws IOException, AvailabilityException {
+        AvailabilityIndex inFlight = watcher.get();
+        long version = inFlight.getVersion();
+
+        write("c@example.com," + MONDAY, "a@example.com," + TUESDAY);
+        assertTrue(watcher.reload());
+
+        assertTrue(watcher.get().getVersion() > version);
+        assertFound("c@example.com");
+
+        assertEquals(version, inFlight.getVersion());
+        assertEquals(3, inFlight.size());
+        assertEquals(Arrays.asList("a@example.com", "b@example.com"), getEmails(inFlight.find(MONDAY_SEARCH)));
+    }
+
+    @Test
+    public void keepsVersionOnInvalidFile() throws IOException, AvailabilityException {
+        AvailabilityIndex current = watcher.get();
+
+        write("a@example.com," + MONDAY, "b@example.com,Mon 9:00 am to noon");
+        assertReloadFails("Record 2 has an invalid availability: ");
+
+        write("a@example.com," + MONDAY, "b@example.com," + MONDAY, "a@example.com," + TUESDAY);
+        assertReloadFails("Record 3 repeats the email of record 1, a@example.com");
+
+        write("a@example.com," + MONDAY, "b@example.com");
+        assertReloadFails("Record 2 has an invalid availability: Missing field");
+
+        assertSame(current, watcher.get());
+
+        // A rep whose change failed is parsed again once fixed
+        write("a@example.com," + MONDAY, "b@example.com," + TUESDAY, "c@example.com," + TUESDAY);
+        assertTrue(watcher.reload());
+        assertFound("a@example.com");
+    }
+
+    private void assertReloadFails(String message) throws IOException {
+        try {
+            watcher.reload();
+            fail("Reloaded an invalid file");
+        } catch (AvailabilityException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    private void assertReps(String... emails) {
+        AvailabilityIndex index = watcher.get();
+        assertEquals(emails.length, index.size());
+        for (int id = 0; id < emails.length; ++id) {
+            assertEquals(emails[id], index.getEmail(id));
+            assertEquals(id, index.getId(emails[id]));
+        }
+    }
+
+    private void assertFound(String... emails) {
+        assertEquals(Arrays.asList(emails), getEmails(watcher.get().find(MONDAY_SEARCH)));
+    }
+
+    private static List<String> getEmails(List<SalesDevelopmentRepresentative> salesReps) {
+        List<String> output = new ArrayList<String>(salesReps.size());
+        for (SalesDevelopmentRepresentative salesRep : salesReps) {
+            output.add(salesRep.getEmail());
+        }
+
+        return output;
+    }
+
+    private void write(String... lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+
+        Files.write(dataFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
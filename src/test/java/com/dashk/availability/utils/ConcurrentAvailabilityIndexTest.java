@@ -0,0 +1,215 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.PackedAvailability;
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentAvailabilityIndexTest {
+    private static final int NUM_READERS = 3;
+    private static final int NUM_WRITERS = 2;
+    private static final int NUM_REPS = ConcurrentAvailabilityIndex.SEGMENT_SIZE * 3 + 1;
+    private static final int NUM_FLIPS = 20000;
+    private static final PackedAvailability MONDAY = FastTimeRangeParser.parse("Mon 9:00 am - 5:00 pm");
+    private static final PackedAvailability MONDAY_MORNING = FastTimeRangeParser.parse("Mon 9:00 am - 11:00 am");
+    private static final PackedAvailability TUESDAY = FastTimeRangeParser.parse("Tue 9:00 am - 5:00 pm");
+    private static final PackedAvailability SEARCH = FastTimeRangeParser.parse("Mon 10:00 am - 11:00 am");
+
+    @Test
+    public void replaceKeepsIdAndClearsLostSlots() {
+        ConcurrentAvailabilityIndex index = new ConcurrentAvailabilityIndex();
+        SalesDevelopmentRepresentative a = new SalesDevelopmentRepresentative("a@example.com", MONDAY);
+        SalesDevelopmentRepresentative b = new SalesDevelopmentRepresentative("b@example.com", MONDAY);
+        SalesDevelopmentRepresentative c = new SalesDevelopmentRepresentative("c@example.com", MONDAY);
+        assertNull(index.put(a));
+        assertNull(index.put(b));
+        assertNull(index.put(c));
+
+        // Gains Tuesday, loses Monday afternoon
+        SalesDevelopmentRepresentative replacement = new SalesDevelopmentRepresentative("b@example.com", MONDAY_MORNING.union(TUESDAY));
+        assertSame(b, index.put(replacement));
+
+        assertEquals(3, index.size());
+        assertSame(replacement, index.get("b@example.com"));
+        assertEquals(MONDAY_MORNING.union(TUESDAY), index.getIndexedSlots("b@example.com"));
+        assertEquals(Arrays.asList("a@example.com", "b@example.com", "c@example.com"), getEmails(index.find(SEARCH)));
+        assertEquals(Arrays.asList("b@example.com"), getEmails(index.find(TUESDAY)));
+        assertEquals(Arrays.asList("a@example.com", "c@example.com"), getEmails(index.find(MONDAY)));
+        assertEquals(2, index.count(MONDAY));
+
+        AvailabilityIndex snapshot = index.toIndex();
+        assertEquals("b@example.com", snapshot.getEmail(1));
+        assertEquals(replacement.getPackedAvailability(), snapshot.getSalesRep(1).getPackedAvailability());
+    }
+
+    @Test
+    public void removeThenPutKeepsId() {
+        ConcurrentAvailabilityIndex index = new ConcurrentAvailabilityIndex();
+        for (String email : Arrays.asList("a@example.com", "b@example.com", "c@example.com")) {
+            index.put(new SalesDevelopmentRepresentative(email, MONDAY));
+        }
+
+        SalesDevelopmentRepresentative b = index.get("b@example.com");
+        assertSame(b, index.remove("b@example.com"));
+        assertNull(index.remove("b@example.com"));
+        assertNull(index.remove("d@example.com"));
+
+        assertEquals(2, index.size());
+        assertNull(index.get("b@example.com"));
+        assertEquals(PackedAvailability.EMPTY, index.getIndexedSlots("b@example.com"));
+        assertEquals(Arrays.asList("a@example.com", "c@example.com"), getEmails(index.find(SEARCH)));
+        assertEquals(2, index.toIndex().size());
+
+        // Back in its first place, with its new availability only
+        assertNull(index.put(new SalesDevelopmentRepresentative("b@example.com", TUESDAY)));
+        assertEquals(3, index.size());
+        assertEquals(TUESDAY, index.getIndexedSlots("b@example.com"));
+        assertEquals(Arrays.asList("a@example.com", "c@example.com"), getEmails(index.find(SEARCH)));
+
+        index.put(new SalesDevelopmentRepresentative("b@example.com", MONDAY));
+        assertEquals(Arrays.asList("a@example.com", "b@example.com", "c@example.com"), getEmails(index.find(SEARCH)));
+        assertEquals(Arrays.asList("a@example.com", "b@example.com", "c@example.com"), getEmails(index.toIndex().find(SEARCH)));
+    }
+
+    @Test
+    public void findWhileFlipping() throws InterruptedException {
+        final ConcurrentAvailabilityIndex index = new ConcurrentAvailabilityIndex();
+        final AtomicBoolean isWriting = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final int numStable = 200;
+
+        // Stable reps always match the search, interleaved with reps that flip between a matching & a disjoint schedule
+        for (int i = 0; i < numStable; ++i) {
+            index.put(new SalesDevelopmentRepresentative("stable" + i + "@example.com", MONDAY));
+            index.put(new SalesDevelopmentRepresentative("flip" + i + "@example.com", MONDAY));
+        }
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < NUM_READERS; ++i) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (isWriting.get()) {
+                            int stable = 0;
+                            for (SalesDevelopmentRepresentative salesRep : index.find(SEARCH)) {
+                                assertTrue(salesRep.getEmail(), salesRep.isAvailable(SEARCH));
+                                if (salesRep.getEmail().startsWith("stable")) {
+                                    ++stable;
+                                }
+                            }
+                            assertEquals(numStable, stable);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }));
+        }
+
+        final List<Thread> writers = new ArrayList<Thread>();
+        for (int i = 0; i < NUM_WRITERS; ++i) {
+            final int writer = i;
+            writers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int flip = 0; flip < NUM_FLIPS; ++flip) {
+                        int rep = (flip * NUM_WRITERS + writer) % numStable;
+                        PackedAvailability slots = flip % 2 == 0 ? TUESDAY : MONDAY_MORNING;
+                        index.put(new SalesDevelopmentRepresentative("flip" + rep + "@example.com", slots));
+                    }
+                }
+            }));
+        }
+
+        threads.addAll(writers);
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        } finally {
+            isWriting.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assertNull(String.valueOf(failure.get()), failure.get());
+
+        // Quiet now, so the bitsets match every rep exactly
+        for (int i = 0; i < numStable; ++i) {
+            for (String email : Arrays.asList("stable" + i + "@example.com", "flip" + i + "@example.com")) {
+                assertEquals(email, index.get(email).getPackedAvailability(), index.getIndexedSlots(email));
+            }
+        }
+        assertEquals(numStable * 2, index.size());
+    }
+
+    @Test
+    public void toIndexWhilePutting() throws InterruptedException {
+        final ConcurrentAvailabilityIndex index = new ConcurrentAvailabilityIndex();
+        final PackedAvailability slots = PackedAvailability.fromWords(new long[] {1L, 0L, 0L, 0L});
+        final AtomicBoolean isWriting = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int i = 0; i < NUM_READERS; ++i) {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (isWriting.get()) {
+                            index.toIndex();
+                            index.count(slots);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        try {
+            for (int i = 0; i < NUM_REPS; ++i) {
+                index.put(new SalesDevelopmentRepresentative("rep" + i + "@example.com", slots));
+            }
+        } finally {
+            isWriting.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+
+        assertNull(String.valueOf(failure.get()), failure.get());
+
+        AvailabilityIndex snapshot = index.toIndex();
+        assertEquals(NUM_REPS, snapshot.size());
+        assertEquals(NUM_REPS, snapshot.count(slots));
+        assertEquals("rep0@example.com", snapshot.getEmail(0));
+        assertEquals("rep" + (NUM_REPS - 1) + "@example.com", snapshot.getEmail(NUM_REPS - 1));
+    }
+
+    private static List<String> getEmails(List<SalesDevelopmentRepresentative> salesReps) {
+        List<String> output = new ArrayList<String>(salesReps.size());
+        for (SalesDevelopmentRepresentative salesRep : salesReps) {
+            output.add(salesRep.getEmail());
+        }
+
+        return output;
+    }
+}
@@ -0,0 +1,129 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import com.dashk.availability.models.PackedAvailability;
+import org.junit.Test;
+
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks FastTimeRangeParser against TimeRangeParser + TimeRangeMerger, which it replaces on the load path
+ */
+public class FastTimeRangeParserTest {
+    private static final String INVALID = null;
+
+    /**
+     * Availability string, and the slots both parsers are expected to read from it, or INVALID if both reject it
+     */
+    private static final String[][] CASES = {
+            {"Mon 10:00 am - 11:00 am", "Mon 10:00 am - 11:00 am"},
+            {"Mon-Wed 9:00 am - 5:30 pm, Fri 1:00 pm - 2:00 pm", "Mon-Wed 9:00 am - 5:30 pm, Fri 1:00 pm - 2:00 pm"},
+            // Midnight ends the day as an end time, and starts it as a start time
+            {"Mon 11:00 pm - 12:00 am", "Mon 11:00 pm - 12:00 am"},
+            {"Mon 12:00 am - 1:00 am", "Mon 12:00 am - 1:00 am"},
+            {"Mon 12:00 am - 12:00 am", "Mon 12:00 am - 12:00 am"},
+            // 12:30 am is read as 1230, i.e. half past noon, like 12:30 pm
+            {"Mon 12:30 am - 1:00 pm", "Mon 12:30 pm - 1:00 pm"},
+            {"Mon 12:00 pm - 12:30 am", "Mon 12:00 pm - 12:30 pm"},
+            // Noon
+            {"Mon 11:00 am - 12:00 pm", "Mon 11:00 am - 12:00 pm"},
+            {"Mon 12:00 pm - 12:00 pm", INVALID},
+            // Overlapping & touching ranges merge
+            {"Mon 10:00 am - 11:00 am, Mon 10:30 am - 12:00 pm, Mon 12:00 pm - 1:00 pm", "Mon 10:00 am - 1:00 pm"},
+            {"Tue 1:00 pm - 2:00 pm, Mon-Tue 1:30 pm - 3:00 pm", "Mon 1:30 pm - 3:00 pm, Tue 1:00 pm - 3:00 pm"},
+            // A reversed day range covers no day, so its times are not compared either
+            {"Thu-Mon 10:00 am - 11:00 am", ""},
+            {"Thu-Mon 11:00 am - 10:00 am", ""},
+            {"Thu-Mon 10:15 am - 11:00 am", INVALID},
+            {"Thu-Mon 10:00 am - 11:00 am, Tue 9:00 am - 9:30 am", "Tue 9:00 am - 9:30 am"},
+            {"Fri-Fri 10:00 am - 11:00 am", "Fri 10:00 am - 11:00 am"},
+            {"Mon 11:00 am - 10:00 am", INVALID},
+            {"Mon 10:00 am - 10:00 am", INVALID},
+            // Minutes
+            {"Mon 10:15 am - 11:00 am", INVALID},
+            {"Mon 10:60 am - 11:00 am", INVALID},
+            {"Mon 10:5 am - 11:00 am", INVALID},
+            {"Mon 10:000 am - 11:00 am", INVALID},
+            {"Mon 10: am - 11:00 am", INVALID},
+            // Hours
+            {"Mon 010:00 am - 11:00 am", "Mon 10:00 am - 11:00 am"},
+            {"Mon 09:00 am - 11:00 am", "Mon 9:00 am - 11:00 am"},
+            {"Mon 0:30 am - 11:00 am", INVALID},
+            {"Mon 13:00 am - 11:00 pm", INVALID},
+            {"Mon 12:30 pm - 1:00 pm", "Mon 12:30 pm - 1:00 pm"},
+            {"Mon 10.00 am - 11:00 am", INVALID},
+            // Time of day
+            {"Mon 10:00 AM - 11:00 am", INVALID},
+            {"Mon 10:00am - 11:00 am", INVALID},
+            {"Mon 10:00 am - 11:00", INVALID},
+            {"Mon 10:00 am - 11:00 amx", INVALID},
+            // Days
+            {"Sat 10:00 am - 11:00 am", INVALID},
+            {"mon 10:00 am - 11:00 am", INVALID},
+            {"Monday 10:00 am - 11:00 am", INVALID},
+            {"Mon-Sat 10:00 am - 11:00 am", INVALID},
+            {"10:00 am - 11:00 am", INVALID},
+            // Separators
+            {"Mon 10:00 am - 11:00 am,", "Mon 10:00 am - 11:00 am"},
+            {"Mon 10:00 am - 11:00 am,,", "Mon 10:00 am - 11:00 am"},
+            {"Mon 10:00 am - 11:00 am, ", INVALID},
+            {"Mon 10:00 am - 11:00 am, , Tue 10:00 am - 11:00 am", INVALID},
+            {", Mon 10:00 am - 11:00 am", INVALID},
+            {",", ""},
+            {"", INVALID},
+            {" ", INVALID},
+            {"Mon 10:00 am 11:00 am", INVALID},
+            {"Mon 10:00 am - 11:00 am - 12:00 pm", INVALID},
+            {"Mon 10:00 am - 11:00 am Tue 10:00 am - 11:00 am", INVALID},
+            // Whitespace: anything String.trim() strips around ranges & dashes, but a space after days & times
+            {"  Mon   10:00   am  -  11:00   am  ,  Tue 10:00 am - 11:00 am  ", "Mon 10:00 am - 11:00 am, Tue 10:00 am - 11:00 am"},
+            {"\tMon 10:00 am\t-\t11:00 am\t,\tTue 10:00 am - 11:00 am\t", "Mon 10:00 am - 11:00 am, Tue 10:00 am - 11:00 am"},
+            {"Mon \t10:00 am - 11:00 am", "Mon 10:00 am - 11:00 am"},
+            {"Mon 10:00 \tam - 11:00 am", "Mon 10:00 am - 11:00 am"},
+            {"Mon\t10:00 am - 11:00 am", INVALID},
+            {"Mon 10:00\tam - 11:00 am", INVALID},
+            {"Mon 10:00 am - 11:00\tam", INVALID},
+            {"Mon -Tue 10:00 am - 11:00 am", INVALID},
+    };
+
+    @Test
+    public void matchesTimeRangeParser() {
+        StringBuilder mismatches = new StringBuilder();
+
+        for (String[] testCase : CASES) {
+            String input = testCase[0];
+            PackedAvailability expected = testCase[1] == null ? null : testCase[1].isEmpty() ? PackedAvailability.EMPTY : parseWithReference(testCase[1]);
+
+            if (!Objects.equals(expected, parseWithReference(input))) {
+                mismatches.append(String.format("TimeRangeParser on %s%n", describe(input)));
+            }
+            if (!Objects.equals(expected, parseFast(input))) {
+                mismatches.append(String.format("FastTimeRangeParser on %s%n", describe(input)));
+            }
+        }
+
+        assertEquals("", mismatches.toString());
+    }
+
+    private static PackedAvailability parseWithReference(String input) {
+        try {
+            return PackedAvailability.fromTimeRanges(TimeRangeMerger.merge(TimeRangeParser.parse(input)));
+        } catch (AvailabilityException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static PackedAvailability parseFast(String input) {
+        try {
+            return FastTimeRangeParser.parse(input);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String describe(String input) {
+        return "\"" + input.replace("\t", "\\t") + "\"";
+    }
+}
@@ -0,0 +1,201 @@
+package com.dashk.availability.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedCsvReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Every kind of field, with \n, \r\n & \r record separators, and a last record without one
+    private static final String CONTENT = "a@e.com,Mon 9:00 am - 5:00 pm\r\n"
+            + "\"b,\"\"x\"\"@e.com\",\"Mon 9:00 am - 5:00 pm, Tue 9:00 am - 5:00 pm\"\n"
+            + "\"c\n@e.com\",\"\"\"\"\r"
+            + "\"\",,\"\"\"\"\"\"\"\"\r\n"
+            + "\"d\r\n@e.com\",\"Wed 9:00 am - 5:00 pm\"\r\n"
+            + "\"é@e.com\"\r\n"
+            + "f@e.com,\"Thu 9:00 am - 5:00 pm\"";
+    private static final List<List<String>> RECORDS = Arrays.asList(
+            Arrays.asList("a@e.com", "Mon 9:00 am - 5:00 pm"),
+            Arrays.asList("b,\"x\"@e.com", "Mon 9:00 am - 5:00 pm, Tue 9:00 am - 5:00 pm"),
+            Arrays.asList("c\n@e.com", "\""),
+            Arrays.asList("", "", "\"\"\""),
+            Arrays.asList("d\r\n@e.com", "Wed 9:00 am - 5:00 pm"),
+            Arrays.asList("é@e.com"),
+            Arrays.asList("f@e.com", "Thu 9:00 am - 5:00 pm")
+    );
+
+    @Test
+    public void readsQuotedFieldsAndSeparators() throws IOException {
+        File dataFile = write(CONTENT);
+
+        for (boolean isMapped : new boolean[] {true, false}) {
+            MappedCsvReader reader = new MappedCsvReader(dataFile.getPath(), isMapped);
+            try {
+                assertEquals(RECORDS, readAll(reader));
+                assertEquals(RECORDS.size(), reader.getRecordNumber());
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void readsRecordsAcrossWindows() throws IOException {
+        File dataFile = write(CONTENT);
+        RandomAccessFile file = new RandomAccessFile(dataFile, "r");
+        // The longest record, separator included, is the smallest window that fits every record
+        int minWindowSize = "\"b,\"\"x\"\"@e.com\",\"Mon 9:00 am - 5:00 pm, Tue 9:00 am - 5:00 pm\"\n".length();
+
+        try {
+            // Windows that end anywhere within a record, including between \r & \n and between 2 quotes
+            for (int windowSize = minWindowSize; windowSize <= file.length() + 1; ++windowSize) {
+                for (boolean isMapped : new boolean[] {true, false}) {
+                    MappedCsvReader reader = new MappedCsvReader(file.getChannel(), 0, file.length(), windowSize, isMapped);
+                    assertEquals(String.format("Window of %d bytes", windowSize), RECORDS, readAll(reader));
+                    reader.close();
+                }
+            }
+
+            MappedCsvReader reader = new MappedCsvReader(file.getChannel(), 0, file.length(), minWindowSize - 1);
+            assertReadFails(reader, "Record 2 is larger than " + (minWindowSize - 1) + " bytes");
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void failsOnCharacterAfterClosingQuote() throws IOException {
+        MappedCsvReader reader = new MappedCsvReader(write("a@e.com,x\n\"b@e.com\"x,y\n").getPath());
+        try {
+            assertTrue(reader.nextRecord());
+            assertReadFails(reader, "Invalid character between quoted field and delimiter in record 2");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void failsOnUnterminatedQuote() throws IOException {
+        MappedCsvReader reader = new MappedCsvReader(write("a@e.com,x\n\"b@e.com,y\nc@e.com,z\n").getPath());
+        try {
+            assertTrue(reader.nextRecord());
+            assertReadFails(reader, "Record 2 ends within a quoted field");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readsEmptyFile() throws IOException {
+        MappedCsvReader reader = new MappedCsvReader(write("").getPath());
+        try {
+            assertFalse(reader.nextRecord());
+            assertEquals(0, reader.getRecordNumber());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void unmappedReadFailsOnTruncatedFile() throws IOException {
+        File dataFile = writeRecords(100);
+        RandomAccessFile file = new RandomAccessFile(dataFile, "rw");
+
+        try {
+            // Windows small enough that the rest of the file is read after it is cut short
+            MappedCsvReader reader = new MappedCsvReader(file.getChannel(), 0, file.length(), 64, false);
+            assertTrue(reader.nextRecord());
+            assertEquals("rep0@example.com", reader.getField(0).toString());
+
+            file.setLength(file.length() / 2);
+            assertReadFails(reader, "File ended at ");
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void unmappedReadFailsOnResizedFile() throws IOException {
+        File dataFile = writeRecords(3);
+        MappedCsvReader reader = new MappedCsvReader(dataFile.getPath(), false);
+
+        try {
+            assertTrue(reader.nextRecord());
+            Files.write(dataFile.toPath(), "rep3@example.com,Mon 9:00 am - 5:00 pm\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+            // Records read before the change are still handed out, the reader only fails once they run out
+            assertTrue(reader.nextRecord());
+            assertTrue(reader.nextRecord());
+            assertEquals("rep2@example.com", reader.getField(0).toString());
+            assertReadFails(reader, "File changed size from ");
+        } finally {
+            reader.close();
+        }
+    }
+
+    private File write(String content) throws IOException {
+        File output = folder.newFile();
+        Files.write(output.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return output;
+    }
+
+    private static List<List<String>> readAll(MappedCsvReader reader) throws IOException {
+        List<List<String>> output = new ArrayList<List<String>>();
+        while (reader.nextRecord()) {
+            List<String> fields = new ArrayList<String>();
+            for (int i = 0; i < reader.getFieldCount(); ++i) {
+                CsvField field = reader.getField(i);
+                fields.add(field.toString());
+
+                // Byte by byte, the view holds the same as the decoded field
+                byte[] bytes = field.toString().getBytes(StandardCharsets.UTF_8);
+                assertEquals(bytes.length, field.length());
+                for (int j = 0; j < bytes.length; ++j) {
+                    assertEquals(bytes[j], field.byteAt(j));
+                }
+            }
+            output.add(fields);
+        }
+
+        return output;
+    }
+
+    private File writeRecords(int count) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            content.append(String.format("rep%d@example.com,Mon 9:00 am - 5:00 pm\n", i));
+        }
+
+        File output = folder.newFile();
+        Files.write(output.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        return output;
+    }
+
+    private static void assertReadFails(MappedCsvReader reader, String message) {
+        try {
+            while (reader.nextRecord()) {
+                reader.getField(1);
+            }
+            fail("Read past a change to the file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+}
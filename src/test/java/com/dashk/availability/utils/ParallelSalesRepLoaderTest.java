@@ -0,0 +1,231 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.exceptions.AvailabilityException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a chunked load splits the file on record boundaries & builds the same index as a sequential one
+ */
+public class ParallelSalesRepLoaderTest {
+    private static final int NUM_THREADS = 4;
+    private static final long MIN_CHUNK_SIZE = 4096;
+    private static final String[] AVAILABILITIES = {
+            "Mon 9:00 am - 12:00 pm",
+            "Tue 10:00 am - 11:00 am, Thu 1:00 pm - 3:30 pm",
+            "Mon-Fri 8:00 am - 5:00 pm",
+            "Wed 12:00 pm - 6:00 pm",
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findsChunkBoundariesAfterRecordSeparators() throws IOException {
+        byte[] content = randomCsv(new Random(42), 2000, Collections.<Integer>emptySet()).getBytes(StandardCharsets.UTF_8);
+        File dataFile = folder.newFile("reps.csv");
+        Files.write(dataFile.toPath(), content);
+
+        List<Long> recordEnds = findRecordEnds(content);
+        boolean[] isQuoted = findQuotedOffsets(content);
+        ForkJoinPool pool = new ForkJoinPool(NUM_THREADS);
+        RandomAccessFile file = new RandomAccessFile(dataFile, "r");
+        int quotedEdges = 0;
+
+        try {
+            for (int numChunks = 2; numChunks <= 200; ++numChunks) {
+                long[] boundaries = ParallelSalesRepLoader.findChunkBoundaries(pool, file.getChannel(), content.length, numChunks);
+                long chunkSize = content.length / numChunks;
+
+                assertEquals(numChunks + 1, boundaries.length);
+                assertEquals(0, boundaries[0]);
+                assertEquals(content.length, boundaries[numChunks]);
+
+                for (int i = 1; i < numChunks; ++i) {
+                    // The first record to end at or after the chunk's nominal start, i.e. after a \n, never between \r\n
+                    long expected = Math.max(boundaries[i - 1], firstAtOrAfter(recordEnds, i * chunkSize));
+                    assertEquals(String.format("Boundary %d of %d", i, numChunks), expected, boundaries[i]);
+                    assertEquals('\n', content[(int) boundaries[i] - 1]);
+
+                    if (isQuoted[(int) (i * chunkSize)]) {
+                        ++quotedEdges;
+                    }
+                }
+            }
+        } finally {
+            file.close();
+            pool.shutdown();
+        }
+
+        // Otherwise the quoted new lines were never put to the test
+        assertTrue(quotedEdges > 0);
+    }
+
+    @Test
+    public void matchesSequentialLoad() throws IOException, AvailabilityException {
+        File dataFile = folder.newFile("reps.csv");
+        Files.write(dataFile.toPath(), randomCsv(new Random(7), 5000, Collections.<Integer>emptySet()).getBytes(StandardCharsets.UTF_8));
+
+        AvailabilityIndex expected = SalesRepLoader.load(dataFile.getPath());
+        AvailabilityIndex actual = ParallelSalesRepLoader.load(dataFile.getPath(), NUM_THREADS, null, MIN_CHUNK_SIZE);
+
+        assertEquals(5000, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); ++id) {
+            assertEquals(expected.getEmail(id), actual.getEmail(id));
+            assertEquals(expected.getSalesRep(id).getPackedAvailability(), actual.getSalesRep(id).getPackedAvailability());
+        }
+    }
+
+    @Test
+    public void failsLikeSequentialLoad() throws IOException {
+        File dataFile = folder.newFile("reps.csv");
+        Files.write(dataFile.toPath(), randomCsv(new Random(11), 5000, Collections.singleton(3210)).getBytes(StandardCharsets.UTF_8));
+
+        String expected = null;
+        try {
+            SalesRepLoader.load(dataFile.getPath());
+            fail("Sequential load accepted an invalid row");
+        } catch (AvailabilityException e) {
+            expected = e.getMessage();
+        }
+
+        try {
+            ParallelSalesRepLoader.load(dataFile.getPath(), NUM_THREADS, null, MIN_CHUNK_SIZE);
+            fail("Parallel load accepted an invalid row");
+        } catch (AvailabilityException e) {
+            assertTrue(expected, expected.startsWith("Record 3211 has an invalid availability: "));
+            assertEquals(expected, e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsLikeSequentialLoad() throws IOException, AvailabilityException {
+        File dataFile = folder.newFile("reps.csv");
+        Random random = new Random(13);
+        Set<Integer> invalidRows = new HashSet<Integer>();
+        while (invalidRows.size() < 50) {
+            invalidRows.add(random.nextInt(5000));
+        }
+        Files.write(dataFile.toPath(), randomCsv(random, 5000, invalidRows).getBytes(StandardCharsets.UTF_8));
+
+        // Fewer kept rows than rejected ones, so the kept ones have to be the first in the file, not in the first chunks to finish
+        File expectedSideFile = folder.newFile("expected.csv");
+        File actualSideFile = folder.newFile("actual.csv");
+        RejectedRowReport expected = new RejectedRowReport(0.1, 30, expectedSideFile.getPath());
+        RejectedRowReport actual = new RejectedRowReport(0.1, 30, actualSideFile.getPath());
+        AvailabilityIndex expectedIndex = SalesRepLoader.load(dataFile.getPath(), expected);
+        AvailabilityIndex actualIndex = ParallelSalesRepLoader.load(dataFile.getPath(), NUM_THREADS, actual, MIN_CHUNK_SIZE);
+
+        assertEquals(4950, expectedIndex.size());
+        assertEquals(expectedIndex.size(), actualIndex.size());
+        assertEquals(50, expected.getRejectedCount());
+        assertEquals(expected.getRejectedCount(), actual.getRejectedCount());
+        assertEquals(5000, expected.getRecordCount());
+        assertEquals(expected.getRecordCount(), actual.getRecordCount());
+
+        List<RejectedRowReport.RejectedRow> expectedRows = expected.getRejectedRows();
+        List<RejectedRowReport.RejectedRow> actualRows = actual.getRejectedRows();
+        assertEquals(30, expectedRows.size());
+        assertEquals(expectedRows.size(), actualRows.size());
+        long previous = 0;
+        for (int i = 0; i < expectedRows.size(); ++i) {
+            // Record numbers are 1-based, as rows are 0-based
+            assertTrue(invalidRows.contains((int) expectedRows.get(i).getRecordNumber() - 1));
+            assertTrue(expectedRows.get(i).getRecordNumber() > previous);
+            previous = expectedRows.get(i).getRecordNumber();
+
+            assertEquals(expectedRows.get(i).toString(), actualRows.get(i).toString());
+        }
+
+        List<String> lines = Files.readAllLines(expectedSideFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(32, lines.size());
+        assertEquals(",,\"20 more rows rejected, not listed\"", lines.get(31));
+        assertEquals(lines, Files.readAllLines(actualSideFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Rows with quoted emails that hold new lines, commas & escaped quotes, some ending in \r\n
+     *
+     * @param random
+     * @param numRows
+     * @param invalidRows indexes of rows to give an unparseable availability
+     * @return
+     */
+    private static String randomCsv(Random random, int numRows, Set<Integer> invalidRows) {
+        StringBuilder output = new StringBuilder();
+
+        for (int row = 0; row < numRows; ++row) {
+            if (random.nextInt(4) == 0) {
+                output.append("\"rep").append(row).append("\n,\"\"x\"\"\r\n@example.com\"");
+            } else {
+                output.append("rep").append(row).append("@example.com");
+            }
+
+            String availability = invalidRows.contains(row) ? "Mon 9:00 am to noon" : AVAILABILITIES[random.nextInt(AVAILABILITIES.length)];
+            output.append(",\"").append(availability).append('"');
+            output.append(random.nextBoolean() ? "\r\n" : "\n");
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Offsets right after each record separator, found by reading the file from the start
+     */
+    private static List<Long> findRecordEnds(byte[] content) {
+        List<Long> output = new ArrayList<Long>();
+        boolean isQuoted = false;
+
+        for (int i = 0; i < content.length; ++i) {
+            if (content[i] == '"') {
+                isQuoted = !isQuoted;
+            } else if (content[i] == '\n' && !isQuoted) {
+                output.add((long) i + 1);
+            }
+        }
+
+        return output;
+    }
+
+    private static long firstAtOrAfter(List<Long> recordEnds, long offset) {
+        for (long end : recordEnds) {
+            // end is right after a \n, which has to be at or after offset
+            if (end > offset) {
+                return end;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Whether each offset lies within a quoted field
+     */
+    private static boolean[] findQuotedOffsets(byte[] content) {
+        boolean[] output = new boolean[content.length + 1];
+        for (int i = 0; i < content.length; ++i) {
+            output[i + 1] = output[i] ^ (content[i] == '"');
+        }
+
+        return output;
+    }
+}
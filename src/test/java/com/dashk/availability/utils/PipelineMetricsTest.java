@@ -0,0 +1,48 @@
+package com.dashk.availability.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipelineMetricsTest {
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+
+    @After
+    public void tearDown() {
+        metrics.setEnabled(false);
+        metrics.reset();
+    }
+
+    @Test
+    public void timesOnlyWhileEnabled() {
+        metrics.reset();
+        PipelineMetrics.StageTimer timer = metrics.timer();
+
+        metrics.setEnabled(false);
+        timer.start();
+        timer.stop(PipelineMetrics.Stage.PARSE, 1);
+        timer.start();
+        timer.stop(PipelineMetrics.Stage.SEARCH, 1);
+        assertEquals(0L, (long) metrics.getItemCounts().get("PARSE"));
+        assertEquals(0, metrics.getQueryCount());
+
+        metrics.setEnabled(true);
+        timer.start();
+        timer.stop(PipelineMetrics.Stage.PARSE, 3);
+        timer.start();
+        timer.stop(PipelineMetrics.Stage.SEARCH, 1);
+        assertEquals(3L, (long) metrics.getItemCounts().get("PARSE"));
+        assertEquals(1, metrics.getQueryCount());
+
+        // Whether a timing is recorded depends on the flag when it started, not when it stopped
+        metrics.setEnabled(false);
+        timer.start();
+        metrics.setEnabled(true);
+        timer.stop(PipelineMetrics.Stage.PARSE, 1);
+        timer.start();
+        metrics.setEnabled(false);
+        timer.stop(PipelineMetrics.Stage.PARSE, 1);
+        assertEquals(4L, (long) metrics.getItemCounts().get("PARSE"));
+    }
+}
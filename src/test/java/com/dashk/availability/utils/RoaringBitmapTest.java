@@ -0,0 +1,291 @@
+package com.dashk.availability.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks RoaringBitmap against a BitSet holding the same values
+ */
+public class RoaringBitmapTest {
+    private static final int CONTAINER_SIZE = 1 << 16;
+    private static final int MAX_ARRAY_CONTAINER_SIZE = 4096;
+    private static final int NUM_KEYS = 4;
+    private static final int NUM_ROUNDS = 200;
+
+    @Test
+    public void matchesBruteForce() throws IOException {
+        Random random = new Random(42);
+
+        for (int round = 0; round < NUM_ROUNDS; ++round) {
+            BitSet expected = randomSet(random);
+            RoaringBitmap bitmap = toBitmap(expected, random);
+
+            assertMatches(expected, bitmap);
+            assertMatches(expected, roundTrip(bitmap));
+        }
+    }
+
+    @Test
+    public void intersectionsMatchBruteForce() throws IOException {
+        Random random = new Random(7);
+
+        for (int round = 0; round < NUM_ROUNDS; ++round) {
+            int numBitmaps = 1 + random.nextInt(3);
+            RoaringBitmap[] bitmaps = new RoaringBitmap[numBitmaps];
+            BitSet expected = null;
+
+            for (int i = 0; i < numBitmaps; ++i) {
+                BitSet values = randomSet(random);
+                bitmaps[i] = random.nextBoolean() ? toBitmap(values, random) : roundTrip(toBitmap(values, random));
+                if (expected == null) {
+                    expected = values;
+                } else {
+                    expected.and(values);
+                }
+            }
+
+            RoaringBitmap chained = bitmaps[0];
+            for (int i = 1; i < numBitmaps; ++i) {
+                chained = chained.and(bitmaps[i]);
+            }
+            assertMatches(expected, chained);
+
+            assertEquals(expected.cardinality(), RoaringBitmap.andCardinality(bitmaps));
+            assertArrayEquals(expected.stream().toArray(), collectAll(bitmaps, Integer.MAX_VALUE));
+
+            int limit = random.nextInt(expected.cardinality() + 1);
+            assertArrayEquals(expected.stream().limit(limit).toArray(), collectAll(bitmaps, limit));
+        }
+    }
+
+    @Test
+    public void convertsBetweenArrayAndBitmapContainers() throws IOException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value = 0; value < MAX_ARRAY_CONTAINER_SIZE; ++value) {
+            bitmap.add(value * 2);
+        }
+        assertEquals(ContainerType.ARRAY, getFirstContainerType(bitmap));
+
+        // Adding a value that is already there keeps the array
+        bitmap.add(0);
+        assertEquals(ContainerType.ARRAY, getFirstContainerType(bitmap));
+        assertEquals(MAX_ARRAY_CONTAINER_SIZE, bitmap.getCardinality());
+
+        bitmap.add(1);
+        assertEquals(ContainerType.BITMAP, getFirstContainerType(bitmap));
+        assertEquals(MAX_ARRAY_CONTAINER_SIZE + 1, bitmap.getCardinality());
+
+        // Two bitmaps whose intersection is small enough go back to an array, down to an empty one
+        RoaringBitmap odd = new RoaringBitmap();
+        RoaringBitmap dense = new RoaringBitmap();
+        for (int value = 0; value < CONTAINER_SIZE; ++value) {
+            if (value % 2 == 1) {
+                odd.add(value);
+            }
+            if (value < MAX_ARRAY_CONTAINER_SIZE * 3) {
+                dense.add(value);
+            }
+        }
+
+        RoaringBitmap sparse = bitmap.and(odd);
+        assertEquals(ContainerType.ARRAY, getFirstContainerType(sparse));
+        assertArrayEquals(new int[] {1}, sparse.toArray());
+
+        RoaringBitmap stillDense = odd.and(dense);
+        assertEquals(ContainerType.BITMAP, getFirstContainerType(stillDense));
+        assertEquals(MAX_ARRAY_CONTAINER_SIZE * 3 / 2, stillDense.getCardinality());
+
+        // Right at the limit
+        assertEquals(ContainerType.ARRAY, getFirstContainerType(range(0, 8192).and(range(4096, 12288))));
+        assertEquals(MAX_ARRAY_CONTAINER_SIZE, range(0, 8192).and(range(4096, 12288)).getCardinality());
+        assertEquals(ContainerType.BITMAP, getFirstContainerType(range(0, 8192).and(range(4095, 12288))));
+        assertEquals(MAX_ARRAY_CONTAINER_SIZE + 1, range(0, 8192).and(range(4095, 12288)).getCardinality());
+
+        assertFalse(odd.and(new RoaringBitmap()).contains(1));
+        assertEquals(0, odd.and(new RoaringBitmap()).getCardinality());
+    }
+
+    private static RoaringBitmap range(int from, int to) {
+        RoaringBitmap output = new RoaringBitmap();
+        for (int value = from; value < to; ++value) {
+            output.add(value);
+        }
+
+        return output;
+    }
+
+    private enum ContainerType { ARRAY, BITMAP }
+
+    /**
+     * Values spread over a few containers, each empty, sparse, right around the array limit, dense or full
+     *
+     * @param random
+     * @return
+     */
+    private static BitSet randomSet(Random random) {
+        BitSet output = new BitSet();
+
+        for (int key = 0; key < NUM_KEYS; ++key) {
+            int base = key * CONTAINER_SIZE;
+            int count;
+            switch (random.nextInt(6)) {
+                case 0:
+                    count = 0;
+                    break;
+                case 1:
+                    count = 1 + random.nextInt(300);
+                    break;
+                case 2:
+                    count = MAX_ARRAY_CONTAINER_SIZE - 1 + random.nextInt(3);
+                    break;
+                case 3:
+                    count = MAX_ARRAY_CONTAINER_SIZE + random.nextInt(CONTAINER_SIZE / 2);
+                    break;
+                case 4:
+                    count = CONTAINER_SIZE;
+                    break;
+                default:
+                    count = 1;
+                    break;
+            }
+
+            if (count == CONTAINER_SIZE) {
+                output.set(base, base + CONTAINER_SIZE);
+                continue;
+            }
+
+            // Exactly count distinct values, so the array limit is hit on the dot
+            for (int added = 0; added < count; ) {
+                int value = base + random.nextInt(CONTAINER_SIZE);
+                if (!output.get(value)) {
+                    output.set(value);
+                    ++added;
+                }
+            }
+        }
+
+        // Edges of the containers
+        if (random.nextInt(4) == 0) {
+            output.set(CONTAINER_SIZE - 1);
+            output.set(CONTAINER_SIZE);
+        }
+
+        return output;
+    }
+
+    /**
+     * Adds given values either in ascending order (the fast path) or shuffled, with some added twice
+     *
+     * @param values
+     * @param random
+     * @return
+     */
+    private static RoaringBitmap toBitmap(BitSet values, Random random) {
+        RoaringBitmap output = new RoaringBitmap();
+        List<Integer> order = new ArrayList<Integer>(values.cardinality());
+        for (int value = values.nextSetBit(0); value >= 0; value = values.nextSetBit(value + 1)) {
+            order.add(value);
+        }
+
+        if (random.nextBoolean()) {
+            Collections.shuffle(order, random);
+            for (int i = 0; i < order.size() / 10; ++i) {
+                order.add(order.get(random.nextInt(order.size())));
+            }
+        }
+
+        for (int value : order) {
+            output.add(value);
+        }
+
+        return output;
+    }
+
+    private static RoaringBitmap roundTrip(RoaringBitmap bitmap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        bitmap.writeTo(output);
+        output.flush();
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        RoaringBitmap copy = RoaringBitmap.readFrom(buffer);
+        assertFalse(buffer.hasRemaining());
+
+        return copy;
+    }
+
+    private static ContainerType getFirstContainerType(RoaringBitmap bitmap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        bitmap.writeTo(output);
+        output.flush();
+
+        // int container count, char key, char type (See RoaringBitmap.writeTo)
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.getInt();
+        buffer.getChar();
+        return buffer.getChar() == 0 ? ContainerType.ARRAY : ContainerType.BITMAP;
+    }
+
+    private static int[] collectAll(RoaringBitmap[] bitmaps, final int limit) {
+        final List<Integer> values = new ArrayList<Integer>();
+        if (limit == 0) {
+            return new int[0];
+        }
+
+        RoaringBitmap.forEachInAll(bitmaps, new IntPredicate() {
+            @Override
+            public boolean test(int value) {
+                values.add(value);
+                return values.size() < limit;
+            }
+        });
+
+        int[] output = new int[values.size()];
+        for (int i = 0; i < output.length; ++i) {
+            output[i] = values.get(i);
+        }
+
+        return output;
+    }
+
+    private static void assertMatches(BitSet expected, RoaringBitmap bitmap) {
+        int[] values = expected.stream().toArray();
+
+        assertEquals(values.length, bitmap.getCardinality());
+        assertEquals(values.length == 0, bitmap.isEmpty());
+        assertArrayEquals(values, bitmap.toArray());
+
+        PrimitiveIterator.OfInt iterator = bitmap.iterator();
+        for (int value : values) {
+            assertEquals(value, iterator.nextInt());
+        }
+        assertFalse(iterator.hasNext());
+
+        for (int value = 0; value < NUM_KEYS * CONTAINER_SIZE + 1; value += 97) {
+            assertEquals(String.valueOf(value), expected.get(value), bitmap.contains(value));
+        }
+        for (int key = 0; key <= NUM_KEYS; ++key) {
+            int first = key * CONTAINER_SIZE;
+            assertEquals(expected.get(first), bitmap.contains(first));
+            if (first > 0) {
+                assertEquals(expected.get(first - 1), bitmap.contains(first - 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.SalesDevelopmentRepresentative;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchResultCacheTest {
+    private static final String SEARCH = "Mon 9:00 am - 11:00 am";
+    // Same slots, written differently
+    private static final String EQUIVALENT_SEARCH = "Mon 9:00 am - 10:00 am, Mon 9:30 am - 11:00 am";
+
+    @Test
+    public void equivalentSearchesShareAnEntry() {
+        AvailabilityIndex index = buildIndex("a@example.com", "b@example.com");
+        SearchResultCache cache = new SearchResultCache();
+
+        assertEquals(Arrays.asList("a@example.com", "b@example.com"), getEmails(cache.find(index, FastTimeRangeParser.parse(SEARCH))));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertEquals(Arrays.asList("a@example.com", "b@example.com"), getEmails(cache.find(index, FastTimeRangeParser.parse(EQUIVALENT_SEARCH))));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void newIndexVersionMisses() {
+        AvailabilityIndex index = buildIndex("a@example.com");
+        AvailabilityIndex next = buildIndex("a@example.com", "b@example.com");
+        SearchResultCache cache = new SearchResultCache();
+
+        assertEquals(Arrays.asList("a@example.com"), getEmails(cache.find(index, FastTimeRangeParser.parse(SEARCH))));
+        assertEquals(Arrays.asList("a@example.com", "b@example.com"), getEmails(cache.find(next, FastTimeRangeParser.parse(SEARCH))));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        // Only the newer index is kept, and a search still running against the older one is not cached
+        assertEquals(1, cache.size());
+        assertEquals(Arrays.asList("a@example.com"), getEmails(cache.find(index, FastTimeRangeParser.parse(SEARCH))));
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getHitCount());
+
+        assertEquals(Arrays.asList("a@example.com", "b@example.com"), getEmails(cache.find(next, FastTimeRangeParser.parse(EQUIVALENT_SEARCH))));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void boundedByEntriesAndReps() {
+        AvailabilityIndex index = buildIndex("a@example.com", "b@example.com", "c@example.com");
+
+        // Least recently used goes first
+        SearchResultCache cache = new SearchResultCache(2, 6);
+        cache.find(index, FastTimeRangeParser.parse("Mon 9:00 am - 10:00 am"));
+        cache.find(index, FastTimeRangeParser.parse("Mon 10:00 am - 11:00 am"));
+        cache.find(index, FastTimeRangeParser.parse("Mon 9:00 am - 10:00 am"));
+        cache.find(index, FastTimeRangeParser.parse("Mon 11:00 am - 12:00 pm"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+
+        cache.find(index, FastTimeRangeParser.parse("Mon 9:00 am - 10:00 am"));
+        assertEquals(2, cache.getHitCount());
+        cache.find(index, FastTimeRangeParser.parse("Mon 10:00 am - 11:00 am"));
+        assertEquals(2, cache.getHitCount());
+
+        // 3 reps per result, so only one fits
+        cache = new SearchResultCache(10, 5);
+        cache.find(index, FastTimeRangeParser.parse("Mon 9:00 am - 10:00 am"));
+        cache.find(index, FastTimeRangeParser.parse("Mon 10:00 am - 11:00 am"));
+        assertEquals(1, cache.size());
+    }
+
+    private static AvailabilityIndex buildIndex(String... emails) {
+        List<SalesDevelopmentRepresentative> salesReps = new ArrayList<SalesDevelopmentRepresentative>();
+        for (String email : emails) {
+            salesReps.add(new SalesDevelopmentRepresentative(email, FastTimeRangeParser.parse("Mon 9:00 am - 5:00 pm")));
+        }
+
+        return AvailabilityIndex.build(salesReps);
+    }
+
+    private static List<String> getEmails(List<SalesDevelopmentRepresentative> salesReps) {
+        List<String> output = new ArrayList<String>(salesReps.size());
+        for (SalesDevelopmentRepresentative salesRep : salesReps) {
+            output.add(salesRep.getEmail());
+        }
+
+        return output;
+    }
+}
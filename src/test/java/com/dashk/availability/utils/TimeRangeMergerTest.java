@@ -0,0 +1,86 @@
+package com.dashk.availability.utils;
+
+import com.dashk.availability.models.TimeRange;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeRangeMergerTest {
+    private static final int MON = DayOfWeekConverter.convert("Mon");
+    private static final int TUE = DayOfWeekConverter.convert("Tue");
+    private static final int WED = DayOfWeekConverter.convert("Wed");
+
+    @Test
+    public void mergesTouchingRanges() {
+        assertMerged(ranges(range(MON, 900, 1000), range(MON, 1100, 1200), range(MON, 1000, 1100)),
+                range(MON, 900, 1200));
+
+        // A gap, however short, keeps them apart
+        assertMerged(ranges(range(MON, 900, 1000), range(MON, 1030, 1100)),
+                range(MON, 900, 1000), range(MON, 1030, 1100));
+    }
+
+    @Test
+    public void mergesOverlappingRanges() {
+        assertMerged(ranges(range(MON, 900, 1100), range(MON, 1000, 1200)),
+                range(MON, 900, 1200));
+
+        // An enclosed range does not cut the enclosing one short, wherever it is sorted
+        assertMerged(ranges(range(MON, 900, 1700), range(MON, 1000, 1100), range(MON, 900, 1000)),
+                range(MON, 900, 1700));
+
+        assertMerged(ranges(range(MON, 900, 1000), range(MON, 900, 1000)),
+                range(MON, 900, 1000));
+    }
+
+    @Test
+    public void keepsDaysApart() {
+        // The example of TimeRangeMerger.merge
+        assertMerged(ranges(range(TUE, 100, 200), range(MON, 100, 300), range(MON, 1400, 1600), range(MON, 200, 500), range(MON, 500, 600)),
+                range(MON, 100, 600), range(MON, 1400, 1600), range(TUE, 100, 200));
+
+        // The end of a day does not touch the start of the next one
+        assertMerged(ranges(range(TUE, 0, 100), range(MON, 2300, 2400)),
+                range(MON, 2300, 2400), range(TUE, 0, 100));
+
+        assertMerged(ranges(range(WED, 900, 1000), range(MON, 930, 1030), range(WED, 1000, 1100), range(TUE, 900, 1000), range(MON, 900, 1000)),
+                range(MON, 900, 1030), range(TUE, 900, 1000), range(WED, 900, 1100));
+    }
+
+    @Test
+    public void leavesInputAsIs() {
+        List<TimeRange> input = ranges(range(TUE, 100, 200), range(MON, 100, 300));
+        List<TimeRange> copy = new ArrayList<TimeRange>(input);
+
+        assertMerged(input, range(MON, 100, 300), range(TUE, 100, 200));
+        assertEquals(copy, input);
+
+        assertEquals(0, TimeRangeMerger.merge(Collections.<TimeRange>emptyList()).size());
+    }
+
+    private static void assertMerged(List<TimeRange> input, TimeRange... expected) {
+        assertEquals(describe(Arrays.asList(expected)), describe(TimeRangeMerger.merge(input)));
+    }
+
+    private static List<TimeRange> ranges(TimeRange... ranges) {
+        return Arrays.asList(ranges);
+    }
+
+    private static TimeRange range(int dayOfWeek, int startTime, int endTime) {
+        return new TimeRange(dayOfWeek, startTime, endTime);
+    }
+
+    private static List<String> describe(List<TimeRange> ranges) {
+        List<String> output = new ArrayList<String>(ranges.size());
+        for (TimeRange range : ranges) {
+            output.add(range.toString());
+        }
+
+        return output;
+    }
+}